@@ -0,0 +1,89 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.gui2.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@code GridLayout.doLayout(..)} on a tree of nested panels, laying out every level the way drawing the
+ * root panel would do it.
+ * @author martin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GridLayoutBenchmark {
+    @Param({"3", "5"})
+    public int depth;
+
+    private Panel root;
+    private TerminalSize area;
+
+    @Setup
+    public void setUp() {
+        root = createPanel(depth);
+        area = new TerminalSize(200, 60);
+    }
+
+    /**
+     * Creates a panel with a two-column grid holding a few labels, a horizontally filled label spanning both columns and,
+     * unless we are at the bottom of the tree, two nested panels of the same kind
+     */
+    private static Panel createPanel(int levelsLeft) {
+        Panel panel = new Panel();
+        panel.setLayoutManager(new GridLayout(2));
+        panel.addComponent(new Label("Name:"));
+        panel.addComponent(new Label("Level " + levelsLeft));
+        panel.addComponent(new Label("A longer label spanning both columns")
+                .setLayoutData(GridLayout.createHorizontallyFilledLayoutData(2)));
+        if(levelsLeft > 1) {
+            panel.addComponent(createPanel(levelsLeft - 1));
+            panel.addComponent(createPanel(levelsLeft - 1));
+        }
+        else {
+            panel.addComponent(new EmptySpace(new TerminalSize(3, 1)));
+            panel.addComponent(new Label("Leaf"));
+        }
+        return panel;
+    }
+
+    @Benchmark
+    public void doLayout() {
+        layout(root, area);
+    }
+
+    private static void layout(Panel panel, TerminalSize size) {
+        List<Component> children = new ArrayList<Component>(panel.getChildren());
+        panel.getLayoutManager().doLayout(size, children);
+        for(Component child: children) {
+            if(child instanceof Panel) {
+                layout((Panel)child, child.getSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.input.DefaultKeyDecodingProfile;
+import com.googlecode.lanterna.input.InputDecoder;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@code InputDecoder.getNextCharacter(..)}, decoding a byte stream like the ones a terminal sends while
+ * someone is using an application: mostly typing, mixed with navigation and function keys, modifier combinations and
+ * the occasional cursor position report.
+ * @author martin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InputDecoderBenchmark {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String[] SESSION_FRAGMENTS = {
+            "Hello world, this is some typing",
+            "\033[A", "\033[B", "\033[C", "\033[D",             //Arrow keys
+            "\033[H", "\033[F", "\033[5~", "\033[6~",           //Home, End, Page Up and Page Down
+            "\033OP", "\033OQ", "\033[15~", "\033[24~",         //Function keys
+            "\033[1;5C", "\033[1;2A", "\033[1;3D",              //Arrow keys with ctrl, shift and alt
+            "\033x", "\033\033[B",                              //Alt combinations
+            "\t", "\r", "\u007f", "\u0003",                     //Tab, enter, backspace and ctrl+c
+            "r\u00e4ksm\u00f6rg\u00e5s \u65e5\u672c\u8a9e",     //Non-ASCII text
+            "\033[24;80R"                                       //Cursor position report
+    };
+
+    @Param({"10", "50"})
+    public int fragments;
+
+    private byte[][] recording;
+
+    @Setup
+    public void setUp() {
+        recording = new byte[fragments][];
+        for(int i = 0; i < fragments; i++) {
+            //Typing is the most common input, so every other fragment is plain text
+            String fragment = i % 2 == 0 ? SESSION_FRAGMENTS[0] : SESSION_FRAGMENTS[(i * 7) % SESSION_FRAGMENTS.length];
+            recording[i] = fragment.getBytes(UTF8);
+        }
+    }
+
+    @Benchmark
+    public void decodeRecording(Blackhole blackhole) throws IOException {
+        InputDecoder inputDecoder = new InputDecoder(new InputStreamReader(new RecordingInputStream(recording), UTF8));
+        inputDecoder.addProfile(new DefaultKeyDecodingProfile());
+        //Reading in blocking mode, since the decoder only notices the end of the stream when it's waiting for input
+        KeyStroke keyStroke = inputDecoder.getNextCharacter(true);
+        while(keyStroke == null || keyStroke.getKeyType() != KeyType.EOF) {
+            blackhole.consume(keyStroke);
+            keyStroke = inputDecoder.getNextCharacter(true);
+        }
+    }
+
+    /**
+     * Plays back the recorded fragments one at a time, the way they would arrive from a terminal. When a fragment has
+     * been read, the next one becomes available only after someone has checked and found nothing more to read, as if
+     * it arrived a moment later.
+     */
+    private static class RecordingInputStream extends InputStream {
+        private final byte[][] fragments;
+        private int fragmentIndex;
+        private int position;
+        private boolean fragmentEnded;
+
+        RecordingInputStream(byte[][] fragments) {
+            this.fragments = fragments;
+            this.fragmentIndex = 0;
+            this.position = 0;
+            this.fragmentEnded = false;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            fragmentEnded = false;
+            if(fragmentIndex == fragments.length) {
+                return -1;
+            }
+            byte[] fragment = fragments[fragmentIndex];
+            int count = Math.min(len, fragment.length - position);
+            System.arraycopy(fragment, position, b, off, count);
+            position += count;
+            if(position == fragment.length) {
+                fragmentIndex++;
+                position = 0;
+                fragmentEnded = true;
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            if(fragmentEnded || fragmentIndex == fragments.length) {
+                fragmentEnded = false;
+                return 0;
+            }
+            return fragments[fragmentIndex].length - position;
+        }
+    }
+}
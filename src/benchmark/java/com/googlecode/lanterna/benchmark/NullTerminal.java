@@ -0,0 +1,56 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * ANSI terminal of a fixed size that throws away everything written to it and never has any input, so that benchmarks
+ * measure the cost of producing the output rather than the speed of whatever tty they happen to run on.
+ * @author martin
+ */
+public class NullTerminal extends ANSITerminal {
+    private final TerminalSize size;
+
+    public NullTerminal(TerminalSize size) {
+        super(new ByteArrayInputStream(new byte[0]), new NullOutputStream(), Charset.forName("UTF-8"));
+        this.size = size;
+        onResized(size.getColumns(), size.getRows());
+    }
+
+    @Override
+    public TerminalSize getTerminalSize() {
+        return size;
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.terminal.ansi.HeadlessTerminal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@code TerminalScreen.refresh(..)} for the three typical kinds of updates: redrawing everything, a few
+ * scattered cells changing and a log-like view where all lines move up one row. The output either goes nowhere, or
+ * to a {@code HeadlessTerminal} which also includes the cost of a terminal emulator parsing it.
+ * @author martin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScreenRefreshBenchmark {
+    private static final TextColor[] COLORS = {
+            TextColor.ANSI.DEFAULT, TextColor.ANSI.RED, TextColor.ANSI.GREEN, TextColor.ANSI.YELLOW, TextColor.ANSI.BLUE
+    };
+
+    @Param({"80x24", "200x60"})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean packedBuffers;
+
+    @Param({"null", "headless"})
+    public String terminal;
+
+    private TerminalScreen screen;
+    private TextGraphics graphics;
+    private Random random;
+    private int columns;
+    private int rows;
+    private int nextLogLine;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] dimensions = size.split("x");
+        columns = Integer.parseInt(dimensions[0]);
+        rows = Integer.parseInt(dimensions[1]);
+        TerminalSize terminalSize = new TerminalSize(columns, rows);
+        screen = new TerminalScreen(terminal.equals("headless") ? new HeadlessTerminal(terminalSize) : new NullTerminal(terminalSize));
+        screen.setPackedBuffers(packedBuffers);
+        screen.startScreen();
+        graphics = screen.newTextGraphics();
+        random = new Random(4711);
+        for(int row = 0; row < rows; row++) {
+            writeLogLine(row, row);
+        }
+        screen.refresh(Screen.RefreshType.COMPLETE);
+        nextLogLine = rows;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        screen.stopScreen();
+    }
+
+    @Benchmark
+    public void fullRedraw() throws IOException {
+        screen.refresh(Screen.RefreshType.COMPLETE);
+    }
+
+    @Benchmark
+    public void sparseDelta() throws IOException {
+        for(int i = 0; i < 10; i++) {
+            graphics.setForegroundColor(COLORS[random.nextInt(COLORS.length)]);
+            graphics.setCharacter(random.nextInt(columns), random.nextInt(rows), (char)('a' + random.nextInt(26)));
+        }
+        screen.refresh(Screen.RefreshType.DELTA);
+    }
+
+    @Benchmark
+    public void scrolling() throws IOException {
+        //Redraw every line shifted one step up, the way an application showing a log would do it
+        for(int row = 0; row < rows; row++) {
+            writeLogLine(row, nextLogLine - rows + 1 + row);
+        }
+        nextLogLine++;
+        screen.refresh(Screen.RefreshType.DELTA);
+    }
+
+    private void writeLogLine(int row, int lineNumber) {
+        graphics.setForegroundColor(COLORS[lineNumber % COLORS.length]);
+        graphics.fillRectangle(new TerminalPosition(0, row), new TerminalSize(columns, 1), ' ');
+        String line = lineNumber + ": the quick brown fox jumps over the lazy dog, again and again and again";
+        if(lineNumber % 7 == 0) {
+            graphics.putString(0, row, line, SGR.BOLD);
+        }
+        else {
+            graphics.putString(0, row, line);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.gui2.*;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@code MultiWindowTextGUI.updateScreen()}, drawing a few windows full of components and refreshing the
+ * screen, after changing the text of one label like an application updating a status field would do.
+ * @author martin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TextGUIBenchmark {
+    @Param({"1", "4"})
+    public int windows;
+
+    private TerminalScreen screen;
+    private MultiWindowTextGUI textGUI;
+    private List<Label> statusLabels;
+    private int updates;
+
+    @Setup
+    public void setUp() throws IOException {
+        screen = new TerminalScreen(new NullTerminal(new TerminalSize(120, 40)));
+        screen.startScreen();
+        textGUI = new MultiWindowTextGUI(screen);
+        statusLabels = new ArrayList<Label>();
+        for(int i = 0; i < windows; i++) {
+            BasicWindow window = new BasicWindow("Window " + i);
+            Panel panel = new Panel();
+            panel.setLayoutManager(new GridLayout(2));
+            for(int row = 0; row < 8; row++) {
+                panel.addComponent(new Label("Field " + row + ":"));
+                panel.addComponent(new TextBox("value " + row));
+            }
+            Label statusLabel = new Label("Status: starting");
+            panel.addComponent(statusLabel.setLayoutData(GridLayout.createHorizontallyFilledLayoutData(2)));
+            panel.addComponent(new Button("OK"));
+            panel.addComponent(new Button("Cancel"));
+            window.setComponent(panel);
+            textGUI.addWindow(window);
+            statusLabels.add(statusLabel);
+        }
+        textGUI.updateScreen();
+        updates = 0;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        screen.stopScreen();
+    }
+
+    @Benchmark
+    public void updateScreen() throws IOException {
+        statusLabels.get(updates % statusLabels.size()).setText("Status: update " + updates);
+        updates++;
+        textGUI.updateScreen();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.benchmark;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.TextGraphics;
+import com.googlecode.lanterna.screen.ScreenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the in-memory drawing operations that everything above the terminal layer is built on: copying text
+ * images and drawing strings and rectangles through {@code TextGraphics}.
+ * @author martin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TextImageBenchmark {
+    private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor";
+
+    @Param({"80x24", "200x60"})
+    public String size;
+
+    private BasicTextImage source;
+    private BasicTextImage imageDestination;
+    private ScreenBuffer bufferDestination;
+    private TextGraphics graphics;
+    private TerminalSize imageSize;
+    private int row;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        imageSize = new TerminalSize(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        source = new BasicTextImage(imageSize);
+        TextGraphics sourceGraphics = source.newTextGraphics();
+        for(int y = 0; y < imageSize.getRows(); y++) {
+            sourceGraphics.setForegroundColor(y % 2 == 0 ? TextColor.ANSI.WHITE : TextColor.ANSI.CYAN);
+            sourceGraphics.putString(0, y, TEXT);
+        }
+        imageDestination = new BasicTextImage(imageSize);
+        bufferDestination = new ScreenBuffer(imageSize, TextCharacter.DEFAULT_CHARACTER);
+        graphics = new BasicTextImage(imageSize).newTextGraphics();
+        row = 0;
+    }
+
+    @Benchmark
+    public void copyToBasicTextImage() {
+        source.copyTo(imageDestination);
+    }
+
+    @Benchmark
+    public void copyToScreenBuffer() {
+        source.copyTo(bufferDestination);
+    }
+
+    @Benchmark
+    public void copyRegion() {
+        source.copyTo(imageDestination, 2, imageSize.getRows() / 2, 4, imageSize.getColumns() / 2, 1, 1);
+    }
+
+    @Benchmark
+    public void putString() {
+        graphics.putString(0, row, TEXT);
+        row = (row + 1) % imageSize.getRows();
+    }
+
+    @Benchmark
+    public void fillRectangle() {
+        graphics.fillRectangle(new TerminalPosition(1, 1), imageSize.withRelativeColumns(-2).withRelativeRows(-2), 'x');
+    }
+}
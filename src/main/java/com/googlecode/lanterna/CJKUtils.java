@@ -27,34 +27,119 @@ package com.googlecode.lanterna;
  * 
  * @author Martin
  */
-public class CJKUtils {    
+public class CJKUtils {
+    /**
+     * Ranges (inclusive) of code points that are East Asian Wide or Fullwidth, meaning they take up two columns in a
+     * terminal. Based on Markus Kuhn's wcwidth implementation, with the emoji blocks added.
+     */
+    private static final int[][] WIDE_RANGES = {
+            { 0x1100, 0x115F },     //Hangul Jamo initial consonants
+            { 0x2329, 0x232A },     //Angle brackets
+            { 0x2E80, 0x303E },     //CJK Radicals Supplement .. CJK Symbols and Punctuation
+            { 0x3040, 0xA4CF },     //Hiragana .. Yi Radicals, including the CJK Unified Ideographs
+            { 0xAC00, 0xD7A3 },     //Hangul Syllables
+            { 0xF900, 0xFAFF },     //CJK Compatibility Ideographs
+            { 0xFE10, 0xFE19 },     //Vertical forms
+            { 0xFE30, 0xFE6F },     //CJK Compatibility Forms and Small Form Variants
+            { 0xFF00, 0xFF60 },     //Fullwidth Forms
+            { 0xFFE0, 0xFFE6 },     //Fullwidth signs
+            { 0x17000, 0x18AFF },   //Tangut
+            { 0x1B000, 0x1B2FF },   //Kana Supplement .. Nushu
+            { 0x1F300, 0x1F64F },   //Miscellaneous Symbols and Pictographs .. Emoticons
+            { 0x1F680, 0x1F6FF },   //Transport and Map Symbols
+            { 0x1F900, 0x1F9FF },   //Supplemental Symbols and Pictographs
+            { 0x20000, 0x2FFFD },   //CJK Unified Ideographs Extension B ..
+            { 0x30000, 0x3FFFD }    //CJK Unified Ideographs Extension G ..
+    };
+
+    /**
+     * Number of terminal columns used by every character in the Basic Multilingual Plane, looked up once when the class
+     * is loaded
+     */
+    private static final byte[] COLUMN_WIDTHS = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for(int c = 0; c <= Character.MAX_VALUE; c++) {
+            COLUMN_WIDTHS[c] = (byte)calculateColumnWidth((char)c);
+        }
+        for(int[] range: WIDE_RANGES) {
+            for(int c = range[0]; c <= range[1] && c <= Character.MAX_VALUE; c++) {
+                COLUMN_WIDTHS[c] = 2;
+            }
+        }
+    }
+
     private CJKUtils() {
     }
 
+    private static int calculateColumnWidth(int c) {
+        if(c == 0x00AD) {
+            //Soft hyphen is a format character but terminals print it
+            return 1;
+        }
+        if(c < 0x20 || (c >= 0x7F && c < 0xA0) || c == 0x200B || (c >= 0x1160 && c <= 0x11FF)) {
+            //Control characters, zero width space and the medial vowels and final consonants of Hangul Jamo
+            return 0;
+        }
+        if(c <= Character.MAX_VALUE && Character.isLowSurrogate((char)c)) {
+            //The width of a surrogate pair is counted on the high surrogate, see getColumnWidth(int)
+            return 0;
+        }
+        switch(Character.getType(c)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.FORMAT:
+                return 0;
+            default:
+                return 1;
+        }
+    }
+
     /**
-     * Given a character, is this character considered to be a CJK character?
-     * Shamelessly stolen from
-     * <a href="http://stackoverflow.com/questions/1499804/how-can-i-detect-japanese-text-in-a-java-string>StackOverflow</a>
-     * where it was contributed by user Rakesh N
+     * Given a character, is this character considered to be a CJK character? More precisely, this checks if the
+     * character is East Asian Wide or Fullwidth and will take up two columns in the terminal. The answer is looked up
+     * in a precomputed table.
      * @param c Character to test
      * @return {@code true} if the character is a CJK character
      */
     public static boolean isCharCJK(final char c) {
-        Character.UnicodeBlock unicodeBlock = Character.UnicodeBlock.of(c);
-        return (unicodeBlock == Character.UnicodeBlock.HIRAGANA)
-                || (unicodeBlock == Character.UnicodeBlock.KATAKANA)
-                || (unicodeBlock == Character.UnicodeBlock.KATAKANA_PHONETIC_EXTENSIONS)
-                || (unicodeBlock == Character.UnicodeBlock.HANGUL_COMPATIBILITY_JAMO)
-                || (unicodeBlock == Character.UnicodeBlock.HANGUL_JAMO)
-                || (unicodeBlock == Character.UnicodeBlock.HANGUL_SYLLABLES)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_B)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_COMPATIBILITY_FORMS)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_RADICALS_SUPPLEMENT)
-                || (unicodeBlock == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION)
-                || (unicodeBlock == Character.UnicodeBlock.ENCLOSED_CJK_LETTERS_AND_MONTHS);
+        return COLUMN_WIDTHS[c] == 2;
+    }
+
+    /**
+     * Returns the number of columns a terminal will use when printing this character: 2 for CJK and other wide
+     * characters, 0 for combining characters, control characters and other characters that don't advance the cursor,
+     * and 1 for everything else. Please note that Screen and TextGraphics will still put combining characters in a
+     * cell of their own; this method describes what the terminal does, not the layout of a Screen.
+     * <p/>
+     * A character outside of the Basic Multilingual Plane is made up of two {@code char}:s, a high and a low
+     * surrogate, and a single {@code char} can't tell which character the pair makes up. The low surrogate is given
+     * width 0 and the high surrogate width 1, which is right for most of them; use {@code getColumnWidth(int)} with the
+     * code point of the pair to also get wide characters, like emoji and CJK Extension B, right.
+     * @param c Character to get the width of
+     * @return Number of columns the character takes up in a terminal, 0, 1 or 2
+     */
+    public static int getColumnWidth(final char c) {
+        return COLUMN_WIDTHS[c];
+    }
+
+    /**
+     * Returns the number of columns a terminal will use when printing the character with this code point, the same way
+     * as {@code getColumnWidth(char)} but also for characters outside of the Basic Multilingual Plane, which in a
+     * {@code String} are made up of a surrogate pair.
+     * @param codePoint Code point of the character to get the width of
+     * @return Number of columns the character takes up in a terminal, 0, 1 or 2
+     */
+    public static int getColumnWidth(final int codePoint) {
+        if(codePoint <= Character.MAX_VALUE) {
+            return COLUMN_WIDTHS[codePoint];
+        }
+        for(int[] range: WIDE_RANGES) {
+            if(codePoint >= range[0] && codePoint <= range[1]) {
+                return 2;
+            }
+        }
+        return calculateColumnWidth(codePoint);
     }
 
     /**
@@ -65,11 +150,13 @@ public class CJKUtils {
      */
     public static int getTrueWidth(String s) {
         int count = 0;
-        for(int i = 0; i < s.length(); i++) {
-            if(isCharCJK(s.charAt(i))) {
+        for(int i = 0; i < s.length(); ) {
+            int codePoint = s.codePointAt(i);
+            if(getColumnWidth(codePoint) == 2) {
                 count++;
             }
             count++;
+            i += Character.charCount(codePoint);
         }
         return count;
     }
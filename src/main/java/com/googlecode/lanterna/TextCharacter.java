@@ -18,22 +18,118 @@
  */
 package com.googlecode.lanterna;
 
-import java.util.Arrays;
 import java.util.EnumSet;
 
 /**
  * Represents a single character with additional metadata such as colors and modifiers. This class is immutable and
  * cannot be modified after creation.
+ * <p/>
+ * Since drawing operations tend to create the same combinations of character, colors and modifiers over and over
+ * again, there is a small shared cache of recently used TextCharacter objects. Use the {@code of(..)} factory methods
+ * instead of the constructors to pick up a cached instance if there is one. The {@code with..} methods go through the
+ * cache automatically.
  * @author Martin
  */
 public class TextCharacter {
-    private static EnumSet<SGR> toEnumSet(SGR... modifiers) {
-        if(modifiers.length == 0) {
-            return EnumSet.noneOf(SGR.class);
+    private static final SGR[] ALL_SGR = SGR.values();
+
+    //Number of slots in the flyweight cache, must be a power of two
+    private static final int CACHE_SIZE = 4096;
+
+    //Slots are overwritten on collision, which keeps the cache bounded without any locking. Since all fields of
+    //TextCharacter are final, it's safe for another thread to pick up an instance through this array.
+    private static final TextCharacter[] CACHE = new TextCharacter[CACHE_SIZE];
+
+    private static int toModifierMask(EnumSet<SGR> modifiers) {
+        int mask = 0;
+        for(SGR sgr: ALL_SGR) {
+            if(modifiers.contains(sgr)) {
+                mask |= 1 << sgr.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static int toModifierMask(SGR... modifiers) {
+        int mask = 0;
+        for(SGR sgr: modifiers) {
+            mask |= 1 << sgr.ordinal();
+        }
+        return mask;
+    }
+
+    private static EnumSet<SGR> toEnumSet(int modifierMask) {
+        EnumSet<SGR> modifiers = EnumSet.noneOf(SGR.class);
+        for(SGR sgr: ALL_SGR) {
+            if((modifierMask & (1 << sgr.ordinal())) != 0) {
+                modifiers.add(sgr);
+            }
+        }
+        return modifiers;
+    }
+
+    private static int hash(char character, TextColor foregroundColor, TextColor backgroundColor, int modifierMask) {
+        int hash = 7;
+        hash = 37 * hash + character;
+        hash = 37 * hash + foregroundColor.hashCode();
+        hash = 37 * hash + backgroundColor.hashCode();
+        hash = 37 * hash + modifierMask;
+        return hash;
+    }
+
+    /**
+     * Returns a TextCharacter with the specified character, colors and modifiers, re-using a cached instance if there
+     * is one.
+     * @param character Physical character to refer to
+     * @param foregroundColor Foreground color the character has
+     * @param backgroundColor Background color the character has
+     * @param modifiers Set of modifiers to apply when drawing the character
+     * @return TextCharacter matching the parameters
+     */
+    public static TextCharacter of(
+            char character,
+            TextColor foregroundColor,
+            TextColor backgroundColor,
+            EnumSet<SGR> modifiers) {
+
+        return of(character, foregroundColor, backgroundColor, toModifierMask(modifiers));
+    }
+
+    /**
+     * Returns a TextCharacter with the specified character, colors and modifiers, re-using a cached instance if there
+     * is one. The modifiers are expressed as a bit mask where each {@code SGR} is represented by the bit
+     * {@code 1 << sgr.ordinal()}, the same format as returned by {@code getModifierMask()}.
+     * @param character Physical character to refer to
+     * @param foregroundColor Foreground color the character has
+     * @param backgroundColor Background color the character has
+     * @param modifierMask Bit mask of modifiers to apply when drawing the character
+     * @return TextCharacter matching the parameters
+     */
+    public static TextCharacter of(
+            char character,
+            TextColor foregroundColor,
+            TextColor backgroundColor,
+            int modifierMask) {
+
+        if(foregroundColor == null) {
+            foregroundColor = TextColor.ANSI.DEFAULT;
         }
-        else {
-            return EnumSet.copyOf(Arrays.asList(modifiers));
+        if(backgroundColor == null) {
+            backgroundColor = TextColor.ANSI.DEFAULT;
         }
+        int hash = hash(character, foregroundColor, backgroundColor, modifierMask);
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        TextCharacter cached = CACHE[slot];
+        if(cached != null &&
+                cached.character == character &&
+                cached.modifierMask == modifierMask &&
+                cached.foregroundColor.equals(foregroundColor) &&
+                cached.backgroundColor.equals(backgroundColor)) {
+            return cached;
+        }
+        TextCharacter textCharacter = new TextCharacter(character, foregroundColor, backgroundColor, modifierMask);
+        CACHE[slot] = textCharacter;
+        return textCharacter;
     }
 
     public static final TextCharacter DEFAULT_CHARACTER = new TextCharacter(' ', TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT);
@@ -41,7 +137,7 @@ public class TextCharacter {
     private final char character;
     private final TextColor foregroundColor;
     private final TextColor backgroundColor;
-    private final EnumSet<SGR> modifiers;  //This isn't immutable, but we should treat it as such and not expose it!
+    private final int modifierMask;
 
     /**
      * Creates a {@code ScreenCharacter} based on a supplied character, with default colors and no extra modifiers.
@@ -59,7 +155,7 @@ public class TextCharacter {
         this(character.getCharacter(),
                 character.getForegroundColor(), 
                 character.getBackgroundColor(),
-                character.getModifiers().toArray(new SGR[character.getModifiers().size()]));
+                character.getModifierMask());
     }
 
     /**
@@ -79,7 +175,7 @@ public class TextCharacter {
         this(character, 
                 foregroundColor, 
                 backgroundColor, 
-                toEnumSet(styles));
+                toModifierMask(styles));
     }
 
     /**
@@ -94,6 +190,18 @@ public class TextCharacter {
             TextColor foregroundColor,
             TextColor backgroundColor,
             EnumSet<SGR> modifiers) {
+
+        this(character,
+                foregroundColor,
+                backgroundColor,
+                toModifierMask(modifiers));
+    }
+
+    private TextCharacter(
+            char character,
+            TextColor foregroundColor,
+            TextColor backgroundColor,
+            int modifierMask) {
         
         if(foregroundColor == null) {
             foregroundColor = TextColor.ANSI.DEFAULT;
@@ -105,7 +213,7 @@ public class TextCharacter {
         this.character = character;
         this.foregroundColor = foregroundColor;
         this.backgroundColor = backgroundColor;
-        this.modifiers = EnumSet.copyOf(modifiers);
+        this.modifierMask = modifierMask;
     }
 
     /**
@@ -137,7 +245,16 @@ public class TextCharacter {
      * @return Set of active SGR codes
      */
     public EnumSet<SGR> getModifiers() {
-        return EnumSet.copyOf(modifiers);
+        return toEnumSet(modifierMask);
+    }
+
+    /**
+     * Returns all active modifiers on this TextCharacter as a bit mask, where each {@code SGR} is represented by the
+     * bit {@code 1 << sgr.ordinal()}. Unlike {@code getModifiers()}, this doesn't create any new objects.
+     * @return Bit mask of active SGR codes
+     */
+    public int getModifierMask() {
+        return modifierMask;
     }
 
     /**
@@ -145,7 +262,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the bold modifier active
      */
     public boolean isBold() {
-        return modifiers.contains(SGR.BOLD);
+        return hasModifier(SGR.BOLD);
     }
 
     /**
@@ -153,7 +270,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the reverse modifier active
      */
     public boolean isReversed() {
-        return modifiers.contains(SGR.REVERSE);
+        return hasModifier(SGR.REVERSE);
     }
 
     /**
@@ -161,7 +278,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the underline modifier active
      */
     public boolean isUnderlined() {
-        return modifiers.contains(SGR.UNDERLINE);
+        return hasModifier(SGR.UNDERLINE);
     }
 
     /**
@@ -169,7 +286,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the blink modifier active
      */
     public boolean isBlinking() {
-        return modifiers.contains(SGR.BLINK);
+        return hasModifier(SGR.BLINK);
     }
 
     /**
@@ -177,7 +294,7 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the bordered modifier active
      */
     public boolean isBordered() {
-        return modifiers.contains(SGR.BORDERED);
+        return hasModifier(SGR.BORDERED);
     }
 
     /**
@@ -185,7 +302,11 @@ public class TextCharacter {
      * @return {@code true} if this TextCharacter has the crossed-out modifier active
      */
     public boolean isCrossedOut() {
-        return modifiers.contains(SGR.CROSSED_OUT);
+        return hasModifier(SGR.CROSSED_OUT);
+    }
+
+    private boolean hasModifier(SGR modifier) {
+        return (modifierMask & (1 << modifier.ordinal())) != 0;
     }
 
     /**
@@ -198,44 +319,43 @@ public class TextCharacter {
         if(this.character == character) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, foregroundColor, backgroundColor, modifierMask);
     }
 
     public TextCharacter withForegroundColor(TextColor foregroundColor) {
         if(this.foregroundColor == foregroundColor || this.foregroundColor.equals(foregroundColor)) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, foregroundColor, backgroundColor, modifierMask);
     }
 
     public TextCharacter withBackgroundColor(TextColor backgroundColor) {
         if(this.backgroundColor == backgroundColor || this.backgroundColor.equals(backgroundColor)) {
             return this;
         }
-        return new TextCharacter(character, foregroundColor, backgroundColor, modifiers);
+        return of(character, foregroundColor, backgroundColor, modifierMask);
     }
 
     public TextCharacter withModifier(SGR modifier) {
-        if(modifiers.contains(modifier)) {
+        if(hasModifier(modifier)) {
             return this;
         }
-        EnumSet<SGR> newSet = EnumSet.copyOf(this.modifiers);
-        newSet.add(modifier);
-        return new TextCharacter(character, foregroundColor, backgroundColor, newSet);
+        return of(character, foregroundColor, backgroundColor, modifierMask | (1 << modifier.ordinal()));
     }
 
     public TextCharacter withoutModifier(SGR modifier) {
-        if(!modifiers.contains(modifier)) {
+        if(!hasModifier(modifier)) {
             return this;
         }
-        EnumSet<SGR> newSet = EnumSet.copyOf(this.modifiers);
-        newSet.remove(modifier);
-        return new TextCharacter(character, foregroundColor, backgroundColor, newSet);
+        return of(character, foregroundColor, backgroundColor, modifierMask & ~(1 << modifier.ordinal()));
     }
 
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
     public boolean equals(Object obj) {
+        if(obj == this) {
+            return true;
+        }
         if(obj == null) {
             return false;
         }
@@ -246,27 +366,22 @@ public class TextCharacter {
         if(this.character != other.character) {
             return false;
         }
-        if(this.foregroundColor != other.foregroundColor && (this.foregroundColor == null || !this.foregroundColor.equals(other.foregroundColor))) {
+        if(this.modifierMask != other.modifierMask) {
             return false;
         }
-        if(this.backgroundColor != other.backgroundColor && (this.backgroundColor == null || !this.backgroundColor.equals(other.backgroundColor))) {
+        if(this.foregroundColor != other.foregroundColor && (this.foregroundColor == null || !this.foregroundColor.equals(other.foregroundColor))) {
             return false;
         }
-        return !(this.modifiers != other.modifiers && (this.modifiers == null || !this.modifiers.equals(other.modifiers)));
+        return !(this.backgroundColor != other.backgroundColor && (this.backgroundColor == null || !this.backgroundColor.equals(other.backgroundColor)));
     }
 
     @Override
     public int hashCode() {
-        int hash = 7;
-        hash = 37 * hash + this.character;
-        hash = 37 * hash + (this.foregroundColor != null ? this.foregroundColor.hashCode() : 0);
-        hash = 37 * hash + (this.backgroundColor != null ? this.backgroundColor.hashCode() : 0);
-        hash = 37 * hash + (this.modifiers != null ? this.modifiers.hashCode() : 0);
-        return hash;
+        return hash(character, foregroundColor, backgroundColor, modifierMask);
     }
 
     @Override
     public String toString() {
-        return "TextCharacter{" + "character=" + character + ", foregroundColor=" + foregroundColor + ", backgroundColor=" + backgroundColor + ", modifiers=" + modifiers + '}';
+        return "TextCharacter{" + "character=" + character + ", foregroundColor=" + foregroundColor + ", backgroundColor=" + backgroundColor + ", modifiers=" + getModifiers() + '}';
     }
 }
@@ -394,6 +394,14 @@ public interface TextColor {
                     COLOR_TABLE[colorIndex][2] & 0x000000ff);
         }
 
+        /**
+         * Returns the index of this color in the XTerm 256 color table
+         * @return Color index, between 0 and 255
+         */
+        public int getColorIndex() {
+            return colorIndex;
+        }
+
         @Override
         public byte[] getForegroundSGRSequence() {
             return ("38;5;" + colorIndex).getBytes();
@@ -278,11 +278,11 @@ public abstract class AbstractTextGraphics implements TextGraphics {
             setCharacter(
                     column + offset,
                     row,
-                    new TextCharacter(
+                    TextCharacter.of(
                             character,
                             foregroundColor,
                             backgroundColor,
-                            activeModifiers.clone()));
+                            activeModifiers));
             
             if(CJKUtils.isCharCJK(character)) {
                 //CJK characters are twice the normal characters in width, so next character position is two columns forward
@@ -333,6 +333,6 @@ public abstract class AbstractTextGraphics implements TextGraphics {
     }
 
     private TextCharacter newTextCharacter(char character) {
-        return new TextCharacter(character, foregroundColor, backgroundColor, activeModifiers);
+        return TextCharacter.of(character, foregroundColor, backgroundColor, activeModifiers);
     }
 }
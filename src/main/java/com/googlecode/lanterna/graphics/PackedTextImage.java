@@ -0,0 +1,440 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.graphics;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of TextImage that keeps the content as a flat array of {@code long}:s, one per character, instead of
+ * an array of TextCharacter objects. Each value encodes the character, the foreground and background color (as indexes
+ * into a table of all colors seen so far) and the modifiers as a bit mask, so the whole image is a single object no
+ * matter how large it is. Comparing two characters is a primitive compare and copying between two PackedTextImage:s is
+ * done with {@code System.arraycopy}.
+ * <p/>
+ * The downside is that {@code getCharacterAt(..)} needs to look up a TextCharacter from the packed value, so this
+ * is mostly useful for large buffers that are compared and copied more often than they are read.
+ * <p/>
+ * The color table is shared by all images and never shrinks, so it's limited to a few thousand colors. Once it's full,
+ * characters with a color that isn't in the table are packed with a placeholder instead of the color index and each
+ * image keeps those characters on the side. This keeps programs that draw with a great number of RGB colors working,
+ * but characters with such colors are slower to write, read and compare than the ones with colors from the table.
+ * @author martin
+ */
+public class PackedTextImage implements TextImage {
+    private static final int CHARACTER_BITS = 16;
+    private static final int COLOR_BITS = 20;
+    private static final int FOREGROUND_SHIFT = CHARACTER_BITS;
+    private static final int BACKGROUND_SHIFT = FOREGROUND_SHIFT + COLOR_BITS;
+    private static final int MODIFIERS_SHIFT = BACKGROUND_SHIFT + COLOR_BITS;
+    private static final long CHARACTER_MASK = (1L << CHARACTER_BITS) - 1;
+    private static final long COLOR_MASK = (1L << COLOR_BITS) - 1;
+    private static final int MAX_INDEXED_COLORS = 4096;
+    //Used instead of the color index for colors that didn't fit in the color table
+    private static final int UNINDEXED_COLOR = (int)COLOR_MASK;
+
+    //Colors are shared between all PackedTextImage:s so that packed values can be copied from one image to another
+    private static final Map<TextColor, Integer> COLOR_INDEX = new ConcurrentHashMap<TextColor, Integer>();
+    private static volatile TextColor[] colorTable = new TextColor[64];
+    private static volatile boolean colorTableFull = false;
+    private static int colorCount = 0;
+
+    static {
+        for(TextColor color: TextColor.ANSI.values()) {
+            indexOf(color);
+        }
+    }
+
+    private final TerminalSize size;
+    private final int columns;
+    private final int rows;
+    private final long[] buffer;
+    //Characters with a color that isn't in the color table, by position in the buffer
+    private final Map<Integer, TextCharacter> unindexedCharacters;
+
+    /**
+     * Creates a new PackedTextImage with the specified size and fills it initially with space characters using the
+     * default foreground and background color
+     * @param size Size to make the image
+     */
+    public PackedTextImage(TerminalSize size) {
+        this(size, TextCharacter.DEFAULT_CHARACTER);
+    }
+
+    /**
+     * Creates a new PackedTextImage with a given size and a TextCharacter to initially fill it with
+     * @param size Size of the image
+     * @param initialContent What character to set as the initial content
+     */
+    public PackedTextImage(TerminalSize size, TextCharacter initialContent) {
+        this(size, null, initialContent);
+    }
+
+    /**
+     * Creates a new PackedTextImage by copying the top-left region of another PackedTextImage. If the area to be
+     * copied to larger than the source image, a filler character is used.
+     * @param size Size to create the new PackedTextImage as (and size to copy from the source)
+     * @param toCopy Image to copy initial data from, can be {@code null}
+     * @param initialContent Filler character to use if the source image is smaller than the requested size
+     */
+    private PackedTextImage(TerminalSize size, PackedTextImage toCopy, TextCharacter initialContent) {
+        if(size == null || initialContent == null) {
+            throw new IllegalArgumentException("Cannot create PackedTextImage with null " +
+                    (size == null ? "size" : "filler"));
+        }
+        this.size = size;
+        this.columns = size.getColumns();
+        this.rows = size.getRows();
+        this.buffer = new long[columns * rows];
+        this.unindexedCharacters = new ConcurrentHashMap<Integer, TextCharacter>();
+
+        long filler = pack(initialContent);
+        for(int y = 0; y < rows; y++) {
+            int copied = 0;
+            if(toCopy != null && y < toCopy.rows) {
+                copied = Math.min(columns, toCopy.columns);
+                System.arraycopy(toCopy.buffer, y * toCopy.columns, buffer, y * columns, copied);
+                copyUnindexedCharacters(toCopy, y, 0, this, y, 0, copied);
+            }
+            for(int x = copied; x < columns; x++) {
+                store(y * columns + x, filler, initialContent);
+            }
+        }
+    }
+
+    /**
+     * Encodes a TextCharacter into the {@code long} representation used by this class. If one of the colors of the
+     * character couldn't be added to the color table because it's full, the value has a placeholder instead of the
+     * color index and can't be decoded by {@code unpack(..)}, see {@code isUnpackable(..)}.
+     * @param character Character to encode
+     * @return Packed representation of the character
+     */
+    public static long pack(TextCharacter character) {
+        long modifiers = character.getModifierMask();
+        return (character.getCharacter() & CHARACTER_MASK)
+                | ((long)indexOf(character.getForegroundColor()) << FOREGROUND_SHIFT)
+                | ((long)indexOf(character.getBackgroundColor()) << BACKGROUND_SHIFT)
+                | (modifiers << MODIFIERS_SHIFT);
+    }
+
+    /**
+     * Decodes a value from the {@code long} representation used by this class back into a TextCharacter
+     * @param packedCharacter Packed representation of the character
+     * @return TextCharacter the value represents
+     * @throws IllegalArgumentException If the value has a color that isn't in the color table
+     */
+    public static TextCharacter unpack(long packedCharacter) {
+        if(!isUnpackable(packedCharacter)) {
+            throw new IllegalArgumentException("Cannot unpack a character with a color that isn't in the color table");
+        }
+        TextColor[] colors = colorTable;
+        return TextCharacter.of(
+                (char)(packedCharacter & CHARACTER_MASK),
+                colors[(int)((packedCharacter >>> FOREGROUND_SHIFT) & COLOR_MASK)],
+                colors[(int)((packedCharacter >>> BACKGROUND_SHIFT) & COLOR_MASK)],
+                (int)(packedCharacter >>> MODIFIERS_SHIFT));
+    }
+
+    /**
+     * Checks if a packed value can be decoded on its own, which is the case unless it has a color that isn't in the
+     * color table. Characters with such colors are stored on the side by each PackedTextImage.
+     * @param packedCharacter Packed representation of a character
+     * @return {@code true} if {@code unpack(..)} can decode the value
+     */
+    public static boolean isUnpackable(long packedCharacter) {
+        return ((packedCharacter >>> FOREGROUND_SHIFT) & COLOR_MASK) != UNINDEXED_COLOR &&
+                ((packedCharacter >>> BACKGROUND_SHIFT) & COLOR_MASK) != UNINDEXED_COLOR;
+    }
+
+    private static int indexOf(TextColor color) {
+        Integer index = COLOR_INDEX.get(color);
+        if(index != null) {
+            return index;
+        }
+        if(colorTableFull) {
+            return UNINDEXED_COLOR;
+        }
+        synchronized(COLOR_INDEX) {
+            index = COLOR_INDEX.get(color);
+            if(index != null) {
+                return index;
+            }
+            if(colorCount == MAX_INDEXED_COLORS) {
+                colorTableFull = true;
+                return UNINDEXED_COLOR;
+            }
+            TextColor[] colors = colorTable;
+            if(colorCount == colors.length) {
+                TextColor[] newColors = new TextColor[colors.length * 2];
+                System.arraycopy(colors, 0, newColors, 0, colors.length);
+                colors = newColors;
+            }
+            //Publish the color in the table before the index, so that anyone who can see the index can resolve it
+            colors[colorCount] = color;
+            colorTable = colors;
+            COLOR_INDEX.put(color, colorCount);
+            return colorCount++;
+        }
+    }
+
+    @Override
+    public TerminalSize getSize() {
+        return size;
+    }
+
+    @Override
+    public void setAll(TextCharacter character) {
+        if(character == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setAll(..) with null character");
+        }
+        long packed = pack(character);
+        unindexedCharacters.clear();
+        for(int i = 0; i < buffer.length; i++) {
+            store(i, packed, character);
+        }
+    }
+
+    @Override
+    public PackedTextImage resize(TerminalSize newSize, TextCharacter filler) {
+        if(newSize == null || filler == null) {
+            throw new IllegalArgumentException("Cannot resize PackedTextImage with null " +
+                    (newSize == null ? "newSize" : "filler"));
+        }
+        if(newSize.equals(size)) {
+            return this;
+        }
+        return new PackedTextImage(newSize, this, filler);
+    }
+
+    @Override
+    public void setCharacterAt(TerminalPosition position, TextCharacter character) {
+        if(position == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setCharacterAt(..) with null position");
+        }
+        setCharacterAt(position.getColumn(), position.getRow(), character);
+    }
+
+    @Override
+    public void setCharacterAt(int column, int row, TextCharacter character) {
+        if(character == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.setCharacterAt(..) with null character");
+        }
+        if(column < 0 || row < 0 || row >= rows || column >= columns) {
+            return;
+        }
+        store(row * columns + column, pack(character), character);
+    }
+
+    private void store(int index, long packed, TextCharacter character) {
+        buffer[index] = packed;
+        if(!isUnpackable(packed)) {
+            unindexedCharacters.put(index, character);
+        }
+        else if(!unindexedCharacters.isEmpty()) {
+            unindexedCharacters.remove(index);
+        }
+    }
+
+    private TextCharacter characterAt(int index) {
+        long packed = buffer[index];
+        return isUnpackable(packed) ? unpack(packed) : unindexedCharacters.get(index);
+    }
+
+    @Override
+    public TextCharacter getCharacterAt(TerminalPosition position) {
+        if(position == null) {
+            throw new IllegalArgumentException("Cannot call PackedTextImage.getCharacterAt(..) with null position");
+        }
+        return getCharacterAt(position.getColumn(), position.getRow());
+    }
+
+    @Override
+    public TextCharacter getCharacterAt(int column, int row) {
+        if(column < 0 || row < 0 || row >= rows || column >= columns) {
+            return null;
+        }
+        return characterAt(row * columns + column);
+    }
+
+    /**
+     * Returns the packed representation of the character at a particular position in this image. Unlike
+     * {@code getCharacterAt(..)}, this method doesn't do any bounds checking so the coordinates must be inside the
+     * image.
+     * @param column Column coordinate of the character
+     * @param row Row coordinate of the character
+     * @return Packed value stored at the specified position
+     */
+    public long getPackedCharacterAt(int column, int row) {
+        return buffer[row * columns + column];
+    }
+
+    /**
+     * Checks if this image and another PackedTextImage hold the same character at a particular position. This is
+     * normally a comparison of the packed values, unless the character has a color that isn't in the color table. The
+     * position must be inside both images and, like {@code getPackedCharacterAt(..)}, isn't bounds checked.
+     * @param column Column coordinate of the character
+     * @param row Row coordinate of the character
+     * @param other Image to compare with
+     * @return {@code true} if both images have the same character at the position
+     */
+    public boolean isSameCharacterAt(int column, int row, PackedTextImage other) {
+        long packed = buffer[row * columns + column];
+        if(packed != other.buffer[row * other.columns + column]) {
+            return false;
+        }
+        return isUnpackable(packed) ||
+                characterAt(row * columns + column).equals(other.characterAt(row * other.columns + column));
+    }
+
+    @Override
+    public void copyTo(TextImage destination) {
+        copyTo(destination, 0, rows, 0, columns, 0, 0);
+    }
+
+    @Override
+    public void copyTo(
+            TextImage destination,
+            int startRowIndex,
+            int rows,
+            int startColumnIndex,
+            int columns,
+            int destinationRowOffset,
+            int destinationColumnOffset) {
+
+        // If the source image position is negative, offset the whole image
+        if(startColumnIndex < 0) {
+            destinationColumnOffset += -startColumnIndex;
+            columns += startColumnIndex;
+            startColumnIndex = 0;
+        }
+        if(startRowIndex < 0) {
+            destinationRowOffset += -startRowIndex;
+            rows += startRowIndex;
+            startRowIndex = 0;
+        }
+        //Make sure we can't copy more than is available
+        columns = Math.min(this.columns - startColumnIndex, columns);
+        rows = Math.min(this.rows - startRowIndex, rows);
+
+        //Adjust target lengths as well
+        columns = Math.min(destination.getSize().getColumns() - destinationColumnOffset, columns);
+        rows = Math.min(destination.getSize().getRows() - destinationRowOffset, rows);
+
+        if(columns <= 0 || rows <= 0) {
+            return;
+        }
+
+        if(destination instanceof PackedTextImage) {
+            PackedTextImage packedDestination = (PackedTextImage)destination;
+            for(int y = 0; y < rows; y++) {
+                System.arraycopy(
+                        buffer,
+                        (startRowIndex + y) * this.columns + startColumnIndex,
+                        packedDestination.buffer,
+                        (destinationRowOffset + y) * packedDestination.columns + destinationColumnOffset,
+                        columns);
+                copyUnindexedCharacters(this, startRowIndex + y, startColumnIndex,
+                        packedDestination, destinationRowOffset + y, destinationColumnOffset, columns);
+            }
+        }
+        else {
+            //Manually copy character by character
+            for(int y = startRowIndex; y < startRowIndex + rows; y++) {
+                for(int x = startColumnIndex; x < startColumnIndex + columns; x++) {
+                    destination.setCharacterAt(
+                            x - startColumnIndex + destinationColumnOffset,
+                            y - startRowIndex + destinationRowOffset,
+                            characterAt(y * this.columns + x));
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the characters kept on the side along with a span of packed values that has been copied with
+     * {@code System.arraycopy}
+     */
+    private static void copyUnindexedCharacters(
+            PackedTextImage source, int sourceRow, int sourceColumn,
+            PackedTextImage destination, int destinationRow, int destinationColumn,
+            int count) {
+
+        if(source.unindexedCharacters.isEmpty() && destination.unindexedCharacters.isEmpty()) {
+            return;
+        }
+        int sourceIndex = sourceRow * source.columns + sourceColumn;
+        int destinationIndex = destinationRow * destination.columns + destinationColumn;
+        if(source == destination && sourceIndex < destinationIndex) {
+            //Overlapping copy within the same image, go backwards so nothing is overwritten before it's copied
+            for(int i = count - 1; i >= 0; i--) {
+                copyUnindexedCharacter(source, sourceIndex + i, destination, destinationIndex + i);
+            }
+        }
+        else {
+            for(int i = 0; i < count; i++) {
+                copyUnindexedCharacter(source, sourceIndex + i, destination, destinationIndex + i);
+            }
+        }
+    }
+
+    private static void copyUnindexedCharacter(
+            PackedTextImage source, int sourceIndex, PackedTextImage destination, int destinationIndex) {
+
+        if(isUnpackable(destination.buffer[destinationIndex])) {
+            destination.unindexedCharacters.remove(destinationIndex);
+        }
+        else {
+            destination.unindexedCharacters.put(destinationIndex, source.unindexedCharacters.get(sourceIndex));
+        }
+    }
+
+    @Override
+    public TextGraphics newTextGraphics() {
+        return new AbstractTextGraphics() {
+            @Override
+            public TextGraphics setCharacter(int columnIndex, int rowIndex, TextCharacter textCharacter) {
+                PackedTextImage.this.setCharacterAt(columnIndex, rowIndex, textCharacter);
+                return this;
+            }
+
+            @Override
+            public TerminalSize getSize() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(rows*(columns+1)+50);
+        sb.append('{').append(columns).append('x').append(rows).append('}').append('\n');
+        for(int y = 0; y < rows; y++) {
+            for(int x = 0; x < columns; x++) {
+                sb.append((char)(buffer[y * columns + x] & CHARACTER_MASK));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -48,6 +48,10 @@ public abstract class AbstractBasePane implements BasePane {
 
     protected void invalidate() {
         invalid = true;
+        TextGUI textGUI = getTextGUI();
+        if(textGUI instanceof AbstractTextGUI) {
+            ((AbstractTextGUI)textGUI).wakeUpGUIThread();
+        }
     }
 
     @Override
@@ -95,6 +95,10 @@ public abstract class AbstractComponent<T extends Component> implements Componen
 
     protected void invalidate() {
         invalid = true;
+        TextGUI textGUI = getTextGUI();
+        if(textGUI instanceof AbstractTextGUI) {
+            ((AbstractTextGUI)textGUI).wakeUpGUIThread();
+        }
     }
 
     @Override
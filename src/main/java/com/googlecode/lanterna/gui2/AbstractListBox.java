@@ -100,14 +100,14 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
                     if(items.isEmpty() || selectedIndex == items.size() - 1) {
                         return Result.MOVE_FOCUS_DOWN;
                     }
-                    selectedIndex++;
+                    selectedIndex = Math.min(selectedIndex + keyStroke.getRepeatCount(), items.size() - 1);
                     return Result.HANDLED;
 
                 case ArrowUp:
                     if(items.isEmpty() || selectedIndex == 0) {
                         return Result.MOVE_FOCUS_UP;
                     }
-                    selectedIndex--;
+                    selectedIndex = Math.max(selectedIndex - keyStroke.getRepeatCount(), 0);
                     return Result.HANDLED;
 
                 case Home:
@@ -220,11 +220,11 @@ public abstract class AbstractListBox<V, T extends AbstractListBox<V, T>> extend
         public Result handleKeyStroke(AbstractListBox<V, T> listBox, KeyStroke keyStroke) {
             switch (keyStroke.getKeyType()) {
                 case PageUp:
-                    listBox.setSelectedIndex(listBox.getSelectedIndex() - pageSize);
+                    listBox.setSelectedIndex(listBox.getSelectedIndex() - pageSize * keyStroke.getRepeatCount());
                     return Result.HANDLED;
 
                 case PageDown:
-                    listBox.setSelectedIndex(listBox.getSelectedIndex() + pageSize);
+                    listBox.setSelectedIndex(listBox.getSelectedIndex() + pageSize * keyStroke.getRepeatCount());
                     return Result.HANDLED;
 
                 default:
@@ -19,11 +19,19 @@
 package com.googlecode.lanterna.gui2;
 
 import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.graphics.PropertiesTheme;
 import com.googlecode.lanterna.graphics.Theme;
+import com.googlecode.lanterna.input.InputProvider;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.ObservableInputProvider;
+import com.googlecode.lanterna.input.PasteAction;
 import com.googlecode.lanterna.screen.Screen;
+import com.googlecode.lanterna.screen.TerminalScreen;
+import com.googlecode.lanterna.screen.VirtualScreen;
+import com.googlecode.lanterna.terminal.ResizeListener;
+import com.googlecode.lanterna.terminal.Terminal;
 
 import java.io.EOFException;
 import java.io.FileInputStream;
@@ -47,6 +55,9 @@ public abstract class AbstractTextGUI implements TextGUI {
     private boolean dirty;
     private TextGUIThread textGUIThread;
     private Theme guiTheme;
+    private boolean inputObservable;
+    private boolean keyRepeatCoalescing;
+    private KeyStroke pendingKeyStroke;
 
     protected AbstractTextGUI(TextGUIThreadFactory textGUIThreadFactory, Screen screen) {
         if(screen == null) {
@@ -58,6 +69,39 @@ public abstract class AbstractTextGUI implements TextGUI {
         this.dirty = false;
         this.guiTheme = new PropertiesTheme(loadDefaultThemeProperties());
         this.textGUIThread = textGUIThreadFactory.createTextGUIThread(this);
+        this.inputObservable = false;
+        this.keyRepeatCoalescing = false;
+        this.pendingKeyStroke = null;
+        listenToTerminal(screen);
+    }
+
+    /**
+     * Looks for the terminal behind the screen and makes it wake up the GUI thread when the terminal is resized or, if
+     * the terminal supports it, when new input arrives
+     */
+    private void listenToTerminal(Screen screen) {
+        while(screen instanceof VirtualScreen) {
+            screen = ((VirtualScreen)screen).getRealScreen();
+        }
+        if(!(screen instanceof TerminalScreen)) {
+            return;
+        }
+        Terminal terminal = ((TerminalScreen)screen).getTerminal();
+        terminal.addResizeListener(new ResizeListener() {
+            @Override
+            public void onResized(Terminal terminal, TerminalSize newSize) {
+                wakeUpGUIThread();
+            }
+        });
+        if(terminal instanceof ObservableInputProvider) {
+            ((ObservableInputProvider)terminal).addInputListener(new ObservableInputProvider.Listener() {
+                @Override
+                public void onInputAvailable(InputProvider inputProvider) {
+                    wakeUpGUIThread();
+                }
+            });
+            inputObservable = true;
+        }
     }
 
     private static Properties loadDefaultThemeProperties() {
@@ -88,7 +132,7 @@ public abstract class AbstractTextGUI implements TextGUI {
     @Override
     public synchronized boolean processInput() throws IOException {
         boolean gotInput = false;
-        KeyStroke keyStroke = readKeyStroke();
+        KeyStroke keyStroke = coalesceKeyRepeats(pendingKeyStroke != null ? pendingKeyStroke : readKeyStroke());
         if(keyStroke != null) {
             gotInput = true;
             do {
@@ -99,13 +143,88 @@ public abstract class AbstractTextGUI implements TextGUI {
                 if(!handled) {
                     handled = fireUnhandledKeyStroke(keyStroke);
                 }
+                if(!handled && keyStroke instanceof PasteAction) {
+                    handled = handlePasteAsKeyStrokes((PasteAction)keyStroke);
+                }
                 dirty = handled || dirty;
-                keyStroke = pollInput();
+                keyStroke = coalesceKeyRepeats(pendingKeyStroke != null ? pendingKeyStroke : pollInput());
             } while(keyStroke != null);
         }
         return gotInput;
     }
 
+    /**
+     * If key repeat coalescing is enabled and the key stroke is a navigation key, drains any identical key strokes
+     * queued up behind it and returns a single key stroke with the total as its repeat count. The first key stroke that
+     * didn't match is kept for the next call.
+     */
+    private KeyStroke coalesceKeyRepeats(KeyStroke keyStroke) throws IOException {
+        pendingKeyStroke = null;
+        if(keyStroke == null || !keyRepeatCoalescing || !isCoalescable(keyStroke)) {
+            return keyStroke;
+        }
+        int repeatCount = keyStroke.getRepeatCount();
+        KeyStroke next = pollInput();
+        while(next != null && next.equals(keyStroke)) {
+            repeatCount += next.getRepeatCount();
+            next = pollInput();
+        }
+        pendingKeyStroke = next;
+        if(repeatCount == keyStroke.getRepeatCount()) {
+            return keyStroke;
+        }
+        return new KeyStroke(keyStroke.getKeyType(), keyStroke.isCtrlDown(), keyStroke.isAltDown(), repeatCount);
+    }
+
+    private static boolean isCoalescable(KeyStroke keyStroke) {
+        if(keyStroke.getClass() != KeyStroke.class) {
+            return false;
+        }
+        switch(keyStroke.getKeyType()) {
+            case ArrowUp:
+            case ArrowDown:
+            case ArrowLeft:
+            case ArrowRight:
+            case PageUp:
+            case PageDown:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Feeds the text of a paste that nothing handled to the GUI one key stroke at a time, like it would have arrived
+     * without bracketed paste mode, so that components that don't know about pastes still get the text
+     */
+    private boolean handlePasteAsKeyStrokes(PasteAction pasteAction) {
+        boolean handled = false;
+        String text = pasteAction.getText();
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            KeyStroke keyStroke;
+            if(c == '\n') {
+                keyStroke = new KeyStroke(KeyType.Enter);
+            }
+            else if(c == '\t') {
+                keyStroke = new KeyStroke(KeyType.Tab);
+            }
+            else if(Character.isISOControl(c)) {
+                continue;
+            }
+            else {
+                keyStroke = new KeyStroke(c, false, false);
+            }
+            if(handleInput(keyStroke)) {
+                handled = true;
+            }
+            else {
+                handled = fireUnhandledKeyStroke(keyStroke) || handled;
+            }
+        }
+        return handled;
+    }
+
     @Override
     public void setTheme(Theme theme) {
         this.guiTheme = theme;
@@ -147,6 +266,28 @@ public abstract class AbstractTextGUI implements TextGUI {
     public boolean isBlockingIO() {
         return blockingIO;
     }
+
+    /**
+     * Enables or disables key repeat coalescing. When enabled, a run of identical arrow key or page up/down key strokes
+     * waiting in the input queue, like the burst a terminal sends while such a key is held down, is handed to the GUI
+     * as a single key stroke whose {@code getRepeatCount()} tells how many presses it stands for. This saves handling
+     * and invalidating for every single repeat, but components that don't look at the repeat count will only move one
+     * step for the whole run, which is why it's disabled by default. The built-in list boxes and text boxes support it;
+     * a run that reaches the end of a list box stops there instead of moving the focus on to the next component.
+     * @param keyRepeatCoalescing {@code true} to merge repeated navigation keys, {@code false} to deliver them one by one
+     */
+    public void setKeyRepeatCoalescing(boolean keyRepeatCoalescing) {
+        this.keyRepeatCoalescing = keyRepeatCoalescing;
+    }
+
+    /**
+     * Returns {@code true} if repeated navigation key strokes are merged into one, see
+     * {@code setKeyRepeatCoalescing(boolean)}
+     * @return {@code true} if key repeat coalescing is enabled
+     */
+    public boolean isKeyRepeatCoalescing() {
+        return keyRepeatCoalescing;
+    }
     
     protected boolean fireUnhandledKeyStroke(KeyStroke keyStroke) {
         boolean handled = false;
@@ -158,6 +299,24 @@ public abstract class AbstractTextGUI implements TextGUI {
 
     protected void invalidate() {
         dirty = true;
+        wakeUpGUIThread();
+    }
+
+    /**
+     * Returns {@code true} if the GUI thread will be woken up when new input arrives, so it doesn't need to poll for it
+     * @return {@code true} if new input wakes up the GUI thread
+     */
+    boolean isInputObservable() {
+        return inputObservable;
+    }
+
+    /**
+     * Tells the GUI thread there is something for it to do, if it's waiting for events
+     */
+    void wakeUpGUIThread() {
+        if(textGUIThread instanceof AbstractTextGUIThread) {
+            ((AbstractTextGUIThread)textGUIThread).wakeUp();
+        }
     }
 
     protected abstract void drawGUI(TextGUIGraphics graphics);
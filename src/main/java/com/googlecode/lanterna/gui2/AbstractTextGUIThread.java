@@ -13,6 +13,8 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
     protected final TextGUI textGUI;
     protected final Queue<Runnable> customTasks;
     protected ExceptionHandler exceptionHandler;
+    private final Object wakeUpMutex;
+    private boolean wakeUpRequested;
 
     public AbstractTextGUIThread(TextGUI textGUI) {
         this.exceptionHandler = new ExceptionHandler() {
@@ -30,11 +32,44 @@ public abstract class AbstractTextGUIThread implements TextGUIThread {
         };
         this.textGUI = textGUI;
         this.customTasks = new LinkedBlockingQueue<Runnable>();
+        this.wakeUpMutex = new Object();
+        this.wakeUpRequested = false;
     }
 
     @Override
     public void invokeLater(Runnable runnable) throws IllegalStateException {
         customTasks.add(runnable);
+        wakeUp();
+    }
+
+    /**
+     * Wakes up the GUI thread if it's waiting in {@code waitForEvents()}, or makes the next call to it return right
+     * away if it isn't. This is called when new input has arrived, when a task has been scheduled and when the GUI has
+     * been invalidated.
+     */
+    void wakeUp() {
+        synchronized(wakeUpMutex) {
+            wakeUpRequested = true;
+            wakeUpMutex.notifyAll();
+        }
+    }
+
+    /**
+     * Parks the calling thread until there is something for the GUI thread to do, which is when {@code wakeUp()} is
+     * called. If the TextGUI can't tell when new input arrives, this will only wait for 1 millisecond so the input is
+     * polled for again shortly.
+     */
+    protected void waitForEvents() {
+        boolean inputObservable = textGUI instanceof AbstractTextGUI && ((AbstractTextGUI)textGUI).isInputObservable();
+        synchronized(wakeUpMutex) {
+            try {
+                if(!wakeUpRequested) {
+                    wakeUpMutex.wait(inputObservable ? 0 : 1);
+                }
+            }
+            catch(InterruptedException ignored) {}
+            wakeUpRequested = false;
+        }
     }
 
     @Override
@@ -263,31 +263,48 @@ public class MultiWindowTextGUI extends AbstractTextGUI implements WindowBasedTe
         window.setTextGUI(null);
         windowManager.onRemoved(this, window, windows);
         invalidate();
+        //Wake up any thread in waitForWindowToClose(..)
+        notifyAll();
         return this;
     }
 
     @Override
     public void waitForWindowToClose(Window window) {
-        while(window.getTextGUI() != null) {
-            boolean sleep = true;
-            TextGUIThread guiThread = getGUIThread();
-            if(Thread.currentThread() == guiThread.getThread()) {
-                try {
-                    sleep = !guiThread.processEventsAndUpdate();
-                }
-                catch(EOFException ignore) {
-                    //The GUI has closed so allow exit
-                    break;
-                }
-                catch(IOException e) {
-                    throw new RuntimeException("Unexpected IOException while waiting for window to close", e);
+        TextGUIThread guiThread = getGUIThread();
+        if(Thread.currentThread() != guiThread.getThread()) {
+            //Someone else is running the GUI, wait for the window to be removed
+            synchronized(this) {
+                while(window.getTextGUI() != null) {
+                    try {
+                        wait();
+                    }
+                    catch(InterruptedException ignore) {}
                 }
             }
-            if(sleep) {
-                try {
-                    Thread.sleep(1);
+            return;
+        }
+        while(window.getTextGUI() != null) {
+            boolean sleep;
+            try {
+                sleep = !guiThread.processEventsAndUpdate();
+            }
+            catch(EOFException ignore) {
+                //The GUI has closed so allow exit
+                break;
+            }
+            catch(IOException e) {
+                throw new RuntimeException("Unexpected IOException while waiting for window to close", e);
+            }
+            if(sleep && window.getTextGUI() != null) {
+                if(guiThread instanceof AbstractTextGUIThread) {
+                    ((AbstractTextGUIThread)guiThread).waitForEvents();
+                }
+                else {
+                    try {
+                        Thread.sleep(1);
+                    }
+                    catch(InterruptedException ignore) {}
                 }
-                catch(InterruptedException ignore) {}
             }
         }
     }
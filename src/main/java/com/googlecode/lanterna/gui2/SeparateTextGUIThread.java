@@ -59,6 +59,7 @@ public class SeparateTextGUIThread extends AbstractTextGUIThread implements Asyn
         }
 
         state = State.STOPPING;
+        wakeUp();
     }
 
     @Override
@@ -100,10 +101,7 @@ public class SeparateTextGUIThread extends AbstractTextGUIThread implements Asyn
             while(state == State.STARTED) {
                 try {
                     if (!processEventsAndUpdate()) {
-                        try {
-                            Thread.sleep(1);
-                        }
-                        catch(InterruptedException ignored) {}
+                        waitForEvents();
                     }
                 }
                 catch(EOFException e) {
@@ -22,6 +22,7 @@ import com.googlecode.lanterna.CJKUtils;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.PasteAction;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -319,35 +320,50 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 }
                 return Result.HANDLED;
             case ArrowLeft:
-                if(caretPosition.getColumn() > 0) {
-                    caretPosition = caretPosition.withRelativeColumn(-1);
-                }
-                else if(style == Style.MULTI_LINE && caretPosition.getRow() > 0) {
-                    caretPosition = caretPosition.withRelativeRow(-1);
-                    caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
-                }
-                else if(horizontalFocusSwitching) {
-                    return Result.MOVE_FOCUS_LEFT;
+                //Only switch focus if the caret couldn't move at all, a repeated key stops at the start of the text
+                for(int i = 0; i < keyStroke.getRepeatCount(); i++) {
+                    if(caretPosition.getColumn() > 0) {
+                        caretPosition = caretPosition.withRelativeColumn(-1);
+                    }
+                    else if(style == Style.MULTI_LINE && caretPosition.getRow() > 0) {
+                        caretPosition = caretPosition.withRelativeRow(-1);
+                        caretPosition = caretPosition.withColumn(lines.get(caretPosition.getRow()).length());
+                    }
+                    else if(i == 0 && horizontalFocusSwitching) {
+                        return Result.MOVE_FOCUS_LEFT;
+                    }
+                    else {
+                        break;
+                    }
                 }
                 return Result.HANDLED;
             case ArrowRight:
-                if(caretPosition.getColumn() < lines.get(caretPosition.getRow()).length()) {
-                    caretPosition = caretPosition.withRelativeColumn(1);
-                }
-                else if(style == Style.MULTI_LINE && caretPosition.getRow() < lines.size() - 1) {
-                    caretPosition = caretPosition.withRelativeRow(1);
-                    caretPosition = caretPosition.withColumn(0);
-                }
-                else if(horizontalFocusSwitching) {
-                    return Result.MOVE_FOCUS_RIGHT;
+                for(int i = 0; i < keyStroke.getRepeatCount(); i++) {
+                    if(caretPosition.getColumn() < lines.get(caretPosition.getRow()).length()) {
+                        caretPosition = caretPosition.withRelativeColumn(1);
+                    }
+                    else if(style == Style.MULTI_LINE && caretPosition.getRow() < lines.size() - 1) {
+                        caretPosition = caretPosition.withRelativeRow(1);
+                        caretPosition = caretPosition.withColumn(0);
+                    }
+                    else if(i == 0 && horizontalFocusSwitching) {
+                        return Result.MOVE_FOCUS_RIGHT;
+                    }
+                    else {
+                        break;
+                    }
                 }
                 return Result.HANDLED;
             case ArrowUp:
                 if(caretPosition.getRow() > 0) {
-                    caretPosition = caretPosition.withRelativeRow(-1);
-                    line = lines.get(caretPosition.getRow());
-                    if(caretPosition.getColumn() > line.length()) {
-                        caretPosition = caretPosition.withColumn(line.length());
+                    //Step one line at a time, so the caret column is cut down by short lines on the way like it would be
+                    //if the key strokes had arrived separately
+                    for(int i = 0; i < keyStroke.getRepeatCount() && caretPosition.getRow() > 0; i++) {
+                        caretPosition = caretPosition.withRelativeRow(-1);
+                        line = lines.get(caretPosition.getRow());
+                        if(caretPosition.getColumn() > line.length()) {
+                            caretPosition = caretPosition.withColumn(line.length());
+                        }
                     }
                 }
                 else if(verticalFocusSwitching) {
@@ -356,10 +372,12 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 return Result.HANDLED;
             case ArrowDown:
                 if(caretPosition.getRow() < lines.size() - 1) {
-                    caretPosition = caretPosition.withRelativeRow(1);
-                    line = lines.get(caretPosition.getRow());
-                    if(caretPosition.getColumn() > line.length()) {
-                        caretPosition = caretPosition.withColumn(line.length());
+                    for(int i = 0; i < keyStroke.getRepeatCount() && caretPosition.getRow() < lines.size() - 1; i++) {
+                        caretPosition = caretPosition.withRelativeRow(1);
+                        line = lines.get(caretPosition.getRow());
+                        if(caretPosition.getColumn() > line.length()) {
+                            caretPosition = caretPosition.withColumn(line.length());
+                        }
                     }
                 }
                 else if(verticalFocusSwitching) {
@@ -385,22 +403,101 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 caretPosition = caretPosition.withColumn(0);
                 return Result.HANDLED;
             case PageDown:
-                caretPosition = caretPosition.withRelativeRow(getSize().getRows());
+                caretPosition = caretPosition.withRelativeRow(getSize().getRows() * keyStroke.getRepeatCount());
                 if(caretPosition.getRow() > lines.size() - 1) {
                     caretPosition = caretPosition.withRow(lines.size() - 1);
                 }
                 return Result.HANDLED;
             case PageUp:
-                caretPosition = caretPosition.withRelativeRow(-getSize().getRows());
+                caretPosition = caretPosition.withRelativeRow(-getSize().getRows() * keyStroke.getRepeatCount());
                 if(caretPosition.getRow() < 0) {
                     caretPosition = caretPosition.withRow(0);
                 }
                 return Result.HANDLED;
+            case Paste:
+                if(keyStroke instanceof PasteAction) {
+                    insertText(((PasteAction)keyStroke).getText());
+                    return Result.HANDLED;
+                }
+                break;
             default:
         }
         return super.handleKeyStroke(keyStroke);
     }
 
+    /**
+     * Inserts a whole block of text at the caret, the way a paste is handled. The result is the same as typing the
+     * text character by character (line breaks start new lines in a multi-line TextBox, a single-line TextBox only
+     * takes the first line) but the lines are split and inserted in one go. If any of the resulting lines doesn't
+     * pass validation, nothing is inserted.
+     */
+    private void insertText(String text) {
+        List<String> pastedLines = new ArrayList<String>();
+        StringBuilder bob = new StringBuilder();
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\n') {
+                if(style == Style.SINGLE_LINE) {
+                    break;
+                }
+                pastedLines.add(bob.toString());
+                bob.setLength(0);
+            }
+            else if(!Character.isISOControl(c)) {
+                bob.append(c);
+            }
+        }
+        pastedLines.add(bob.toString());
+
+        String line = lines.get(caretPosition.getRow());
+        String beforeCaret = line.substring(0, caretPosition.getColumn());
+        String afterCaret = line.substring(caretPosition.getColumn());
+        int lastIndex = pastedLines.size() - 1;
+        if(maxLineLength != -1) {
+            //Like when typing, a line can only grow up to one character less than the max line length
+            for(int i = 0; i <= lastIndex; i++) {
+                int room = maxLineLength - 1;
+                if(i == 0) {
+                    room -= beforeCaret.length();
+                }
+                if(i == lastIndex) {
+                    room -= afterCaret.length();
+                }
+                String pastedLine = pastedLines.get(i);
+                if(pastedLine.length() > Math.max(0, room)) {
+                    pastedLines.set(i, pastedLine.substring(0, Math.max(0, room)));
+                }
+            }
+        }
+
+        List<String> newLines = new ArrayList<String>(pastedLines.size());
+        for(int i = 0; i <= lastIndex; i++) {
+            String newLine = pastedLines.get(i);
+            if(i == 0) {
+                newLine = beforeCaret + newLine;
+            }
+            if(i == lastIndex) {
+                newLine = newLine + afterCaret;
+            }
+            if(!validated(newLine)) {
+                return;
+            }
+            newLines.add(newLine);
+        }
+        for(String newLine: newLines) {
+            int lineWidth = CJKUtils.getTrueWidth(newLine);
+            if(longestRow < lineWidth + 1) {
+                longestRow = lineWidth + 1;
+            }
+        }
+
+        int row = caretPosition.getRow();
+        lines.set(row, newLines.get(0));
+        lines.addAll(row + 1, newLines.subList(1, newLines.size()));
+        int column = pastedLines.get(lastIndex).length() + (lastIndex == 0 ? beforeCaret.length() : 0);
+        caretPosition = caretPosition.withColumn(column).withRow(row + lastIndex);
+    }
+
     private boolean validated(String line) {
         return validationPattern == null || line.isEmpty() || validationPattern.matcher(line).matches();
     }
@@ -411,25 +508,30 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 if(getRenderer().getViewTopLeft().getColumn() == 0 && horizontalFocusSwitching) {
                     return Result.MOVE_FOCUS_LEFT;
                 }
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(-1));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(-keyStroke.getRepeatCount()));
                 return Result.HANDLED;
             case ArrowRight:
                 if(getRenderer().getViewTopLeft().getColumn() + getSize().getColumns() == longestRow && horizontalFocusSwitching) {
                     return Result.MOVE_FOCUS_RIGHT;
                 }
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(1));
+                //Repeated key strokes stop at the edge, so the next one can switch focus
+                int columns = Math.min(keyStroke.getRepeatCount(),
+                        Math.max(1, longestRow - getSize().getColumns() - getRenderer().getViewTopLeft().getColumn()));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeColumn(columns));
                 return Result.HANDLED;
             case ArrowUp:
                 if(getRenderer().getViewTopLeft().getRow() == 0 && verticalFocusSwitching) {
                     return Result.MOVE_FOCUS_UP;
                 }
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(-1));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(-keyStroke.getRepeatCount()));
                 return Result.HANDLED;
             case ArrowDown:
                 if(getRenderer().getViewTopLeft().getRow() + getSize().getRows() == lines.size() && verticalFocusSwitching) {
                     return Result.MOVE_FOCUS_DOWN;
                 }
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(1));
+                int rows = Math.min(keyStroke.getRepeatCount(),
+                        Math.max(1, lines.size() - getSize().getRows() - getRenderer().getViewTopLeft().getRow()));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(rows));
                 return Result.HANDLED;
             case Home:
                 getRenderer().setViewTopLeft(TerminalPosition.TOP_LEFT_CORNER);
@@ -438,10 +540,10 @@ public class TextBox extends AbstractInteractableComponent<TextBox> {
                 getRenderer().setViewTopLeft(TerminalPosition.TOP_LEFT_CORNER.withRow(getLineCount() - getSize().getRows()));
                 return Result.HANDLED;
             case PageDown:
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(getSize().getRows()));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(getSize().getRows() * keyStroke.getRepeatCount()));
                 return Result.HANDLED;
             case PageUp:
-                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(-getSize().getRows()));
+                getRenderer().setViewTopLeft(getRenderer().getViewTopLeft().withRelativeRow(-getSize().getRows() * keyStroke.getRepeatCount()));
                 return Result.HANDLED;
             default:
         }
@@ -0,0 +1,195 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reader that reads bytes in bulk from a channel into a buffer and decodes them into characters, reusing the same
+ * buffers and {@code CharsetDecoder} for the whole life of the reader. Characters that are split over two reads, like
+ * a multi-byte UTF-8 sequence arriving in two packets, are kept until the rest of it has arrived. This replaces the
+ * {@code InputStreamReader} and {@code BufferedReader} combination for terminal input, where {@code InputDecoder}
+ * reads everything available in one go.
+ * <p/>
+ * To tell if there is input to read without blocking, {@code ready()} needs an {@code InputStream} to ask; when
+ * created from a channel, it can only report input that has already been read from the channel.
+ * @author martin
+ */
+public class ChannelReader extends Reader {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final InputStream inputStream;
+    private final CharsetDecoder charsetDecoder;
+    private final ByteBuffer bytes;
+    private final CharBuffer characters;
+
+    /**
+     * Creates a new reader that reads from an input stream
+     * @param inputStream Stream to read from
+     * @param charset Character set to decode the input with
+     */
+    public ChannelReader(InputStream inputStream, Charset charset) {
+        this(new InputStreamChannel(inputStream), inputStream, charset);
+    }
+
+    /**
+     * Creates a new reader that reads from a channel
+     * @param channel Channel to read from
+     * @param charset Character set to decode the input with
+     */
+    public ChannelReader(ReadableByteChannel channel, Charset charset) {
+        this(channel, null, charset);
+    }
+
+    private ChannelReader(ReadableByteChannel channel, InputStream inputStream, Charset charset) {
+        this.channel = channel;
+        this.inputStream = inputStream;
+        this.charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        this.characters = CharBuffer.allocate(BUFFER_SIZE);
+
+        //Both buffers are kept ready for reading from between calls
+        bytes.flip();
+        characters.flip();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        synchronized(lock) {
+            if(length == 0) {
+                return 0;
+            }
+            if(!characters.hasRemaining() && !decode()) {
+                return -1;
+            }
+            int read = Math.min(length, characters.remaining());
+            characters.get(buffer, offset, read);
+
+            //Keep going as long as it can be done without blocking
+            while(read < length && inputStream != null && inputStream.available() > 0 && decode()) {
+                int chunk = Math.min(length - read, characters.remaining());
+                characters.get(buffer, offset + read, chunk);
+                read += chunk;
+            }
+            return read;
+        }
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        synchronized(lock) {
+            return characters.hasRemaining() || (inputStream != null && inputStream.available() > 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decodes the next block of characters, reading from the channel if needed. The character buffer must be empty.
+     * Just like with {@code InputStreamReader}, reaching the end of the input isn't final, some streams report it when
+     * there is nothing to read at the moment.
+     * @return {@code false} if the end of the input was reached and there is nothing more to decode
+     */
+    private boolean decode() throws IOException {
+        boolean endOfInput = false;
+        characters.clear();
+        try {
+            while(true) {
+                CoderResult result = charsetDecoder.decode(bytes, characters, endOfInput);
+                if(endOfInput) {
+                    //The decoder must be reset before it can decode again, whether this produced anything or not
+                    charsetDecoder.flush(characters);
+                    charsetDecoder.reset();
+                    return characters.position() > 0;
+                }
+                if(result.isOverflow() || characters.position() > 0) {
+                    return true;
+                }
+                bytes.compact();
+                try {
+                    if(channel.read(bytes) == -1) {
+                        endOfInput = true;
+                    }
+                }
+                finally {
+                    bytes.flip();
+                }
+            }
+        }
+        finally {
+            characters.flip();
+        }
+    }
+
+    /**
+     * Reads from an input stream straight into the array behind the buffer. Unlike the channels from
+     * {@code Channels.newChannel(..)}, this one is not closed (and doesn't close the stream) when the reading thread is
+     * interrupted.
+     */
+    private static class InputStreamChannel implements ReadableByteChannel {
+        private final InputStream inputStream;
+        private boolean open;
+
+        InputStreamChannel(InputStream inputStream) {
+            this.inputStream = inputStream;
+            this.open = true;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            if(!destination.hasRemaining()) {
+                return 0;
+            }
+            int read = inputStream.read(
+                    destination.array(),
+                    destination.arrayOffset() + destination.position(),
+                    destination.remaining());
+            if(read > 0) {
+                destination.position(destination.position() + read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            inputStream.close();
+        }
+    }
+}
@@ -134,12 +134,16 @@ public class DefaultKeyDecodingProfile implements KeyDecodingProfile {
                                 new BasicCharacterPattern(new KeyStroke(KeyType.F11, true, false), ESC_CODE, '[', '2', '3', ';', '5', '~'),
                                 new BasicCharacterPattern(new KeyStroke(KeyType.F12, true, false), ESC_CODE, '[', '2', '4', ';', '5', '~'),
 
+                                //Start of a bracketed paste, the InputDecoder collects the text up to the end marker
+                                new BasicCharacterPattern(new KeyStroke(KeyType.Paste), ESC_CODE, '[', '2', '0', '0', '~'),
+
                                 new NormalCharacterPattern(),
                                 new AltAndCharacterPattern(),
                                 new CtrlAndCharacterPattern(),
                                 new CtrlAltAndCharacterPattern(),
                                 new ScreenInfoCharacterPattern(),
-                                new MouseCharacterPattern()
+                                new MouseCharacterPattern(),
+                                new SGRMouseCharacterPattern()
                             }));
 
     @Override
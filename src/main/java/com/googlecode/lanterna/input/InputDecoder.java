@@ -27,26 +27,54 @@ import java.util.*;
 
 /**
  * Used to read the input stream character by character and generate {@code Key} objects to be put in the input queue.
+ * <p/>
+ * The patterns are compiled before decoding. All {@code BasicCharacterPattern}s, which is the fixed character
+ * sequences that make up most of a key decoding profile, are merged into a trie so that each character read is a
+ * single lookup no matter how many such patterns there are. Other patterns, like the ones for cursor position reports
+ * and mouse events that have parameters, are asked as before, but only for as long as they keep matching the input.
+ * This assumes a pattern that doesn't match some characters won't match any longer sequence starting with those
+ * characters either, which is what {@code CharacterPattern.matches(..)} describes.
+ * <p/>
+ * When a pattern results in a {@code KeyType.Paste} key stroke, which is the start of a bracketed paste, everything up
+ * to the end marker ({@code ESC [ 201 ~}) is taken as pasted text and returned as one {@code PasteAction}.
+ * <p/>
+ * Reading and decoding uses a lock of its own, separate from the one guarding the patterns, so profiles and patterns
+ * can be added or removed while another thread is blocked in {@code getNextCharacter(true)} waiting for input. The
+ * compiled patterns are rebuilt when they change and picked up by the next key stroke decoded.
  *
  * @author Martin
  */
 public class InputDecoder {
+    private static final char[] PASTE_END_MARKER = { KeyDecodingProfile.ESC_CODE, '[', '2', '0', '1', '~' };
+
     private final Reader source;
     private final List<CharacterPattern> bytePatterns;
-    private final List<Character> currentMatching;
-    private TerminalPosition lastReportedTerminalPosition;
+    private final Object readLock;
+    private final InputBuffer inputBuffer;
+    private volatile CompiledPatterns compiledPatterns;
+    private boolean[] otherPatternMatching;
+    private volatile TerminalPosition lastReportedTerminalPosition;
     private boolean seenEOF;
+    //Text of the bracketed paste being read, or null if we're not inside one
+    private StringBuilder pasteText;
+    private boolean pasteEndedWithCarriageReturn;
 
     /**
      * Creates a new input decoder using a specified Reader as the source to read characters from
-     * @param source Reader to read characters from, will be wrapped by a BufferedReader
+     * @param source Reader to read characters from, will be wrapped by a BufferedReader unless it's a
+     *               {@code ChannelReader}, which is already buffered
      */
     public InputDecoder(final Reader source) {
-        this.source = new BufferedReader(source);
+        this.source = source instanceof ChannelReader ? source : new BufferedReader(source);
         this.bytePatterns = new ArrayList<CharacterPattern>();
-        this.currentMatching = new ArrayList<Character>();
+        this.readLock = new Object();
+        this.inputBuffer = new InputBuffer();
+        this.compiledPatterns = compilePatterns(bytePatterns);
+        this.otherPatternMatching = new boolean[0];
         this.lastReportedTerminalPosition = null;
         this.seenEOF = false;
+        this.pasteText = null;
+        this.pasteEndedWithCarriageReturn = false;
     }
 
     /**
@@ -60,6 +88,7 @@ public class InputDecoder {
             bytePatterns.remove(pattern);
             bytePatterns.add(pattern);
         }
+        compiledPatterns = compilePatterns(bytePatterns);
     }
 
     /**
@@ -76,7 +105,9 @@ public class InputDecoder {
      * @return {@code true} if the supplied pattern was found and was removed, otherwise {@code false}
      */
     public synchronized boolean removePattern(CharacterPattern pattern) {
-        return bytePatterns.remove(pattern);
+        boolean removed = bytePatterns.remove(pattern);
+        compiledPatterns = compilePatterns(bytePatterns);
+        return removed;
     }
 
     /**
@@ -84,41 +115,116 @@ public class InputDecoder {
      * @return Key stroke read from the input stream, or {@code null} if none
      * @throws IOException If there was an I/O error when reading from the input stream
      */
-    public synchronized KeyStroke getNextCharacter(boolean blockingIO) throws IOException {
-        while ((blockingIO && currentMatching.isEmpty()) || source.ready()) {
-            int readChar = source.read();
-            if (readChar == -1) {
-                seenEOF = true;
-                if(currentMatching.isEmpty()) {
-                    return new KeyStroke(KeyType.EOF);
+    public KeyStroke getNextCharacter(boolean blockingIO) throws IOException {
+        synchronized(readLock) {
+            return readNextCharacter(blockingIO);
+        }
+    }
+
+    private KeyStroke readNextCharacter(boolean blockingIO) throws IOException {
+        boolean needMoreInput = false;
+        while(true) {
+            while ((blockingIO && (inputBuffer.isEmpty() || needMoreInput)) || source.ready()) {
+                needMoreInput = false;
+                if (!inputBuffer.readFrom(source)) {
+                    seenEOF = true;
+                    if(inputBuffer.isEmpty() && pasteText == null) {
+                        return new KeyStroke(KeyType.EOF);
+                    }
+                    break;
                 }
-                break;
             }
-            currentMatching.add((char) readChar);
+
+            if(pasteText != null) {
+                KeyStroke pasteAction = decodePaste();
+                if(pasteAction != null || !blockingIO) {
+                    return pasteAction;
+                }
+                //Keep reading until we have the end of the paste
+                needMoreInput = true;
+                continue;
+            }
+
+            KeyStroke keyStroke = decodeKeyStroke();
+            if(keyStroke == null && blockingIO && !inputBuffer.isEmpty()) {
+                //The start of a sequence that can't be decoded yet, wait for the rest instead of returning nothing
+                needMoreInput = true;
+                continue;
+            }
+            if(keyStroke == null || keyStroke.getKeyType() != KeyType.Paste || keyStroke instanceof PasteAction) {
+                return keyStroke;
+            }
+            //Start of a bracketed paste
+            pasteText = new StringBuilder();
+            pasteEndedWithCarriageReturn = false;
         }
+    }
 
+    private KeyStroke decodeKeyStroke() {
         //Return null if we don't have anything from the input buffer (nothing was pressed?)
-        if (currentMatching.isEmpty()) {
+        if (inputBuffer.isEmpty()) {
             return null;
         }
 
+        CompiledPatterns patterns = compiledPatterns;
+        TrieNode node = patterns.root;
+        CharacterPattern[] otherPatterns = patterns.otherPatterns;
+        int[] otherPatternIndexes = patterns.otherPatternIndexes;
+        int otherPatternsMatching = otherPatterns.length;
+        if(otherPatternMatching.length != otherPatterns.length) {
+            otherPatternMatching = new boolean[otherPatterns.length];
+        }
+        Arrays.fill(otherPatternMatching, true);
+
         KeyStroke bestMatch = null;
         int nrOfCharactersMatched = 0;
 
         //Slowly iterate by adding characters, until either the buffer is empty or no pattern matches
-        for(int i = 0; i < currentMatching.size(); i++) {
-            List<Character> subList = currentMatching.subList(0, i + 1);
-            Matching matching = getBestMatch(subList);
-            if(bestMatch != null && matching.fullMatch == null && !matching.partialMatch) {
+        for(int i = 0; i < inputBuffer.length(); i++) {
+            boolean partialMatch = false;
+            KeyStroke fullMatch = null;
+            int fullMatchIndex = -1;
+
+            if(node != null) {
+                node = node.getChild(inputBuffer.charAt(i));
+                if(node != null) {
+                    partialMatch = true;
+                    fullMatch = node.result;
+                    fullMatchIndex = node.resultIndex;
+                }
+            }
+            if(otherPatternsMatching > 0) {
+                List<Character> characterSequence = inputBuffer.prefix(i + 1);
+                for(int j = 0; j < otherPatterns.length; j++) {
+                    if(!otherPatternMatching[j]) {
+                        continue;
+                    }
+                    CharacterPattern pattern = otherPatterns[j];
+                    if(pattern.matches(characterSequence)) {
+                        partialMatch = true;
+                        //Just like when the patterns are asked in order, the last pattern to match completely wins
+                        if(otherPatternIndexes[j] > fullMatchIndex && pattern.isCompleteMatch(characterSequence)) {
+                            fullMatch = pattern.getResult(characterSequence);
+                            fullMatchIndex = otherPatternIndexes[j];
+                        }
+                    }
+                    else {
+                        otherPatternMatching[j] = false;
+                        otherPatternsMatching--;
+                    }
+                }
+            }
+
+            if(bestMatch != null && fullMatch == null && !partialMatch) {
                 break;
             }
-            else if(matching.fullMatch != null) {
-                bestMatch = matching.fullMatch;
+            else if(fullMatch != null) {
+                bestMatch = fullMatch;
                 nrOfCharactersMatched = i + 1;
             }
-            else if(bestMatch == null && !matching.partialMatch) {
+            else if(bestMatch == null && !partialMatch) {
                 //No match, not even a partial match, then clear the input buffer, otherwise we'll never ever match anything
-                subList.clear();
+                inputBuffer.remove(i + 1);
                 break;
             }
         }
@@ -132,7 +238,7 @@ public class InputDecoder {
         }
 
         if (bestMatch.getKeyType() == KeyType.CursorLocation) {
-            TerminalPosition cursorPosition = ScreenInfoCharacterPattern.getCursorPosition(currentMatching.subList(0, nrOfCharactersMatched));
+            TerminalPosition cursorPosition = ScreenInfoCharacterPattern.getCursorPosition(inputBuffer.prefix(nrOfCharactersMatched));
             if(cursorPosition != null && cursorPosition.getColumn() == 5 && cursorPosition.getRow() == 1) {
                 //Special case for CTRL + F3
                 bestMatch = new KeyStroke(KeyType.F3, true, false);
@@ -142,10 +248,60 @@ public class InputDecoder {
             }
         }
 
-        currentMatching.subList(0, nrOfCharactersMatched).clear();
+        inputBuffer.remove(nrOfCharactersMatched);
         return bestMatch;
     }
 
+    /**
+     * Moves the input buffered so far into the paste text, up to the end marker if it has arrived
+     * @return The whole paste if the end marker (or the end of the stream) was reached, otherwise {@code null}
+     */
+    private KeyStroke decodePaste() {
+        int length = inputBuffer.length();
+        for(int i = 0; i < length; i++) {
+            if(inputBuffer.charAt(i) != KeyDecodingProfile.ESC_CODE) {
+                continue;
+            }
+            int matched = 1;
+            while(matched < PASTE_END_MARKER.length && i + matched < length &&
+                    inputBuffer.charAt(i + matched) == PASTE_END_MARKER[matched]) {
+                matched++;
+            }
+            if(matched == PASTE_END_MARKER.length) {
+                appendPasteText(i);
+                inputBuffer.remove(PASTE_END_MARKER.length);
+                return endPaste();
+            }
+            if(i + matched == length && !seenEOF) {
+                //Could be the start of the end marker, leave it until we know
+                appendPasteText(i);
+                return null;
+            }
+        }
+        appendPasteText(length);
+        return seenEOF ? endPaste() : null;
+    }
+
+    private void appendPasteText(int count) {
+        for(int i = 0; i < count; i++) {
+            char c = inputBuffer.charAt(i);
+            if(c == '\r') {
+                pasteText.append('\n');
+            }
+            else if(c != '\n' || !pasteEndedWithCarriageReturn) {
+                pasteText.append(c);
+            }
+            pasteEndedWithCarriageReturn = c == '\r';
+        }
+        inputBuffer.remove(count);
+    }
+
+    private KeyStroke endPaste() {
+        PasteAction pasteAction = new PasteAction(pasteText.toString());
+        pasteText = null;
+        return pasteAction;
+    }
+
     /**
      * Returns the last position the cursor was reported by the terminal to be at, after a user-triggered cursor report
      * @return Position of the cursor, as declared by the last cursor report this InputDecoder has seen
@@ -154,32 +310,175 @@ public class InputDecoder {
         return lastReportedTerminalPosition;
     }
 
-    private synchronized Matching getBestMatch(List<Character> characterSequence) {
-        boolean partialMatch = false;
-        KeyStroke bestMatch = null;
-        for(CharacterPattern pattern : bytePatterns) {
-            if (pattern.matches(characterSequence)) {
-                partialMatch = true;
-                if (pattern.isCompleteMatch(characterSequence)) {
-                    bestMatch = pattern.getResult(characterSequence);
+    private static CompiledPatterns compilePatterns(List<CharacterPattern> bytePatterns) {
+        TrieNode root = new TrieNode();
+        List<CharacterPattern> others = new ArrayList<CharacterPattern>();
+        List<Integer> otherIndexes = new ArrayList<Integer>();
+        for(int i = 0; i < bytePatterns.size(); i++) {
+            CharacterPattern pattern = bytePatterns.get(i);
+            if(pattern instanceof BasicCharacterPattern && ((BasicCharacterPattern)pattern).getPattern().length > 0) {
+                BasicCharacterPattern basicPattern = (BasicCharacterPattern)pattern;
+                TrieNode node = root;
+                for(char c: basicPattern.getPattern()) {
+                    node = node.getOrAddChild(c);
                 }
+                node.result = basicPattern.getResult();
+                node.resultIndex = i;
+            }
+            else {
+                others.add(pattern);
+                otherIndexes.add(i);
             }
         }
-        return new Matching(partialMatch, bestMatch);
+        int[] otherPatternIndexes = new int[otherIndexes.size()];
+        for(int i = 0; i < otherPatternIndexes.length; i++) {
+            otherPatternIndexes[i] = otherIndexes.get(i);
+        }
+        return new CompiledPatterns(root, others.toArray(new CharacterPattern[others.size()]), otherPatternIndexes);
     }
 
-    private static class Matching {
-        final boolean partialMatch;
-        final KeyStroke fullMatch;
+    /**
+     * The patterns as used for decoding; fixed character sequences merged into a trie and the other patterns along
+     * with their positions in the pattern list. Never changed once built, a new one replaces it when the patterns do.
+     */
+    private static class CompiledPatterns {
+        private final TrieNode root;
+        private final CharacterPattern[] otherPatterns;
+        private final int[] otherPatternIndexes;
+
+        CompiledPatterns(TrieNode root, CharacterPattern[] otherPatterns, int[] otherPatternIndexes) {
+            this.root = root;
+            this.otherPatterns = otherPatterns;
+            this.otherPatternIndexes = otherPatternIndexes;
+        }
+    }
+
+    /**
+     * Node in the trie of fixed character sequences, the children are kept sorted by character
+     */
+    private static class TrieNode {
+        private char[] keys;
+        private TrieNode[] children;
+        private KeyStroke result;
+        private int resultIndex;
+
+        TrieNode() {
+            this.keys = new char[0];
+            this.children = new TrieNode[0];
+            this.result = null;
+            this.resultIndex = -1;
+        }
+
+        TrieNode getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        TrieNode getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if(index >= 0) {
+                return children[index];
+            }
+            int insertionPoint = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertionPoint);
+            System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+            System.arraycopy(keys, insertionPoint, newKeys, insertionPoint + 1, keys.length - insertionPoint);
+            System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1, children.length - insertionPoint);
+            TrieNode child = new TrieNode();
+            newKeys[insertionPoint] = c;
+            newChildren[insertionPoint] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * Characters read but not yet decoded. Decoded key strokes are taken off the front by moving the start position,
+     * so a large paste doesn't have to be shifted once for every key stroke.
+     */
+    private static class InputBuffer {
+        private final Prefix prefix;
+        private char[] characters;
+        private int start;
+        private int end;
+
+        InputBuffer() {
+            this.prefix = new Prefix();
+            this.characters = new char[256];
+            this.start = 0;
+            this.end = 0;
+        }
 
-        public Matching(boolean partialMatch, KeyStroke fullMatch) {
-            this.partialMatch = partialMatch;
-            this.fullMatch = fullMatch;
+        boolean isEmpty() {
+            return start == end;
         }
 
-        @Override
-        public String toString() {
-            return "Matching{" + "partialMatch=" + partialMatch + ", fullMatch=" + fullMatch + '}';
+        int length() {
+            return end - start;
+        }
+
+        char charAt(int index) {
+            return characters[start + index];
+        }
+
+        void remove(int count) {
+            start += count;
+            if(start == end) {
+                start = 0;
+                end = 0;
+            }
+        }
+
+        /**
+         * Reads whatever is available from the reader (blocking until there is at least one character)
+         * @return {@code false} if the end of the stream was reached
+         */
+        boolean readFrom(Reader reader) throws IOException {
+            if(end == characters.length) {
+                if(start > 0) {
+                    System.arraycopy(characters, start, characters, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                else {
+                    characters = Arrays.copyOf(characters, characters.length * 2);
+                }
+            }
+            int read = reader.read(characters, end, characters.length - end);
+            if(read == -1) {
+                return false;
+            }
+            end += read;
+            return true;
+        }
+
+        /**
+         * Returns the first characters of the buffer as a list, for the patterns that aren't compiled into the trie.
+         * The list is reused and only valid until the next call.
+         */
+        List<Character> prefix(int length) {
+            prefix.length = length;
+            return prefix;
+        }
+
+        private class Prefix extends AbstractList<Character> {
+            private int length;
+
+            @Override
+            public Character get(int index) {
+                if(index < 0 || index >= length) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+                }
+                return characters[start + index];
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
         }
     }
 }
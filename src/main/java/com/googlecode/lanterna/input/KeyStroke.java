@@ -40,6 +40,7 @@ public class KeyStroke {
     private final Character character;
     private final boolean ctrlDown;
     private final boolean altDown;
+    private final int repeatCount;
     private final long eventTime;
 
     /**
@@ -61,7 +62,20 @@ public class KeyStroke {
      * @param altDown Was alt held down when the main key was pressed?
      */
     public KeyStroke(KeyType keyType, boolean ctrlDown, boolean altDown) {
-        this(keyType, null, ctrlDown, altDown);
+        this(keyType, null, ctrlDown, altDown, 1);
+    }
+
+    /**
+     * Constructs a KeyStroke that stands for the same key having been pressed several times in a row, like when a key
+     * is held down and the terminal sends a burst of repeats; character will be null. This is how the GUI hands over
+     * a run of identical navigation keys in one go when key repeat coalescing is enabled.
+     * @param keyType Type of the key pressed by this keystroke
+     * @param ctrlDown Was ctrl held down when the main key was pressed?
+     * @param altDown Was alt held down when the main key was pressed?
+     * @param repeatCount How many times the key was pressed, at least 1
+     */
+    public KeyStroke(KeyType keyType, boolean ctrlDown, boolean altDown, int repeatCount) {
+        this(keyType, null, ctrlDown, altDown, repeatCount);
     }
     
     /**
@@ -71,13 +85,16 @@ public class KeyStroke {
      * @param altDown Was alt held down when the main key was pressed?
      */
     public KeyStroke(Character character, boolean ctrlDown, boolean altDown) {
-        this(KeyType.Character, character, ctrlDown, altDown);
+        this(KeyType.Character, character, ctrlDown, altDown, 1);
     }
     
-    private KeyStroke(KeyType keyType, Character character, boolean ctrlDown, boolean altDown) {
+    private KeyStroke(KeyType keyType, Character character, boolean ctrlDown, boolean altDown, int repeatCount) {
         if(keyType == KeyType.Character && character == null) {
             throw new IllegalArgumentException("Cannot construct a KeyStroke with type KeyType.Character but no character information");
         }
+        if(repeatCount < 1) {
+            throw new IllegalArgumentException("Cannot construct a KeyStroke with repeat count " + repeatCount);
+        }
         //Enforce character for some key types
         switch(keyType) {
             case Backspace:
@@ -95,6 +112,7 @@ public class KeyStroke {
         this.character = character;
         this.ctrlDown = ctrlDown;
         this.altDown = altDown;
+        this.repeatCount = repeatCount;
         this.eventTime = System.currentTimeMillis();
     }
 
@@ -131,6 +149,17 @@ public class KeyStroke {
         return altDown;
     }
 
+    /**
+     * Returns how many times in a row this key was pressed. This is always 1 unless several identical keystrokes were
+     * merged into this one, which {@code AbstractTextGUI} does for navigation keys when key repeat coalescing is
+     * enabled. Components that move a selection or a caret should move that many steps. The repeat count isn't part of
+     * {@code equals(..)}, so a merged keystroke still equals a single press of the same key.
+     * @return Number of times the key was pressed, at least 1
+     */
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
     /**
      * Gets the time when the keystroke was recorded. This isn't necessarily the time the keystroke happened, but when
      * Lanterna received the event, so it may not be accurate down to the millisecond.
@@ -142,7 +171,8 @@ public class KeyStroke {
 
     @Override
     public String toString() {
-        return "KeyStroke{" + "keyType=" + keyType + ", character=" + character + ", ctrlDown=" + ctrlDown + ", altDown=" + altDown + '}';
+        return "KeyStroke{" + "keyType=" + keyType + ", character=" + character + ", ctrlDown=" + ctrlDown + ", altDown=" + altDown +
+                (repeatCount > 1 ? ", repeatCount=" + repeatCount : "") + '}';
     }
 
     @Override
@@ -184,7 +214,7 @@ public class KeyStroke {
         String keyStrLC = keyStr.toLowerCase();
         KeyStroke k;
         if (keyStr.length() == 1) {
-            k = new KeyStroke(KeyType.Character, keyStr.charAt(0), false, false);
+            k = new KeyStroke(KeyType.Character, keyStr.charAt(0), false, false, 1);
         } else if (keyStr.startsWith("<") && keyStr.endsWith(">")) {
             if (keyStrLC.equals("<s-tab>")) {
                 k = new KeyStroke(KeyType.ReverseTab);
@@ -73,5 +73,6 @@ public enum KeyType {
     MouseClickRelease,
     MouseMove,
     EOF,
+    Paste,
     ;
 }
@@ -0,0 +1,134 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.input;
+
+import com.googlecode.lanterna.TerminalPosition;
+
+/**
+ * A mouse event reported by the terminal, when mouse capturing has been turned on through
+ * {@code ExtendedTerminal.setMouseClicksCapturingEnabled(..)} or
+ * {@code ExtendedTerminal.setMouseMovementCapturingEnabled(..)}. The key type tells what happened
+ * ({@code KeyType.MouseClickPressed}, {@code KeyType.MouseClickRelease} or {@code KeyType.MouseMove}) and ctrl and alt
+ * are set if they were held down. The button is 1 for left, 2 for middle and 3 for right, 4 and 5 are the scroll wheel
+ * turned up and down and 0 means no button (moving the mouse without holding a button down, or a release when the
+ * terminal didn't say which button was released).
+ * @author martin
+ */
+public class MouseAction extends KeyStroke {
+    private final int button;
+    private final TerminalPosition position;
+
+    /**
+     * Creates a new mouse event
+     * @param actionType What happened, must be one of the mouse key types
+     * @param button Which button the event is about, 0 for none
+     * @param position Position of the mouse, where the top-left corner of the terminal is 0x0
+     * @param ctrlDown Was ctrl held down?
+     * @param altDown Was alt held down?
+     */
+    public MouseAction(KeyType actionType, int button, TerminalPosition position, boolean ctrlDown, boolean altDown) {
+        super(actionType, ctrlDown, altDown);
+        if(actionType != KeyType.MouseClickPressed && actionType != KeyType.MouseClickRelease &&
+                actionType != KeyType.MouseMove) {
+            throw new IllegalArgumentException("Cannot construct a MouseAction with key type " + actionType);
+        }
+        this.button = button;
+        this.position = position;
+    }
+
+    /**
+     * Decodes the button code and coordinates the way xterm reports them, which is the same in the legacy and the SGR
+     * encoding
+     * @param buttonCode Button code, with the modifier, motion and wheel bits
+     * @param column Column as reported, where the leftmost column is 1
+     * @param row Row as reported, where the top row is 1
+     * @param released {@code true} if the SGR encoding said this is a release
+     * @return Mouse event for the report
+     */
+    static MouseAction fromReport(int buttonCode, int column, int row, boolean released) {
+        boolean motion = (buttonCode & 32) != 0;
+        boolean wheel = (buttonCode & 64) != 0;
+        int buttonBits = buttonCode & 3;
+        int button;
+        if(wheel) {
+            button = 4 + buttonBits;
+        }
+        else if(buttonBits == 3) {
+            //Legacy encoding for a release or a move with no button down
+            button = 0;
+        }
+        else {
+            button = buttonBits + 1;
+        }
+        KeyType actionType;
+        if(motion) {
+            actionType = KeyType.MouseMove;
+        }
+        else if(released || button == 0) {
+            actionType = KeyType.MouseClickRelease;
+        }
+        else {
+            actionType = KeyType.MouseClickPressed;
+        }
+        return new MouseAction(
+                actionType,
+                button,
+                new TerminalPosition(Math.max(0, column - 1), Math.max(0, row - 1)),
+                (buttonCode & 16) != 0,
+                (buttonCode & 8) != 0);
+    }
+
+    /**
+     * Returns which button the event is about; 1, 2 and 3 are left, middle and right, 4 and 5 are the scroll wheel up
+     * and down and 0 means no button
+     * @return Button of the mouse event
+     */
+    public int getButton() {
+        return button;
+    }
+
+    /**
+     * Returns where the mouse was, the top-left corner of the terminal is 0x0
+     * @return Position of the mouse
+     */
+    public TerminalPosition getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "MouseAction{" + "actionType=" + getKeyType() + ", button=" + button + ", position=" + position +
+                ", ctrlDown=" + isCtrlDown() + ", altDown=" + isAltDown() + '}';
+    }
+
+    @Override
+    public int hashCode() {
+        return 41 * (41 * super.hashCode() + button) + (position != null ? position.hashCode() : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(!super.equals(obj)) {
+            return false;
+        }
+        MouseAction other = (MouseAction)obj;
+        return button == other.button &&
+                (position == null ? other.position == null : position.equals(other.position));
+    }
+}
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.regex.Pattern;
 
 /**
+ * Pattern for mouse reports in the legacy encoding, {@code ESC [ M} followed by the button and the coordinates as one
+ * character each. Coordinates past 223 can't be reported this way, see {@code SGRMouseCharacterPattern}.
  * Created by martin on 19/07/15.
  */
 public class MouseCharacterPattern implements CharacterPattern {
@@ -13,7 +15,8 @@ public class MouseCharacterPattern implements CharacterPattern {
 
     @Override
     public KeyStroke getResult(List<Character> matching) {
-        return new KeyStroke(KeyType.MouseClickPressed);
+        //The button and the coordinates are sent as characters offset by 32
+        return MouseAction.fromReport(matching.get(3) - 32, matching.get(4) - 32, matching.get(5) - 32, false);
     }
 
     @Override
@@ -45,9 +48,7 @@ public class MouseCharacterPattern implements CharacterPattern {
         if (currentMatching.get(2) != 'M') {
             return false;
         }
-        if (currentMatching.size() == 3) {
-            return true;
-        }
-        return true;
+        //The button and the coordinates follow as one character each
+        return currentMatching.size() <= 6;
     }
 }
@@ -0,0 +1,50 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.input;
+
+/**
+ * An {@code InputProvider} that can tell when new input has arrived. A thread that has to wait for input and for other
+ * things at the same time, like the GUI thread, can then sleep until something happens instead of polling for input.
+ * @author martin
+ */
+public interface ObservableInputProvider extends InputProvider {
+    /**
+     * Listener interface for finding out when there is new input
+     */
+    interface Listener {
+        /**
+         * Called when new input has arrived and can be read from the input provider. This is called on the thread that
+         * received the input, so it should return quickly and leave the reading to someone else.
+         * @param inputProvider Input provider that has new input
+         */
+        void onInputAvailable(InputProvider inputProvider);
+    }
+
+    /**
+     * Adds a listener to be notified every time new input arrives
+     * @param listener Listener to add
+     */
+    void addInputListener(Listener listener);
+
+    /**
+     * Removes a listener so that it's no longer notified when new input arrives
+     * @param listener Listener to remove
+     */
+    void removeInputListener(Listener listener);
+}
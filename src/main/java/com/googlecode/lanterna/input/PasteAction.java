@@ -0,0 +1,65 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.input;
+
+/**
+ * Text pasted into the terminal, delivered as a single input event instead of one key stroke per character. Terminals
+ * only send pastes like this when bracketed paste mode has been turned on, see
+ * {@code BracketedPasteCapable.setBracketedPasteEnabled(..)}. The key type is always {@code KeyType.Paste} and there is
+ * no character value; the pasted text, with line breaks normalized to {@code '\n'}, is returned by {@code getText()}.
+ * @author martin
+ */
+public class PasteAction extends KeyStroke {
+    private final String text;
+
+    /**
+     * Creates a new paste event
+     * @param text Text that was pasted
+     */
+    public PasteAction(String text) {
+        super(KeyType.Paste);
+        if(text == null) {
+            throw new IllegalArgumentException("Cannot construct a PasteAction with null text");
+        }
+        this.text = text;
+    }
+
+    /**
+     * Returns the text that was pasted, with all line breaks as {@code '\n'}
+     * @return Text that was pasted
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "PasteAction{" + "length=" + text.length() + '}';
+    }
+
+    @Override
+    public int hashCode() {
+        return 41 * super.hashCode() + text.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && text.equals(((PasteAction)obj).text);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.input;
+
+import java.util.List;
+
+/**
+ * Pattern for mouse reports in the SGR encoding (mode 1006), {@code ESC [ < button ; column ; row M} for presses and
+ * moves and the same ending in a lowercase {@code m} for releases. Unlike the legacy encoding, the numbers are written
+ * out in decimal so there is no limit to the coordinates and the button of a release is known.
+ * @author martin
+ */
+public class SGRMouseCharacterPattern implements CharacterPattern {
+
+    @Override
+    public KeyStroke getResult(List<Character> matching) {
+        int[] values = new int[3];
+        int index = 0;
+        for(int i = 3; i < matching.size() - 1; i++) {
+            char c = matching.get(i);
+            if(c == ';') {
+                index++;
+            }
+            else {
+                values[index] = values[index] * 10 + (c - '0');
+            }
+        }
+        boolean released = matching.get(matching.size() - 1) == 'm';
+        return MouseAction.fromReport(values[0], values[1], values[2], released);
+    }
+
+    @Override
+    public boolean isCompleteMatch(List<Character> currentMatching) {
+        int size = currentMatching.size();
+        if(size < 9 || !matches(currentMatching)) {
+            return false;
+        }
+        char last = currentMatching.get(size - 1);
+        return last == 'M' || last == 'm';
+    }
+
+    @Override
+    public boolean matches(List<Character> currentMatching) {
+        int size = currentMatching.size();
+        if(size == 0 || currentMatching.get(0) != KeyDecodingProfile.ESC_CODE) {
+            return false;
+        }
+        if(size > 1 && currentMatching.get(1) != '[') {
+            return false;
+        }
+        if(size > 2 && currentMatching.get(2) != '<') {
+            return false;
+        }
+        //Three numbers separated by semicolons, then the final character
+        int separators = 0;
+        boolean digitSinceSeparator = false;
+        for(int i = 3; i < size; i++) {
+            char c = currentMatching.get(i);
+            if(c >= '0' && c <= '9') {
+                digitSinceSeparator = true;
+            }
+            else if(c == ';' && digitSinceSeparator && separators < 2) {
+                separators++;
+                digitSinceSeparator = false;
+            }
+            else if((c == 'M' || c == 'm') && digitSinceSeparator && separators == 2) {
+                return i == size - 1;
+            }
+            else {
+                return false;
+            }
+        }
+        return true;
+    }
+}
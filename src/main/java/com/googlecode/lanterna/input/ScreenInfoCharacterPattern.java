@@ -98,7 +98,8 @@ public class ScreenInfoCharacterPattern implements CharacterPattern {
             }
 
             if ('R' == currentMatching.get(i)) {
-                break;
+                //The report ends with R, nothing after that is part of it
+                return i == currentMatching.size() - 1;
             }
         }
 
@@ -21,6 +21,8 @@ package com.googlecode.lanterna.screen;
 import com.googlecode.lanterna.CJKUtils;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.PackedTextImage;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.graphics.TextImage;
@@ -34,6 +36,11 @@ import java.io.IOException;
  * @author martin
  */
 public abstract class AbstractScreen implements Screen {
+    /**
+     * Default value for how many times per second {@code requestRefresh()} will refresh the screen
+     */
+    public static final int DEFAULT_MAXIMUM_FRAME_RATE = 60;
+
     private TerminalPosition cursorPosition;
     private ScreenBuffer backBuffer;
     private ScreenBuffer frontBuffer;
@@ -48,6 +55,12 @@ public abstract class AbstractScreen implements Screen {
     //Pending resize of the screen
     private TerminalSize latestResizeRequest;
 
+    //Performs refreshes asked for through requestRefresh()
+    private final RefreshScheduler refreshScheduler;
+
+    //Buffer operations covering at least this many characters are done in parallel, 0 means never
+    private volatile int parallelThreshold;
+
     public AbstractScreen(TerminalSize initialSize) {
         this(initialSize, DEFAULT_CHARACTER);
     }
@@ -69,6 +82,8 @@ public abstract class AbstractScreen implements Screen {
         this.tabBehaviour = TabBehaviour.ALIGN_TO_COLUMN_4;
         this.terminalSize = initialSize;
         this.latestResizeRequest = null;
+        this.refreshScheduler = new RefreshScheduler(this, DEFAULT_MAXIMUM_FRAME_RATE);
+        this.parallelThreshold = 0;
     }
 
     /**
@@ -195,6 +210,49 @@ public abstract class AbstractScreen implements Screen {
     }
 
 
+    /**
+     * Asks for the screen to be refreshed soon, without waiting for it to happen. The refresh is done on a background
+     * thread and no more often than the maximum frame rate allows; any number of calls made before the next frame
+     * results in only one refresh, which will include everything drawn up to the point it starts. This is useful when
+     * many threads are updating the screen and calling {@code refresh()} after every update would mean doing far more
+     * work than the terminal can ever display.
+     * @throws IOException If the previous refresh done in the background failed, the exception is thrown here. A
+     * {@code RuntimeException} thrown by the previous background refresh is likewise re-thrown here.
+     * @see #setMaximumFrameRate(int)
+     */
+    public void requestRefresh() throws IOException {
+        refreshScheduler.requestRefresh();
+    }
+
+    /**
+     * Sets how many times per second {@code requestRefresh()} is allowed to refresh the screen. This doesn't limit
+     * calls to {@code refresh()}, which are always done straight away. The default is
+     * {@value #DEFAULT_MAXIMUM_FRAME_RATE}.
+     * @param maximumFrameRate Highest number of refreshes per second, or 0 to refresh as soon as possible
+     */
+    public void setMaximumFrameRate(int maximumFrameRate) {
+        refreshScheduler.setMaximumFrameRate(maximumFrameRate);
+    }
+
+    /**
+     * Returns how many times per second {@code requestRefresh()} is allowed to refresh the screen
+     * @return Highest number of refreshes per second, 0 means there is no limit
+     */
+    public int getMaximumFrameRate() {
+        return refreshScheduler.getMaximumFrameRate();
+    }
+
+    /**
+     * Returns how many refreshes per second were actually done by {@code requestRefresh()}, measured over roughly the
+     * last second. If refreshes are requested less often than the maximum frame rate allows, or a refresh takes longer
+     * than a frame, this will be lower than the maximum frame rate. Returns 0 if there hasn't been enough refreshes
+     * recently to measure.
+     * @return Number of refreshes per second performed through {@code requestRefresh()}
+     */
+    public double getEffectiveFrameRate() {
+        return refreshScheduler.getEffectiveFrameRate();
+    }
+
     @Override
     public synchronized void clear() {
         backBuffer.setAll(defaultCharacter);
@@ -212,6 +270,66 @@ public abstract class AbstractScreen implements Screen {
         return pendingResize;
     }
 
+    /**
+     * Selects how the front and back buffers store their content. By default the buffers keep an array of
+     * {@code TextCharacter} objects, but they can instead use a {@code PackedTextImage} which stores each character as
+     * a single primitive value. This uses much less memory and makes comparing the buffers cheaper on large screens,
+     * at the expense of reading individual characters being slightly more expensive. The current content of the
+     * buffers is preserved.
+     * @param packedBuffers If {@code true}, use packed storage for the buffers, otherwise use the default storage
+     */
+    public synchronized void setPackedBuffers(boolean packedBuffers) {
+        if(packedBuffers == backBuffer.isPacked()) {
+            return;
+        }
+        backBuffer = convertBuffer(backBuffer, packedBuffers);
+        frontBuffer = convertBuffer(frontBuffer, packedBuffers);
+    }
+
+    /**
+     * Returns {@code true} if the front and back buffers are using packed storage
+     * @return {@code true} if the buffers are packed
+     * @see #setPackedBuffers(boolean)
+     */
+    public boolean isPackedBuffers() {
+        return backBuffer.isPacked();
+    }
+
+    /**
+     * Enables comparing and copying the screen buffers on several threads, when they are at least as large as the
+     * threshold. The rows are split into stripes that are compared (or copied) in parallel, and the changes are then
+     * written to the terminal in row order like usual. This is only worth it for very large buffers, such as a
+     * {@code VirtualScreen} with a minimum size of thousands of rows; for normal terminal sizes the work is too small
+     * to gain anything from more threads. Parallel operations are disabled by default.
+     * @param parallelThreshold Number of characters (columns multiplied by rows) a buffer operation has to cover to be
+     *                          done in parallel, 0 to disable
+     */
+    public synchronized void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(0, parallelThreshold);
+        backBuffer.setParallelThreshold(this.parallelThreshold);
+        frontBuffer.setParallelThreshold(this.parallelThreshold);
+    }
+
+    /**
+     * Returns how many characters a buffer operation needs to cover to be split up and done on several threads
+     * @return Parallel threshold in number of characters, 0 means operations are never done in parallel
+     * @see #setParallelThreshold(int)
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    private ScreenBuffer convertBuffer(ScreenBuffer buffer, boolean packed) {
+        TerminalSize size = buffer.getSize();
+        ScreenBuffer converted = new ScreenBuffer(packed ?
+                new PackedTextImage(size, defaultCharacter) :
+                new BasicTextImage(size, defaultCharacter));
+        //This will mark the new buffer as dirty all over, so the next refresh compares everything
+        buffer.copyTo(converted);
+        converted.setParallelThreshold(parallelThreshold);
+        return converted;
+    }
+
     @Override
     public TerminalSize getTerminalSize() {
         return terminalSize;
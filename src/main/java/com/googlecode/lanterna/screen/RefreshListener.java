@@ -0,0 +1,42 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.screen;
+
+/**
+ * Listener interface for getting notified about what a {@code TerminalScreen} did on each refresh. This is useful for
+ * measuring and tuning the rendering of an application, for example to find out which screens cause a lot of output.
+ * @see TerminalScreen#addRefreshListener(RefreshListener)
+ * @author martin
+ */
+public interface RefreshListener {
+    /**
+     * Called after a refresh has been written and flushed to the terminal. If the screen is using pipelined refresh,
+     * this is called on the output thread, otherwise it's called on the thread calling {@code refresh()} while holding
+     * the lock on the screen, so don't do anything time consuming in here.
+     * <p/>
+     * With pipelined refresh, this method must not call any method on the screen that needs the lock on the screen
+     * (such as {@code refresh()} or {@code setCharacter(..)}). {@code stopScreen()} and
+     * {@code setPipelinedRefresh(false)} hold the lock while waiting for the output thread to finish, so the two
+     * threads would wait for each other forever. Hand the statistics over to another thread if you need to react to
+     * them by drawing. A runtime exception thrown from here is re-thrown by the next call to {@code refresh()}.
+     * @param screen Screen that was refreshed
+     * @param statistics Measurements of the refresh, this object is not reused for later refreshes
+     */
+    void onRefresh(TerminalScreen screen, RefreshStatistics statistics);
+}
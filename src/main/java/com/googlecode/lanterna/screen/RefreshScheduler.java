@@ -0,0 +1,193 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.screen;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper class for AbstractScreen that performs refreshes on a background thread, at most a configurable number of
+ * times per second. Any number of refresh requests arriving between two frames are merged into a single refresh. The
+ * thread is started when the first request arrives and goes away again after being idle for a while, so a screen that
+ * never uses this doesn't pay anything for it.
+ * @author martin
+ */
+class RefreshScheduler {
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long MEASUREMENT_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Screen screen;
+    private int maximumFrameRate;
+    private boolean refreshRequested;
+    private Thread refreshThread;
+    //Either an IOException or a RuntimeException thrown by the last background refresh
+    private Exception lastRefreshError;
+
+    //When the last frame started, used for the frame rate cap
+    private long lastFrameTime;
+    //For measuring the effective frame rate
+    private long measurementStartTime;
+    private int framesInMeasurement;
+    private volatile double effectiveFrameRate;
+
+    RefreshScheduler(Screen screen, int maximumFrameRate) {
+        this.screen = screen;
+        this.maximumFrameRate = maximumFrameRate;
+        this.refreshRequested = false;
+        this.refreshThread = null;
+        this.lastRefreshError = null;
+        this.lastFrameTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        this.measurementStartTime = 0;
+        this.framesInMeasurement = 0;
+        this.effectiveFrameRate = 0.0;
+    }
+
+    synchronized void requestRefresh() throws IOException {
+        if(lastRefreshError != null) {
+            Exception error = lastRefreshError;
+            lastRefreshError = null;
+            if(error instanceof IOException) {
+                throw (IOException)error;
+            }
+            throw (RuntimeException)error;
+        }
+        if(refreshRequested) {
+            //There's already a refresh coming up that will include whatever the caller has drawn
+            return;
+        }
+        refreshRequested = true;
+        if(refreshThread == null) {
+            refreshThread = new Thread("LanternaScreenRefresh") {
+                @Override
+                public void run() {
+                    refreshLoop();
+                }
+            };
+            refreshThread.setDaemon(true);
+            refreshThread.start();
+        }
+        else {
+            notifyAll();
+        }
+    }
+
+    synchronized void setMaximumFrameRate(int maximumFrameRate) {
+        if(maximumFrameRate < 0) {
+            throw new IllegalArgumentException("Cannot set a negative maximum frame rate");
+        }
+        this.maximumFrameRate = maximumFrameRate;
+        notifyAll();
+    }
+
+    synchronized int getMaximumFrameRate() {
+        return maximumFrameRate;
+    }
+
+    double getEffectiveFrameRate() {
+        return effectiveFrameRate;
+    }
+
+    private void refreshLoop() {
+        try {
+            while(true) {
+                synchronized(this) {
+                    try {
+                        if(!waitForNextFrame()) {
+                            return;
+                        }
+                    }
+                    catch(InterruptedException e) {
+                        refreshThread = null;
+                        return;
+                    }
+                    refreshRequested = false;
+                }
+
+                //Refresh outside of our own lock, so that new requests can come in while we're drawing
+                long frameStartTime = System.nanoTime();
+                try {
+                    screen.refresh();
+                }
+                catch(IOException e) {
+                    synchronized(this) {
+                        lastRefreshError = e;
+                    }
+                }
+                catch(RuntimeException e) {
+                    synchronized(this) {
+                        lastRefreshError = e;
+                    }
+                }
+                synchronized(this) {
+                    lastFrameTime = frameStartTime;
+                    countFrame(frameStartTime);
+                }
+            }
+        }
+        finally {
+            //If we're dying from an Error, make sure the next request starts a new thread instead of waiting on us
+            synchronized(this) {
+                if(refreshThread == Thread.currentThread()) {
+                    refreshThread = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until there's a request and the time for the next frame has come. Synchronize externally!!!
+     * @return {@code false} if the thread has been idle for too long and should stop
+     */
+    private boolean waitForNextFrame() throws InterruptedException {
+        long idleSince = System.nanoTime();
+        while(!refreshRequested) {
+            long idleNanos = System.nanoTime() - idleSince;
+            if(idleNanos >= IDLE_TIMEOUT_NANOS) {
+                refreshThread = null;
+                effectiveFrameRate = 0.0;
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, IDLE_TIMEOUT_NANOS - idleNanos);
+        }
+        while(maximumFrameRate > 0) {
+            long remaining = lastFrameTime + TimeUnit.SECONDS.toNanos(1) / maximumFrameRate - System.nanoTime();
+            if(remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Synchronize externally!!!
+     */
+    private void countFrame(long frameTime) {
+        if(framesInMeasurement == 0) {
+            measurementStartTime = frameTime;
+        }
+        framesInMeasurement++;
+        long elapsed = frameTime - measurementStartTime;
+        if(elapsed >= MEASUREMENT_PERIOD_NANOS) {
+            effectiveFrameRate = (framesInMeasurement - 1) * (double)TimeUnit.SECONDS.toNanos(1) / elapsed;
+            measurementStartTime = frameTime;
+            framesInMeasurement = 1;
+        }
+    }
+}
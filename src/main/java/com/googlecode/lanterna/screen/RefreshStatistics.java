@@ -0,0 +1,146 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.screen;
+
+/**
+ * Measurements of a single refresh of a {@code TerminalScreen}, passed on to {@code RefreshListener}s. The byte and
+ * escape sequence counts are only available when the screen is running on top of a terminal that keeps track of them
+ * (like the ANSI terminals), otherwise they are -1.
+ * @see RefreshListener
+ * @author martin
+ */
+public class RefreshStatistics {
+    boolean fullRedraw;
+    int cellsCompared;
+    int cellsChanged;
+    int linesScrolled;
+    int cursorMoves;
+    long bytesWritten;
+    long escapeSequences;
+    long diffNanos;
+    long encodeNanos;
+    long flushNanos;
+
+    RefreshStatistics() {
+        this.bytesWritten = -1;
+        this.escapeSequences = -1;
+    }
+
+    /**
+     * Returns {@code true} if the whole screen was cleared and drawn again, rather than just the parts that changed
+     * @return {@code true} if this was a full redraw
+     */
+    public boolean isFullRedraw() {
+        return fullRedraw;
+    }
+
+    /**
+     * Returns how many cells of the back buffer were compared, character by character, with the front buffer to find
+     * what had changed. Rows outside the dirty region are not included, and neither are rows with the same hash in
+     * both buffers, which are only checked for being identical.
+     * @return Number of cells compared
+     */
+    public int getCellsCompared() {
+        return cellsCompared;
+    }
+
+    /**
+     * Returns how many cells were drawn on the terminal. Unchanged characters written again to avoid moving the cursor
+     * are not included.
+     * @return Number of cells drawn
+     */
+    public int getCellsChanged() {
+        return cellsChanged;
+    }
+
+    /**
+     * Returns how many lines the terminal was asked to scroll, in either direction, instead of drawing them again
+     * @return Number of lines scrolled
+     */
+    public int getLinesScrolled() {
+        return linesScrolled;
+    }
+
+    /**
+     * Returns how many times the cursor was moved to draw the changes, including the final cursor placement
+     * @return Number of cursor movements
+     */
+    public int getCursorMoves() {
+        return cursorMoves;
+    }
+
+    /**
+     * Returns how many bytes were written to the terminal's output stream during the refresh, or -1 if the terminal
+     * doesn't count them
+     * @return Number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns how many escape sequences were sent to the terminal during the refresh, or -1 if the terminal doesn't
+     * count them
+     * @return Number of escape sequences
+     */
+    public long getEscapeSequences() {
+        return escapeSequences;
+    }
+
+    /**
+     * Returns the time spent looking for changes between the back and front buffers, including the search for lines
+     * that can be scrolled
+     * @return Time in nanoseconds
+     */
+    public long getDiffNanos() {
+        return diffNanos;
+    }
+
+    /**
+     * Returns the time spent turning the changes into calls on the terminal
+     * @return Time in nanoseconds
+     */
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    /**
+     * Returns the time spent flushing the terminal
+     * @return Time in nanoseconds
+     */
+    public long getFlushNanos() {
+        return flushNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RefreshStatistics{" +
+                "fullRedraw=" + fullRedraw +
+                ", cellsCompared=" + cellsCompared +
+                ", cellsChanged=" + cellsChanged +
+                ", linesScrolled=" + linesScrolled +
+                ", cursorMoves=" + cursorMoves +
+                ", bytesWritten=" + bytesWritten +
+                ", escapeSequences=" + escapeSequences +
+                ", diffNanos=" + diffNanos +
+                ", encodeNanos=" + encodeNanos +
+                ", flushNanos=" + flushNanos +
+                '}';
+    }
+}
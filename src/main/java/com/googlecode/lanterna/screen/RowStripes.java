@@ -0,0 +1,124 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.screen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Helper class for splitting work on a large ScreenBuffer into horizontal stripes of rows that are processed in
+ * parallel. One stripe is always processed by the calling thread, the rest by a shared pool of daemon threads sized
+ * after the number of available processors. The call returns when all stripes are done.
+ * @author martin
+ */
+class RowStripes {
+    private static final int MINIMUM_ROWS_PER_STRIPE = 16;
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor = null;
+
+    /**
+     * Work to be done on a range of rows
+     */
+    interface StripeTask {
+        /**
+         * Process the rows from {@code firstRow} (inclusive) to {@code endRow} (exclusive). Different stripes are
+         * processed concurrently, so this must not modify anything shared with other rows.
+         * @param firstRow First row of the stripe
+         * @param endRow Row after the last row of the stripe
+         */
+        void processRows(int firstRow, int endRow);
+    }
+
+    private RowStripes() {
+    }
+
+    static void forEachStripe(int firstRow, int endRow, final StripeTask task) {
+        int rows = endRow - firstRow;
+        int stripes = Math.min(PROCESSORS, rows / MINIMUM_ROWS_PER_STRIPE);
+        if(stripes <= 1) {
+            task.processRows(firstRow, endRow);
+            return;
+        }
+
+        ExecutorService executor = getExecutor();
+        List<Future<?>> futures = new ArrayList<Future<?>>(stripes - 1);
+        for(int i = 1; i < stripes; i++) {
+            final int stripeStart = firstRow + (int)((long)rows * i / stripes);
+            final int stripeEnd = firstRow + (int)((long)rows * (i + 1) / stripes);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    task.processRows(stripeStart, stripeEnd);
+                }
+            }));
+        }
+        task.processRows(firstRow, firstRow + rows / stripes);
+
+        boolean interrupted = false;
+        try {
+            for(Future<?> future: futures) {
+                while(true) {
+                    try {
+                        future.get();
+                        break;
+                    }
+                    catch(InterruptedException e) {
+                        //The other stripes are still working on our buffers, we can't leave before they are done
+                        interrupted = true;
+                    }
+                    catch(ExecutionException e) {
+                        if(e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException)e.getCause();
+                        }
+                        else if(e.getCause() instanceof Error) {
+                            throw (Error)e.getCause();
+                        }
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
+            }
+        }
+        finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if(executor == null) {
+            executor = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                private int threadCounter = 0;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "LanternaRowStripe-" + (++threadCounter));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -18,21 +18,52 @@
  */
 package com.googlecode.lanterna.screen;
 
+import com.googlecode.lanterna.CJKUtils;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TextCharacter;
 import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.graphics.AbstractTextGraphics;
 import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.PackedTextImage;
 import com.googlecode.lanterna.graphics.TextGraphics;
 import com.googlecode.lanterna.graphics.TextImage;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Defines a buffer used by AbstractScreen and its subclasses to keep its state of what's currently displayed and what 
  * the edit buffer looks like. A ScreenBuffer is essentially a two-dimensional array of TextCharacter with some utility
  * methods to inspect and manipulate it in a safe way.
+ * <p/>
+ * The buffer keeps track of which areas have been written to since the last call to {@code markClean()}, called the
+ * <i>dirty region</i>. For every row, the dirty region is a span of columns that may have been modified; anything
+ * outside of this span is guaranteed to be untouched. Screen implementations can use this to restrict the comparison
+ * between the back buffer and the front buffer to the areas that may actually have changed.
+ * <p/>
+ * By default the content is stored in a {@code BasicTextImage}, but any {@code TextImage} can be used as the storage.
+ * If two ScreenBuffers both use a {@code PackedTextImage}, comparing and copying between them is done on the packed
+ * primitive values directly.
  * @author martin
  */
 public class ScreenBuffer implements TextImage {    
-    private final BasicTextImage backend;
+    private static final long ROW_HASH_SEED = 0xcbf29ce484222325L;
+    private static final long ROW_HASH_PRIME = 0x100000001b3L;
+
+    private final TextImage backend;
+    private final PackedTextImage packedBackend;
+
+    //For each row, the first dirty column (inclusive) and last dirty column (exclusive), start >= end means clean row
+    private final int[] dirtyColumnStart;
+    private final int[] dirtyColumnEnd;
+    private boolean dirty;
+
+    //Cached hash of every row, only calculated when asked for and invalidated whenever something on the row is modified
+    private final long[] rowHashes;
+    private final boolean[] staleRowHashes;
+
+    //Operations covering at least this many characters are split into stripes of rows processed in parallel, 0 = never
+    private int parallelThreshold;
     
     /**
      * Creates a new ScreenBuffer with a given size and a TextCharacter to initially fill it with
@@ -40,39 +71,427 @@ public class ScreenBuffer implements TextImage {
      * @param filler What character to set as the initial content of the buffer
      */
     public ScreenBuffer(TerminalSize size, TextCharacter filler) {
-        this(new BasicTextImage(size, filler));
+        this(new BasicTextImage(size, filler), false);
+    }
+
+    /**
+     * Creates a new ScreenBuffer that stores its content in the supplied TextImage. The buffer takes ownership of the
+     * image, modifying it through any other way than this ScreenBuffer will not be picked up by the dirty tracking.
+     * @param backend TextImage to use as storage for the buffer
+     */
+    public ScreenBuffer(TextImage backend) {
+        this(backend, false);
     }
     
-    private ScreenBuffer(BasicTextImage backend) {
+    private ScreenBuffer(TextImage backend, boolean dirty) {
+        if(backend == null) {
+            throw new IllegalArgumentException("Cannot create ScreenBuffer with null backend");
+        }
         this.backend = backend;
+        this.packedBackend = backend instanceof PackedTextImage ? (PackedTextImage)backend : null;
+        this.dirtyColumnStart = new int[backend.getSize().getRows()];
+        this.dirtyColumnEnd = new int[backend.getSize().getRows()];
+        this.rowHashes = new long[backend.getSize().getRows()];
+        this.staleRowHashes = new boolean[backend.getSize().getRows()];
+        Arrays.fill(staleRowHashes, true);
+        this.parallelThreshold = 0;
+        if(dirty) {
+            markDirty();
+        }
+        else {
+            markClean();
+        }
     }
     
     @Override
     public ScreenBuffer resize(TerminalSize newSize, TextCharacter filler) {
-        BasicTextImage resizedBackend = backend.resize(newSize, filler);
-        return new ScreenBuffer(resizedBackend);
+        TextImage resizedBackend = backend.resize(newSize, filler);
+        //We don't know what the other buffers are going to look like after the resize, so assume everything changed
+        ScreenBuffer resized = new ScreenBuffer(resizedBackend, true);
+        resized.parallelThreshold = parallelThreshold;
+        return resized;
+    }
+
+    /**
+     * Sets how large an operation on this buffer has to be before it's split up and done in parallel. This applies to
+     * comparing the buffer with another buffer and copying from it into another ScreenBuffer. The rows are split into
+     * stripes that are handled on separate threads and the results are put together in row order.
+     * @param parallelThreshold Number of characters an operation has to cover to be done in parallel, or 0 to always
+     *                          use the calling thread only
+     */
+    void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(0, parallelThreshold);
+    }
+
+    private boolean isParallel(int rows, int columns) {
+        return parallelThreshold > 0 && (long)rows * columns >= parallelThreshold;
     }
     
-    boolean isVeryDifferent(ScreenBuffer other, int threshold) {
+    boolean isVeryDifferent(final ScreenBuffer other, final int threshold) {
         if(!getSize().equals(other.getSize())) {
             throw new IllegalArgumentException("Can only call isVeryDifferent comparing two ScreenBuffers of the same size!"
                     + " This is probably a bug in Lanterna.");
         }
+        if(!dirty) {
+            return false;
+        }
+        if(!isParallel(getSize().getRows(), getSize().getColumns())) {
+            return countDifferences(other, 0, getSize().getRows(), threshold) >= threshold;
+        }
+        final AtomicInteger differences = new AtomicInteger(0);
+        RowStripes.forEachStripe(0, getSize().getRows(), new RowStripes.StripeTask() {
+            @Override
+            public void processRows(int firstRow, int endRow) {
+                differences.addAndGet(countDifferences(other, firstRow, endRow, threshold));
+            }
+        });
+        return differences.get() >= threshold;
+    }
+
+    private int countDifferences(ScreenBuffer other, int firstRow, int endRow, int limit) {
         int differences = 0;
-        for(int y = 0; y < getSize().getRows(); y++) {
-            for(int x = 0; x < getSize().getColumns(); x++) {
-                if(!getCharacterAt(x, y).equals(other.getCharacterAt(x, y))) {
-                    if(++differences >= threshold) {
-                        return true;
+        for(int y = firstRow; y < endRow; y++) {
+            if(!isRowDirty(y) || isUnchangedRow(y, other)) {
+                continue;
+            }
+            for(int x = dirtyColumnStart[y]; x < dirtyColumnEnd[y]; x++) {
+                if(!isSameCharacterAt(x, y, other)) {
+                    if(++differences >= limit) {
+                        return differences;
                     }
                 }
             }
         }
-        return false;
+        return differences;
+    }
+
+    /**
+     * Compares this buffer with another buffer of the same size and returns, for every row, the columns where this
+     * buffer has a character that differs from the other buffer. Only the dirty region is examined. The trailing
+     * padding of a CJK character is never included, if the CJK character itself differs it's enough to print that. If
+     * the buffers are large enough (see {@code setParallelThreshold(..)}), the rows are compared in parallel.
+     * @param other Buffer to compare with, normally the front buffer of a screen
+     * @return Array with one element per row, holding the changed columns in order or {@code null} if nothing on the
+     * row has changed
+     */
+    int[][] getChangedColumns(final ScreenBuffer other) {
+        final int[][] changedColumns = new int[getSize().getRows()][];
+        if(!dirty) {
+            return changedColumns;
+        }
+        if(!isParallel(getSize().getRows(), getSize().getColumns())) {
+            findChangedColumns(other, 0, getSize().getRows(), changedColumns);
+        }
+        else {
+            RowStripes.forEachStripe(0, getSize().getRows(), new RowStripes.StripeTask() {
+                @Override
+                public void processRows(int firstRow, int endRow) {
+                    findChangedColumns(other, firstRow, endRow, changedColumns);
+                }
+            });
+        }
+        return changedColumns;
+    }
+
+    private void findChangedColumns(ScreenBuffer other, int firstRow, int endRow, int[][] changedColumns) {
+        int columns = getSize().getColumns();
+        int[] changed = new int[columns];
+        for(int y = firstRow; y < endRow; y++) {
+            //Rows that have been overwritten with what was already there don't need to be looked at any closer
+            if(!isRowDirty(y) || isUnchangedRow(y, other)) {
+                continue;
+            }
+            int count = 0;
+            //Start one column early in case the dirty span begins on the padding of a CJK character
+            int startColumn = Math.max(0, dirtyColumnStart[y] - 1);
+            int endColumn = Math.min(columns, dirtyColumnEnd[y]);
+            for(int x = startColumn; x < endColumn; x++) {
+                boolean isCJK = CJKUtils.isCharCJK(backend.getCharacterAt(x, y).getCharacter());
+                if(!isSameCharacterAt(x, y, other)) {
+                    changed[count++] = x;
+                }
+                if(isCJK) {
+                    x++;    //Skip the trailing padding
+                }
+            }
+            if(count > 0) {
+                changedColumns[y] = Arrays.copyOf(changed, count);
+            }
+        }
+    }
+
+    /**
+     * Checks if the dirty span of a row is the same in this buffer and another buffer. Comparing the row hashes first
+     * makes this cheap for rows that have changed, but since two different rows can have the same hash, rows with equal
+     * hashes are compared character by character before they are considered unchanged.
+     */
+    private boolean isUnchangedRow(int row, ScreenBuffer other) {
+        if(isPacked() != other.isPacked() || getRowHash(row) != other.getRowHash(row)) {
+            return false;
+        }
+        for(int x = dirtyColumnStart[row]; x < dirtyColumnEnd[row]; x++) {
+            if(!isSameCharacterAt(x, row, other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the character at a particular position is the same in this buffer and another buffer. The position must
+     * be within both buffers.
+     * @param column Column coordinate of the character
+     * @param row Row coordinate of the character
+     * @param other Buffer to compare with
+     * @return {@code true} if the two buffers hold the same character at this position
+     */
+    boolean isSameCharacterAt(int column, int row, ScreenBuffer other) {
+        if(packedBackend != null && other.packedBackend != null) {
+            return packedBackend.isSameCharacterAt(column, row, other.packedBackend);
+        }
+        return backend.getCharacterAt(column, row).equals(other.backend.getCharacterAt(column, row));
+    }
+
+    /**
+     * Returns a hash of the content of a row. The hash is kept per row and only calculated again when something on the
+     * row has been modified, so calling this repeatedly is cheap. Buffers backed by a {@code PackedTextImage} hash the
+     * packed values, other buffers hash the character, the hash codes of its colors and its modifiers. Hashes can
+     * therefore only be compared between buffers with the same kind of storage (see {@code isPacked()}). Rows with
+     * different hashes are always different, but rows with the same hash are only very likely to be the same, so an
+     * equal hash must never be taken as proof that nothing has changed.
+     * @param row Index of the row to get the hash for
+     * @return 64-bit hash of the row content
+     */
+    long getRowHash(int row) {
+        if(staleRowHashes[row]) {
+            long hash = ROW_HASH_SEED;
+            int columns = getSize().getColumns();
+            if(packedBackend != null) {
+                for(int x = 0; x < columns; x++) {
+                    long packed = packedBackend.getPackedCharacterAt(x, row);
+                    //The multiplication only carries bits upwards, so fold in the upper half or changes to the topmost
+                    //bits would barely affect the hash
+                    hash = (hash ^ packed ^ (packed >>> 32)) * ROW_HASH_PRIME;
+                    if(!PackedTextImage.isUnpackable(packed)) {
+                        //The packed value doesn't tell which color it is
+                        hash = (hash ^ packedBackend.getCharacterAt(x, row).hashCode()) * ROW_HASH_PRIME;
+                    }
+                }
+            }
+            else {
+                for(int x = 0; x < columns; x++) {
+                    TextCharacter character = backend.getCharacterAt(x, row);
+                    hash = (hash ^ character.getCharacter()) * ROW_HASH_PRIME;
+                    hash = (hash ^ character.getForegroundColor().hashCode()) * ROW_HASH_PRIME;
+                    hash = (hash ^ character.getBackgroundColor().hashCode()) * ROW_HASH_PRIME;
+                    hash = (hash ^ character.getModifierMask()) * ROW_HASH_PRIME;
+                }
+            }
+            rowHashes[row] = hash;
+            staleRowHashes[row] = false;
+        }
+        return rowHashes[row];
+    }
+
+    /**
+     * Copies the dirty region of this buffer into another buffer of the same size. This assumes that the two buffers
+     * are already identical outside of the dirty region, like the back and front buffer of a screen, which means that
+     * afterwards every dirty row is identical in both buffers and the row hashes can be shared, as long as both buffers
+     * have the same kind of storage.
+     * @param destination Buffer to copy the dirty region to
+     */
+    void copyDirtyRegionTo(final ScreenBuffer destination) {
+        if(isParallel(getSize().getRows(), getSize().getColumns())) {
+            RowStripes.forEachStripe(0, getSize().getRows(), new RowStripes.StripeTask() {
+                @Override
+                public void processRows(int firstRow, int endRow) {
+                    copyDirtyRegionTo(destination, firstRow, endRow);
+                }
+            });
+        }
+        else {
+            copyDirtyRegionTo(destination, 0, getSize().getRows());
+        }
+    }
+
+    private void copyDirtyRegionTo(ScreenBuffer destination, int firstRow, int endRow) {
+        for(int y = firstRow; y < endRow; y++) {
+            if(isRowDirty(y)) {
+                int startColumn = dirtyColumnStart[y];
+                int endColumn = dirtyColumnEnd[y];
+                copyTo(destination, y, 1, startColumn, endColumn - startColumn, y, startColumn);
+                if(!staleRowHashes[y] && isPacked() == destination.isPacked()) {
+                    destination.rowHashes[y] = rowHashes[y];
+                    destination.staleRowHashes[y] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the content of a range of rows up or down, the same way a terminal does when scrolling lines. Rows moved
+     * outside of the range are discarded and the uncovered rows are filled with {@code filler}. The whole range is
+     * marked as dirty.
+     * @param firstRow Index of the first row in the range
+     * @param lastRow Index of the last row in the range (inclusive)
+     * @param distance How many rows to move the content, positive values moves it up and negative values moves it down
+     * @param filler Character to fill the uncovered rows with
+     */
+    void scrollLines(int firstRow, int lastRow, int distance, TextCharacter filler) {
+        scrollLines(firstRow, lastRow, 0, getSize().getColumns(), distance, filler);
+    }
+
+    /**
+     * Moves the content of a rectangular area up or down. Content moved outside of the area is discarded and the
+     * uncovered part of the area is filled with {@code filler}. The whole area is marked as dirty.
+     * @param firstRow Index of the first row of the area
+     * @param lastRow Index of the last row of the area (inclusive)
+     * @param firstColumn Index of the first column of the area
+     * @param columns Number of columns in the area
+     * @param distance How many rows to move the content, positive values moves it up and negative values moves it down
+     * @param filler Character to fill the uncovered rows with
+     */
+    void scrollLines(int firstRow, int lastRow, int firstColumn, int columns, int distance, TextCharacter filler) {
+        firstRow = Math.max(0, firstRow);
+        lastRow = Math.min(getSize().getRows() - 1, lastRow);
+        if(firstColumn < 0) {
+            columns += firstColumn;
+            firstColumn = 0;
+        }
+        columns = Math.min(getSize().getColumns() - firstColumn, columns);
+        if(distance == 0 || lastRow < firstRow || columns <= 0) {
+            return;
+        }
+        //Go through the rows in the order that never overwrites a row we still need to copy from
+        if(distance > 0) {
+            for(int y = firstRow; y <= lastRow; y++) {
+                copyRowSpan(y + distance <= lastRow ? y + distance : -1, y, firstColumn, columns, filler);
+            }
+        }
+        else {
+            for(int y = lastRow; y >= firstRow; y--) {
+                copyRowSpan(y + distance >= firstRow ? y + distance : -1, y, firstColumn, columns, filler);
+            }
+        }
+        markDirty(firstRow, lastRow - firstRow + 1, firstColumn, columns);
+    }
+
+    private void copyRowSpan(int sourceRow, int row, int firstColumn, int columns, TextCharacter filler) {
+        if(sourceRow == -1) {
+            for(int x = firstColumn; x < firstColumn + columns; x++) {
+                backend.setCharacterAt(x, row, filler);
+            }
+        }
+        else {
+            backend.copyTo(backend, sourceRow, 1, firstColumn, columns, row, firstColumn);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the buffer stores its content in a {@code PackedTextImage}
+     * @return {@code true} if the storage of this buffer is packed
+     */
+    public boolean isPacked() {
+        return packedBackend != null;
+    }
+
+    /**
+     * Returns {@code true} if anything in this buffer has been modified since the last call to {@code markClean()}
+     * @return {@code true} if there is a dirty region in this buffer
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Returns {@code true} if any character on the specified row has been modified since the last call to
+     * {@code markClean()}
+     * @param row Index of the row to check
+     * @return {@code true} if the row is part of the dirty region
+     */
+    public boolean isRowDirty(int row) {
+        if(row < 0 || row >= dirtyColumnStart.length) {
+            return false;
+        }
+        return dirtyColumnStart[row] < dirtyColumnEnd[row];
+    }
+
+    /**
+     * Returns the index of the first column on a row that may have been modified since the last call to
+     * {@code markClean()}. If the row isn't dirty, the value returned is not smaller than what
+     * {@code getDirtyColumnEnd(row)} returns.
+     * @param row Index of the row to check
+     * @return Index of the first dirty column on the row
+     */
+    public int getDirtyColumnStart(int row) {
+        return dirtyColumnStart[row];
+    }
+
+    /**
+     * Returns the index of the column right after the last column on a row that may have been modified since the last
+     * call to {@code markClean()}. If the row isn't dirty, the value returned is not larger than what
+     * {@code getDirtyColumnStart(row)} returns.
+     * @param row Index of the row to check
+     * @return Index of the column after the last dirty column on the row (exclusive)
+     */
+    public int getDirtyColumnEnd(int row) {
+        return dirtyColumnEnd[row];
+    }
+
+    /**
+     * Marks the whole buffer as dirty
+     */
+    public void markDirty() {
+        Arrays.fill(dirtyColumnStart, 0);
+        Arrays.fill(dirtyColumnEnd, getSize().getColumns());
+        Arrays.fill(staleRowHashes, true);
+        dirty = dirtyColumnStart.length > 0 && getSize().getColumns() > 0;
+    }
+
+    /**
+     * Resets the dirty region, this is normally done after the buffer content has been flushed to wherever it's going
+     */
+    public void markClean() {
+        Arrays.fill(dirtyColumnStart, getSize().getColumns());
+        Arrays.fill(dirtyColumnEnd, 0);
+        dirty = false;
+    }
+
+    private void markDirty(int column, int row) {
+        if(column < 0 || row < 0 || row >= dirtyColumnStart.length || column >= getSize().getColumns()) {
+            return;
+        }
+        if(column < dirtyColumnStart[row]) {
+            dirtyColumnStart[row] = column;
+        }
+        if(column >= dirtyColumnEnd[row]) {
+            dirtyColumnEnd[row] = column + 1;
+        }
+        staleRowHashes[row] = true;
+        dirty = true;
+    }
+
+    /**
+     * Adds an area to the dirty region
+     */
+    void markDirty(int startRow, int rows, int startColumn, int columns) {
+        int endRow = Math.min(dirtyColumnStart.length, startRow + rows);
+        int endColumn = Math.min(getSize().getColumns(), startColumn + columns);
+        startRow = Math.max(0, startRow);
+        startColumn = Math.max(0, startColumn);
+        if(startRow >= endRow || startColumn >= endColumn) {
+            return;
+        }
+        for(int y = startRow; y < endRow; y++) {
+            dirtyColumnStart[y] = Math.min(dirtyColumnStart[y], startColumn);
+            dirtyColumnEnd[y] = Math.max(dirtyColumnEnd[y], endColumn);
+            staleRowHashes[y] = true;
+        }
+        dirty = true;
     }
 
     ///////////////////////////////////////////////////////////////////////////////
-    //  Delegate all TextImage calls (except resize) to the backend BasicTextImage
+    //  Delegate all TextImage calls (except resize) to the backend TextImage
     @Override
     public TerminalSize getSize() {
         return backend.getSize();
@@ -90,29 +509,46 @@ public class ScreenBuffer implements TextImage {
 
     @Override
     public void setCharacterAt(TerminalPosition position, TextCharacter character) {
-        backend.setCharacterAt(position, character);
+        setCharacterAt(position.getColumn(), position.getRow(), character);
     }
 
     @Override
     public void setCharacterAt(int column, int row, TextCharacter character) {
         backend.setCharacterAt(column, row, character);
+        markDirty(column, row);
     }
 
     @Override
     public void setAll(TextCharacter character) {
         backend.setAll(character);
+        markDirty();
     }
 
     @Override
     public TextGraphics newTextGraphics() {
-        return backend.newTextGraphics();
+        //Don't hand out the backend's TextGraphics, it would bypass the dirty tracking
+        return new AbstractTextGraphics() {
+            @Override
+            public TextGraphics setCharacter(int columnIndex, int rowIndex, TextCharacter textCharacter) {
+                ScreenBuffer.this.setCharacterAt(columnIndex, rowIndex, textCharacter);
+                return this;
+            }
+
+            @Override
+            public TerminalSize getSize() {
+                return ScreenBuffer.this.getSize();
+            }
+        };
     }
 
     @Override
     public void copyTo(TextImage destination) {
         if(destination instanceof ScreenBuffer) {
-            //This will allow the BasicTextImage's copy method to use System.arraycopy (micro-optimization?)
-            destination = ((ScreenBuffer)destination).backend;
+            //This will allow the backend's copy method to use System.arraycopy (micro-optimization?)
+            ScreenBuffer destinationBuffer = (ScreenBuffer)destination;
+            backend.copyTo(destinationBuffer.backend);
+            destinationBuffer.markDirty();
+            return;
         }
         backend.copyTo(destination);
     }
@@ -120,14 +556,48 @@ public class ScreenBuffer implements TextImage {
     @Override
     public void copyTo(TextImage destination, int startRowIndex, int rows, int startColumnIndex, int columns, int destinationRowOffset, int destinationColumnOffset) {
         if(destination instanceof ScreenBuffer) {
-            //This will allow the BasicTextImage's copy method to use System.arraycopy (micro-optimization?)
-            destination = ((ScreenBuffer)destination).backend;
+            //This will allow the backend's copy method to use System.arraycopy (micro-optimization?)
+            final ScreenBuffer destinationBuffer = (ScreenBuffer)destination;
+            if(isParallel(rows, columns) && startRowIndex >= 0 && destinationRowOffset >= 0) {
+                copyToInParallel(destinationBuffer, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
+            }
+            else {
+                backend.copyTo(destinationBuffer.backend, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
+            }
+            destinationBuffer.markDirty(destinationRowOffset, rows, destinationColumnOffset, columns);
+            return;
         }
         backend.copyTo(destination, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
     }
     
+    private void copyToInParallel(
+            final ScreenBuffer destination,
+            final int startRowIndex,
+            int rows,
+            final int startColumnIndex,
+            final int columns,
+            final int destinationRowOffset,
+            final int destinationColumnOffset) {
+
+        //Each stripe copies its own rows, the backends will clip them to what's available just like a single copy
+        RowStripes.forEachStripe(startRowIndex, startRowIndex + rows, new RowStripes.StripeTask() {
+            @Override
+            public void processRows(int firstRow, int endRow) {
+                backend.copyTo(
+                        destination.backend,
+                        firstRow,
+                        endRow - firstRow,
+                        startColumnIndex,
+                        columns,
+                        destinationRowOffset + firstRow - startRowIndex,
+                        destinationColumnOffset);
+            }
+        });
+    }
+
     public void copyFrom(TextImage source, int startRowIndex, int rows, int startColumnIndex, int columns, int destinationRowOffset, int destinationColumnOffset) {
         source.copyTo(backend, startRowIndex, rows, startColumnIndex, columns, destinationRowOffset, destinationColumnOffset);
+        markDirty(destinationRowOffset, rows, destinationColumnOffset, columns);
     }
     
     @Override
@@ -22,13 +22,15 @@ import com.googlecode.lanterna.*;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
 import com.googlecode.lanterna.terminal.ResizeListener;
+import com.googlecode.lanterna.terminal.Scrollable;
+import com.googlecode.lanterna.terminal.StyleCapable;
 import com.googlecode.lanterna.terminal.Terminal;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+import com.googlecode.lanterna.terminal.ansi.StreamBasedTerminal;
 
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.EnumSet;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This is the default concrete implementation of the Screen interface, a buffered layer sitting on top of a Terminal.
@@ -37,9 +39,36 @@ import java.util.TreeMap;
  * @author martin
  */
 public class TerminalScreen extends AbstractScreen {
+    private static final SGR[] ALL_SGR = SGR.values();
+    //Writing up to this many unchanged characters is never longer than an escape sequence moving the cursor past them
+    private static final int MAX_REPRINT_GAP = 3;
+    //Scrolling is only worth it if at least this many rows would otherwise need to be redrawn
+    private static final int MIN_SCROLL_GAIN = 2;
+    //Scrolling by more rows than this is rare and saves little, so we don't spend time looking for it
+    private static final int MAX_SCROLL_DISTANCE = 16;
+
     private final Terminal terminal;
     private boolean isStarted;
     private boolean fullRedrawHint;
+    private boolean pipelinedRefresh;
+    private OutputPipeline outputPipeline;
+    private final List<RefreshListener> refreshListeners;
+    //Measurements of the refresh being rendered, null if nobody is listening
+    private RefreshStatistics statistics;
+
+    //The style we believe the terminal is currently using, a null color means we don't know
+    private TextColor currentForegroundColor;
+    private TextColor currentBackgroundColor;
+    private int currentSGR;
+
+    //Work arrays for finding rows that have scrolled, kept between refreshes so that rendering doesn't allocate them
+    private long[] scrollBackHashes;
+    private long[] scrollFrontHashes;
+    private int[] scrollUnchangedRowsBefore;
+    //The scroll found by shiftScrolledLines(..) that still has to be sent to the terminal, 0 distance if none
+    private int scrollFirstLine;
+    private int scrollLastLine;
+    private int scrollDistance;
 
     /**
      * Creates a new Screen on top of a supplied terminal, will query the terminal for its size. The screen is initially
@@ -76,6 +105,14 @@ public class TerminalScreen extends AbstractScreen {
         this.terminal.addResizeListener(new TerminalResizeListener());
         this.isStarted = false;
         this.fullRedrawHint = true;
+        this.pipelinedRefresh = false;
+        this.outputPipeline = null;
+        this.refreshListeners = new CopyOnWriteArrayList<RefreshListener>();
+        this.statistics = null;
+        this.scrollBackHashes = new long[0];
+        this.scrollFrontHashes = new long[0];
+        this.scrollUnchangedRowsBefore = new int[1];
+        this.scrollDistance = 0;
     }
 
     @Override
@@ -96,6 +133,9 @@ public class TerminalScreen extends AbstractScreen {
         } else {
             getTerminal().setCursorVisible(false);
         }
+        if(pipelinedRefresh) {
+            outputPipeline = new OutputPipeline();
+        }
     }
 
     @Override
@@ -111,156 +151,410 @@ public class TerminalScreen extends AbstractScreen {
         }
         while(keyStroke != null && keyStroke.getKeyType() != KeyType.EOF);
 
+        //Let the output thread finish what has been submitted, so it doesn't write anything after we leave private mode
+        if(outputPipeline != null) {
+            OutputPipeline pipeline = outputPipeline;
+            outputPipeline = null;
+            pipeline.stop();
+        }
         getTerminal().exitPrivateMode();
         isStarted = false;
     }
 
+    /**
+     * Turns pipelined refresh on or off. Normally {@code refresh()} compares the buffers, writes the changes to the
+     * terminal and waits for them to be flushed, all while holding the lock on the screen, so nothing can be drawn in
+     * the meantime. With pipelined refresh, {@code refresh()} only copies what has changed in the back buffer since the
+     * last refresh and hands it over to a dedicated output thread, which does the comparing and writing while the
+     * application goes on drawing the next frame. If refreshes are submitted faster than the output thread can write
+     * them, they are merged and only the latest content is written.
+     * <p/>
+     * When this is on, the front buffer (as seen through {@code getFrontCharacter(..)}) contains what has been handed
+     * to the output thread, which may not have reached the terminal yet. An I/O error or runtime exception on the
+     * output thread is thrown from the next call to {@code refresh()} or {@code stopScreen()}. Stopping the screen
+     * waits for everything submitted to be written. You should not use the underlying terminal directly while this is
+     * enabled and the screen is started. {@code RefreshListener}:s are called on the output thread and must not call
+     * any method on the screen, see {@code RefreshListener.onRefresh(..)}.
+     * @param pipelinedRefresh If {@code true}, refreshes are written to the terminal on a separate thread
+     * @throws IOException If turning pipelined refresh off and the output thread failed to write the last refresh
+     */
+    public synchronized void setPipelinedRefresh(boolean pipelinedRefresh) throws IOException {
+        this.pipelinedRefresh = pipelinedRefresh;
+        if(!isStarted) {
+            return;
+        }
+        if(pipelinedRefresh && outputPipeline == null) {
+            outputPipeline = new OutputPipeline();
+        }
+        else if(!pipelinedRefresh && outputPipeline != null) {
+            OutputPipeline pipeline = outputPipeline;
+            outputPipeline = null;
+            pipeline.stop();
+        }
+    }
+
+    /**
+     * Returns {@code true} if refreshes are written to the terminal by a separate output thread
+     * @return {@code true} if pipelined refresh is enabled
+     * @see #setPipelinedRefresh(boolean)
+     */
+    public synchronized boolean isPipelinedRefresh() {
+        return pipelinedRefresh;
+    }
+
+    /**
+     * Adds a listener that will be notified with statistics about every refresh made by this screen, such as how many
+     * cells were compared and changed, how many bytes were written and how long the different steps took. Collecting
+     * the statistics has a small cost, so it's only done while there is at least one listener.
+     * @param listener Listener to add
+     */
+    public void addRefreshListener(RefreshListener listener) {
+        if(listener != null && !refreshListeners.contains(listener)) {
+            refreshListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener previously added with {@code addRefreshListener(..)}
+     * @param listener Listener to remove
+     */
+    public void removeRefreshListener(RefreshListener listener) {
+        refreshListeners.remove(listener);
+    }
+
     @Override
     public synchronized void refresh(RefreshType refreshType) throws IOException {
         if(!isStarted) {
             return;
         }
-        if((refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE) {
-            refreshFull();
+        boolean fullRedraw = (refreshType == RefreshType.AUTOMATIC && fullRedrawHint) || refreshType == RefreshType.COMPLETE;
+        if(fullRedraw) {
             fullRedrawHint = false;
         }
-        else if(refreshType == RefreshType.AUTOMATIC) {
-            double threshold = getTerminalSize().getRows() * getTerminalSize().getColumns() * 0.25;
-            if(getBackBuffer().isVeryDifferent(getFrontBuffer(), (int) threshold)) {
-                refreshFull();
+        if(outputPipeline != null) {
+            outputPipeline.submit(getBackBuffer(), getFrontBuffer(), refreshType, fullRedraw, getCursorPosition());
+        }
+        else {
+            render(getBackBuffer(), getFrontBuffer(), refreshType, fullRedraw, getCursorPosition());
+        }
+    }
+
+    /**
+     * Brings the terminal up to date with the content of {@code backBuffer}, assuming the terminal is currently
+     * showing what's in {@code frontBuffer}, which will be updated to match {@code backBuffer} afterwards.
+     */
+    private void render(
+            ScreenBuffer backBuffer,
+            ScreenBuffer frontBuffer,
+            RefreshType refreshType,
+            boolean fullRedraw,
+            TerminalPosition cursorPosition) throws IOException {
+
+        statistics = refreshListeners.isEmpty() ? null : new RefreshStatistics();
+        long startBytes = getBytesWritten();
+        long startEscapeSequences = getEscapeSequencesWritten();
+        long startTime = statistics != null ? System.nanoTime() : 0;
+
+        //Anything could have been sent to the terminal since the last refresh, so we don't know the current style
+        currentForegroundColor = null;
+        currentBackgroundColor = null;
+        int[][] changedColumns = null;
+        if(!fullRedraw) {
+            //Only the buffers are scrolled at this point, the terminal isn't told until we know it's getting a delta
+            shiftScrolledLines(backBuffer, frontBuffer);
+            if(refreshType == RefreshType.AUTOMATIC) {
+                double threshold = backBuffer.getSize().getRows() * backBuffer.getSize().getColumns() * 0.25;
+                fullRedraw = backBuffer.isVeryDifferent(frontBuffer, (int) threshold);
             }
-            else {
-                refreshByDelta();
+            if(!fullRedraw) {
+                scrollTerminal();
+                if(statistics != null) {
+                    statistics.cellsCompared = countComparedCells(backBuffer, frontBuffer);
+                }
+                changedColumns = backBuffer.getChangedColumns(frontBuffer);
             }
         }
+        long diffTime = statistics != null ? System.nanoTime() : 0;
+
+        if(fullRedraw) {
+            refreshFull(backBuffer);
+        }
         else {
-            refreshByDelta();
+            refreshByDelta(backBuffer, changedColumns);
         }
-        TerminalPosition cursorPosition = getCursorPosition();
         if(cursorPosition != null) {
             getTerminal().setCursorVisible(true);
             //If we are trying to move the cursor to the padding of a CJK character, put it on the actual character instead
-            if(cursorPosition.getColumn() > 0 && CJKUtils.isCharCJK(getFrontBuffer().getCharacterAt(cursorPosition.withRelativeColumn(-1)).getCharacter())) {
-                getTerminal().setCursorPosition(cursorPosition.getColumn() - 1, cursorPosition.getRow());
+            if(cursorPosition.getColumn() > 0 && CJKUtils.isCharCJK(backBuffer.getCharacterAt(cursorPosition.withRelativeColumn(-1)).getCharacter())) {
+                moveCursor(cursorPosition.getColumn() - 1, cursorPosition.getRow());
             }
             else {
-                getTerminal().setCursorPosition(cursorPosition.getColumn(), cursorPosition.getRow());
+                moveCursor(cursorPosition.getColumn(), cursorPosition.getRow());
             }
         } else {
             getTerminal().setCursorVisible(false);
         }
+        long encodeTime = statistics != null ? System.nanoTime() : 0;
         getTerminal().flush();
-        getBackBuffer().copyTo(getFrontBuffer());
+
+        //Only the dirty region of the back buffer can differ from the front buffer, so that's all we need to copy
+        backBuffer.copyDirtyRegionTo(frontBuffer);
+        backBuffer.markClean();
+
+        if(statistics != null) {
+            RefreshStatistics finishedStatistics = statistics;
+            statistics = null;
+            finishedStatistics.flushNanos = System.nanoTime() - encodeTime;
+            finishedStatistics.encodeNanos = encodeTime - diffTime;
+            finishedStatistics.diffNanos = diffTime - startTime;
+            finishedStatistics.fullRedraw = fullRedraw;
+            if(startBytes != -1) {
+                finishedStatistics.bytesWritten = getBytesWritten() - startBytes;
+            }
+            if(startEscapeSequences != -1) {
+                finishedStatistics.escapeSequences = getEscapeSequencesWritten() - startEscapeSequences;
+            }
+            for(RefreshListener listener: refreshListeners) {
+                listener.onRefresh(this, finishedStatistics);
+            }
+        }
     }
 
-    private void refreshByDelta() throws IOException {
-        Map<TerminalPosition, TextCharacter> updateMap = new TreeMap<TerminalPosition, TextCharacter>(new ScreenPointComparator());
-        TerminalSize terminalSize = getTerminalSize();
-        for(int y = 0; y < terminalSize.getRows(); y++) {
-            for(int x = 0; x < terminalSize.getColumns(); x++) {
-                TextCharacter backBufferCharacter = getBackBuffer().getCharacterAt(x, y);
-                if(!backBufferCharacter.equals(getFrontBuffer().getCharacterAt(x, y))) {
-                    updateMap.put(new TerminalPosition(x, y), backBufferCharacter);
-                }
-                if(CJKUtils.isCharCJK(backBufferCharacter.getCharacter())) {
-                    x++;    //Skip the trailing padding
-                }
+    /**
+     * Estimates how many cells {@code ScreenBuffer.getChangedColumns(..)} will have to compare one by one, which is
+     * the dirty region of the rows that don't have the same hash in both buffers
+     */
+    private int countComparedCells(ScreenBuffer backBuffer, ScreenBuffer frontBuffer) {
+        int cells = 0;
+        for(int y = 0; y < backBuffer.getSize().getRows(); y++) {
+            if(backBuffer.isRowDirty(y) && backBuffer.getRowHash(y) != frontBuffer.getRowHash(y)) {
+                cells += backBuffer.getDirtyColumnEnd(y) - backBuffer.getDirtyColumnStart(y);
             }
         }
+        return cells;
+    }
+
+    private long getBytesWritten() {
+        if(getTerminal() instanceof StreamBasedTerminal) {
+            return ((StreamBasedTerminal)getTerminal()).getBytesWritten();
+        }
+        return -1;
+    }
+
+    private long getEscapeSequencesWritten() {
+        if(getTerminal() instanceof ANSITerminal) {
+            return ((ANSITerminal)getTerminal()).getEscapeSequencesWritten();
+        }
+        return -1;
+    }
 
-        if(updateMap.isEmpty()) {
+    /**
+     * Looks for a block of rows in the back buffer that is the same as a block of rows at a different position in the
+     * front buffer, which is what happens when something scrolls. If one is found and the terminal supports it, the
+     * front buffer is scrolled to match and the scroll is remembered so that {@code scrollTerminal()} can send it to
+     * the terminal, leaving only the newly uncovered rows for the delta refresh to draw. If there's a full redraw
+     * instead, the scroll is simply never sent. Rows are compared by their hashes, which the buffers keep cached; the delta
+     * refresh compares the rows character by character afterwards, so a hash collision can't leave anything wrong on
+     * the terminal.
+     */
+    private void shiftScrolledLines(ScreenBuffer backBuffer, ScreenBuffer frontBuffer) {
+        scrollDistance = 0;
+        if(!(getTerminal() instanceof Scrollable) ||
+                !backBuffer.isDirty() ||
+                !backBuffer.getSize().equals(frontBuffer.getSize())) {
             return;
         }
-        TerminalPosition currentPosition = updateMap.keySet().iterator().next();
-        getTerminal().setCursorPosition(currentPosition.getColumn(), currentPosition.getRow());
 
-        TextCharacter firstScreenCharacterToUpdate = updateMap.values().iterator().next();
-        EnumSet<SGR> currentSGR = firstScreenCharacterToUpdate.getModifiers();
-        getTerminal().resetColorAndSGR();
-        for(SGR sgr: currentSGR) {
-            getTerminal().enableSGR(sgr);
-        }
-        TextColor currentForegroundColor = firstScreenCharacterToUpdate.getForegroundColor();
-        TextColor currentBackgroundColor = firstScreenCharacterToUpdate.getBackgroundColor();
-        getTerminal().setForegroundColor(currentForegroundColor);
-        getTerminal().setBackgroundColor(currentBackgroundColor);
-        for(TerminalPosition position: updateMap.keySet()) {
-            if(!position.equals(currentPosition)) {
-                getTerminal().setCursorPosition(position.getColumn(), position.getRow());
-                currentPosition = position;
+        int rows = backBuffer.getSize().getRows();
+        int firstDirtyRow = 0;
+        while(!backBuffer.isRowDirty(firstDirtyRow)) {
+            firstDirtyRow++;
+        }
+        int lastDirtyRow = rows - 1;
+        while(!backBuffer.isRowDirty(lastDirtyRow)) {
+            lastDirtyRow--;
+        }
+        if(lastDirtyRow - firstDirtyRow + 1 < MIN_SCROLL_GAIN) {
+            return;
+        }
+        if(scrollBackHashes.length != rows) {
+            scrollBackHashes = new long[rows];
+            scrollFrontHashes = new long[rows];
+            scrollUnchangedRowsBefore = new int[rows + 1];
+        }
+        long[] backHashes = scrollBackHashes;
+        long[] frontHashes = scrollFrontHashes;
+        int[] unchangedRowsBefore = scrollUnchangedRowsBefore;
+        for(int y = 0; y < rows; y++) {
+            backHashes[y] = y >= firstDirtyRow && y <= lastDirtyRow ? backBuffer.getRowHash(y) : 0;
+            frontHashes[y] = frontBuffer.getRowHash(y);
+        }
+        //Number of rows before each index that are already correct on the terminal; rows outside of the dirty region
+        //haven't changed at all
+        for(int y = 0; y < rows; y++) {
+            boolean unchanged = y < firstDirtyRow || y > lastDirtyRow || backHashes[y] == frontHashes[y];
+            unchangedRowsBefore[y + 1] = unchangedRowsBefore[y] + (unchanged ? 1 : 0);
+        }
+
+        //For every distance, find the longest run of back buffer rows that can be found in the front buffer that many
+        //rows further down (positive distance) or up (negative distance); count how many of those rows have changed,
+        //minus the rows that are already correct but would be cleared by the scroll and have to be drawn again
+        int maxDistance = Math.min(rows - 1, MAX_SCROLL_DISTANCE);
+        int bestDistance = 0;
+        int bestFirstRow = 0;
+        int bestLastRow = 0;
+        int bestGain = MIN_SCROLL_GAIN - 1;
+        for(int distance = -maxDistance; distance <= maxDistance; distance++) {
+            if(distance == 0) {
+                continue;
             }
-            TextCharacter newCharacter = updateMap.get(position);
-            if(!currentForegroundColor.equals(newCharacter.getForegroundColor())) {
-                getTerminal().setForegroundColor(newCharacter.getForegroundColor());
-                currentForegroundColor = newCharacter.getForegroundColor();
+            int runStart = -1;
+            int gain = 0;
+            for(int y = firstDirtyRow; y <= lastDirtyRow + 1; y++) {
+                int sourceRow = y + distance;
+                boolean matches = y <= lastDirtyRow &&
+                        sourceRow >= 0 &&
+                        sourceRow < rows &&
+                        backHashes[y] == frontHashes[sourceRow];
+                if(matches) {
+                    if(runStart == -1) {
+                        runStart = y;
+                        gain = 0;
+                    }
+                    if(backHashes[y] != frontHashes[y]) {
+                        gain++;
+                    }
+                }
+                else if(runStart != -1) {
+                    int clearedFirstRow = distance > 0 ? y : runStart + distance;
+                    int clearedLastRow = distance > 0 ? y - 1 + distance : runStart - 1;
+                    gain -= unchangedRowsBefore[clearedLastRow + 1] - unchangedRowsBefore[clearedFirstRow];
+                    if(gain > bestGain) {
+                        bestDistance = distance;
+                        bestFirstRow = runStart;
+                        bestLastRow = y - 1;
+                        bestGain = gain;
+                    }
+                    runStart = -1;
+                }
             }
-            if(!currentBackgroundColor.equals(newCharacter.getBackgroundColor())) {
-                getTerminal().setBackgroundColor(newCharacter.getBackgroundColor());
-                currentBackgroundColor = newCharacter.getBackgroundColor();
+        }
+        if(bestDistance == 0) {
+            return;
+        }
+
+        //Expand the run to the range the terminal needs to scroll, including the rows the content moves away from
+        scrollFirstLine = bestDistance > 0 ? bestFirstRow : bestFirstRow + bestDistance;
+        scrollLastLine = bestDistance > 0 ? bestLastRow + bestDistance : bestLastRow;
+        scrollDistance = bestDistance;
+        frontBuffer.scrollLines(scrollFirstLine, scrollLastLine, scrollDistance, TextCharacter.DEFAULT_CHARACTER);
+
+        //The back buffer may now differ from the front buffer anywhere in the range, not just in the dirty spans
+        int columns = backBuffer.getSize().getColumns();
+        backBuffer.markDirty(scrollFirstLine, scrollLastLine - scrollFirstLine + 1, 0, columns);
+    }
+
+    /**
+     * Sends the scroll found by {@code shiftScrolledLines(..)} to the terminal, if there was one
+     */
+    private void scrollTerminal() throws IOException {
+        if(scrollDistance == 0) {
+            return;
+        }
+        //Uncovered lines get the current background color, so make sure it's the default one
+        getTerminal().resetColorAndSGR();
+        currentForegroundColor = TextColor.ANSI.DEFAULT;
+        currentBackgroundColor = TextColor.ANSI.DEFAULT;
+        currentSGR = 0;
+        ((Scrollable)getTerminal()).scrollLines(scrollFirstLine, scrollLastLine, scrollDistance);
+        if(statistics != null) {
+            statistics.linesScrolled += scrollLastLine - scrollFirstLine + 1 - Math.abs(scrollDistance);
+        }
+        scrollDistance = 0;
+    }
+
+    private void refreshByDelta(ScreenBuffer backBuffer, int[][] changedColumns) throws IOException {
+        //Where we believe the terminal cursor is, -1 means we haven't positioned it yet
+        int cursorColumn = -1;
+        int cursorRow = -1;
+        for(int y = 0; y < changedColumns.length; y++) {
+            if(changedColumns[y] == null) {
+                continue;
             }
-            for(SGR sgr: SGR.values()) {
-                if(currentSGR.contains(sgr) && !newCharacter.getModifiers().contains(sgr)) {
-                    getTerminal().disableSGR(sgr);
-                    currentSGR.remove(sgr);
+            for(int x: changedColumns[y]) {
+                TextCharacter newCharacter = backBuffer.getCharacterAt(x, y);
+
+                //Only move the cursor when this cell doesn't continue the run of changed cells we are writing; if there's
+                //just a small gap of unchanged characters, writing them again is cheaper than moving past them
+                if(cursorRow == y && x > cursorColumn && x - cursorColumn <= MAX_REPRINT_GAP &&
+                        canReprint(backBuffer, cursorColumn, x, y)) {
+                    for(int gapColumn = cursorColumn; gapColumn < x; gapColumn++) {
+                        getTerminal().putCharacter(backBuffer.getCharacterAt(gapColumn, y).getCharacter());
+                    }
                 }
-                else if(!currentSGR.contains(sgr) && newCharacter.getModifiers().contains(sgr)) {
-                    getTerminal().enableSGR(sgr);
-                    currentSGR.add(sgr);
+                else if(cursorRow != y || cursorColumn != x) {
+                    moveCursor(x, y);
+                    cursorRow = y;
+                }
+                updateStyle(newCharacter);
+                getTerminal().putCharacter(newCharacter.getCharacter());
+                if(statistics != null) {
+                    statistics.cellsChanged++;
                 }
-            }
-            getTerminal().putCharacter(newCharacter.getCharacter());
-            if(CJKUtils.isCharCJK(newCharacter.getCharacter())) {
                 //CJK characters advances two columns
-                currentPosition = currentPosition.withRelativeColumn(2);
+                cursorColumn = x + (CJKUtils.isCharCJK(newCharacter.getCharacter()) ? 2 : 1);
             }
-            else {
-                //Normal characters advances one column
-                currentPosition = currentPosition.withRelativeColumn(1);
+        }
+    }
+
+    /**
+     * Checks if the unchanged characters between two columns can be written out again as they are, without changing
+     * the style on the terminal. Only plain ASCII is considered, so each character is one byte and one column.
+     */
+    private boolean canReprint(ScreenBuffer backBuffer, int fromColumn, int toColumn, int row) {
+        if(currentForegroundColor == null || currentBackgroundColor == null) {
+            return false;
+        }
+        for(int x = fromColumn; x < toColumn; x++) {
+            TextCharacter character = backBuffer.getCharacterAt(x, row);
+            char c = character.getCharacter();
+            if(c < 0x20 || c >= 0x7f ||
+                    character.getModifierMask() != currentSGR ||
+                    !currentForegroundColor.equals(character.getForegroundColor()) ||
+                    !currentBackgroundColor.equals(character.getBackgroundColor())) {
+                return false;
             }
         }
+        return true;
     }
 
-    private void refreshFull() throws IOException {
+    private void refreshFull(ScreenBuffer backBuffer) throws IOException {
         getTerminal().setForegroundColor(TextColor.ANSI.DEFAULT);
         getTerminal().setBackgroundColor(TextColor.ANSI.DEFAULT);
         getTerminal().clearScreen();
         getTerminal().resetColorAndSGR();
 
-        EnumSet<SGR> currentSGR = EnumSet.noneOf(SGR.class);
-        TextColor currentForegroundColor = TextColor.ANSI.DEFAULT;
-        TextColor currentBackgroundColor = TextColor.ANSI.DEFAULT;
-        for(int y = 0; y < getTerminalSize().getRows(); y++) {
-            getTerminal().setCursorPosition(0, y);
+        currentSGR = 0;
+        currentForegroundColor = TextColor.ANSI.DEFAULT;
+        currentBackgroundColor = TextColor.ANSI.DEFAULT;
+        for(int y = 0; y < backBuffer.getSize().getRows(); y++) {
+            moveCursor(0, y);
             int currentColumn = 0;
-            for(int x = 0; x < getTerminalSize().getColumns(); x++) {
-                TextCharacter newCharacter = getBackBuffer().getCharacterAt(x, y);
+            for(int x = 0; x < backBuffer.getSize().getColumns(); x++) {
+                TextCharacter newCharacter = backBuffer.getCharacterAt(x, y);
                 if(newCharacter.equals(DEFAULT_CHARACTER)) {
                     continue;
                 }
 
-                if(!currentForegroundColor.equals(newCharacter.getForegroundColor())) {
-                    getTerminal().setForegroundColor(newCharacter.getForegroundColor());
-                    currentForegroundColor = newCharacter.getForegroundColor();
-                }
-                if(!currentBackgroundColor.equals(newCharacter.getBackgroundColor())) {
-                    getTerminal().setBackgroundColor(newCharacter.getBackgroundColor());
-                    currentBackgroundColor = newCharacter.getBackgroundColor();
-                }
-                for(SGR sgr: SGR.values()) {
-                    if(currentSGR.contains(sgr) && !newCharacter.getModifiers().contains(sgr)) {
-                        getTerminal().disableSGR(sgr);
-                        currentSGR.remove(sgr);
-                    }
-                    else if(!currentSGR.contains(sgr) && newCharacter.getModifiers().contains(sgr)) {
-                        getTerminal().enableSGR(sgr);
-                        currentSGR.add(sgr);
-                    }
-                }
+                updateStyle(newCharacter);
                 if(currentColumn != x) {
-                    getTerminal().setCursorPosition(x, y);
+                    moveCursor(x, y);
                     currentColumn = x;
                 }
                 getTerminal().putCharacter(newCharacter.getCharacter());
+                if(statistics != null) {
+                    statistics.cellsChanged++;
+                }
                 if(CJKUtils.isCharCJK(newCharacter.getCharacter())) {
                     //CJK characters take up two columns
                     currentColumn += 2;
@@ -273,6 +567,59 @@ public class TerminalScreen extends AbstractScreen {
         }
     }
     
+    private void moveCursor(int column, int row) throws IOException {
+        getTerminal().setCursorPosition(column, row);
+        if(statistics != null) {
+            statistics.cursorMoves++;
+        }
+    }
+
+    /**
+     * Changes the colors and modifiers of the terminal to match a character we are about to print, unless the terminal
+     * is already using them. If the terminal is {@code StyleCapable}, the whole style is set in one call.
+     * @param character Character to match the style of
+     */
+    private void updateStyle(TextCharacter character) throws IOException {
+        TextColor foregroundColor = character.getForegroundColor();
+        TextColor backgroundColor = character.getBackgroundColor();
+        int newSGR = character.getModifierMask();
+        boolean knownStyle = currentForegroundColor != null && currentBackgroundColor != null;
+        if(knownStyle &&
+                currentSGR == newSGR &&
+                currentForegroundColor.equals(foregroundColor) &&
+                currentBackgroundColor.equals(backgroundColor)) {
+            return;
+        }
+
+        if(getTerminal() instanceof StyleCapable) {
+            ((StyleCapable)getTerminal()).setStyle(foregroundColor, backgroundColor, newSGR);
+        }
+        else {
+            if(!knownStyle) {
+                getTerminal().resetColorAndSGR();
+                currentSGR = 0;
+            }
+            if(!knownStyle || !currentForegroundColor.equals(foregroundColor)) {
+                getTerminal().setForegroundColor(foregroundColor);
+            }
+            if(!knownStyle || !currentBackgroundColor.equals(backgroundColor)) {
+                getTerminal().setBackgroundColor(backgroundColor);
+            }
+            for(SGR sgr: ALL_SGR) {
+                int bit = 1 << sgr.ordinal();
+                if((currentSGR & bit) != 0 && (newSGR & bit) == 0) {
+                    getTerminal().disableSGR(sgr);
+                }
+                else if((currentSGR & bit) == 0 && (newSGR & bit) != 0) {
+                    getTerminal().enableSGR(sgr);
+                }
+            }
+        }
+        currentForegroundColor = foregroundColor;
+        currentBackgroundColor = backgroundColor;
+        currentSGR = newSGR;
+    }
+
     /**
      * Returns the underlying {@code Terminal} interface that this Screen is using. 
      * </p>
@@ -313,25 +660,153 @@ public class TerminalScreen extends AbstractScreen {
         return newSize;
     }
     
-    private class TerminalResizeListener implements ResizeListener {
-        @Override
-        public void onResized(Terminal terminal, TerminalSize newSize) {
-            addResizeRequest(newSize);
+    /**
+     * The output thread used for pipelined refresh. Submitted frames are collected in a pending buffer, which the thread
+     * picks up into a buffer of its own before rendering it against its own copy of what the terminal is showing. None
+     * of the buffers used by the output thread are shared with the screen, so drawing doesn't need to wait for it.
+     */
+    private class OutputPipeline implements Runnable {
+        private final Thread outputThread;
+
+        //Guarded by this
+        private ScreenBuffer pendingBuffer;
+        private boolean framePending;
+        private RefreshType pendingRefreshType;
+        private boolean pendingFullRedraw;
+        private TerminalPosition pendingCursorPosition;
+        private boolean stopRequested;
+        //Either an IOException or a RuntimeException thrown while writing the last frame
+        private Exception outputError;
+
+        //Only used by the output thread
+        private ScreenBuffer frameBuffer;
+        private ScreenBuffer displayedBuffer;
+
+        OutputPipeline() {
+            this.pendingBuffer = null;
+            this.framePending = false;
+            this.pendingFullRedraw = false;
+            this.stopRequested = false;
+            this.outputError = null;
+            this.frameBuffer = null;
+            this.displayedBuffer = null;
+            this.outputThread = new Thread(this, "LanternaScreenOutput");
+            this.outputThread.setDaemon(true);
+            this.outputThread.start();
+        }
+
+        synchronized void submit(
+                ScreenBuffer backBuffer,
+                ScreenBuffer frontBuffer,
+                RefreshType refreshType,
+                boolean fullRedraw,
+                TerminalPosition cursorPosition) throws IOException {
+
+            throwOutputError();
+            if(pendingBuffer == null || !pendingBuffer.getSize().equals(backBuffer.getSize())) {
+                //The output thread will notice the new size and start over with fresh buffers
+                pendingBuffer = new ScreenBuffer(backBuffer.getSize(), TextCharacter.DEFAULT_CHARACTER);
+                backBuffer.copyTo(pendingBuffer);
+                fullRedraw = true;
+            }
+            else {
+                backBuffer.copyDirtyRegionTo(pendingBuffer);
+            }
+            backBuffer.copyDirtyRegionTo(frontBuffer);
+            backBuffer.markClean();
+
+            pendingRefreshType = refreshType;
+            pendingFullRedraw |= fullRedraw;
+            pendingCursorPosition = cursorPosition;
+            framePending = true;
+            notifyAll();
+        }
+
+        void stop() throws IOException {
+            synchronized(this) {
+                stopRequested = true;
+                notifyAll();
+            }
+            try {
+                outputThread.join();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized(this) {
+                throwOutputError();
+            }
+        }
+
+        /**
+         * Synchronize externally!!!
+         */
+        private void throwOutputError() throws IOException {
+            if(outputError != null) {
+                Exception error = outputError;
+                outputError = null;
+                if(error instanceof IOException) {
+                    throw (IOException)error;
+                }
+                throw (RuntimeException)error;
+            }
         }
-    }
 
-    private static class ScreenPointComparator implements Comparator<TerminalPosition> {
         @Override
-        public int compare(TerminalPosition o1, TerminalPosition o2) {
-            if(o1.getRow() == o2.getRow()) {
-                if(o1.getColumn() == o2.getColumn()) {
-                    return 0;
-                } else {
-                    return new Integer(o1.getColumn()).compareTo(o2.getColumn());
+        public void run() {
+            while(true) {
+                RefreshType refreshType;
+                boolean fullRedraw;
+                TerminalPosition cursorPosition;
+                synchronized(this) {
+                    while(!framePending && !stopRequested) {
+                        try {
+                            wait();
+                        }
+                        catch(InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if(!framePending) {
+                        return;
+                    }
+                    if(frameBuffer == null || !frameBuffer.getSize().equals(pendingBuffer.getSize())) {
+                        //The pending buffer is new and completely dirty, so everything will be copied over
+                        frameBuffer = new ScreenBuffer(pendingBuffer.getSize(), TextCharacter.DEFAULT_CHARACTER);
+                        displayedBuffer = new ScreenBuffer(pendingBuffer.getSize(), TextCharacter.DEFAULT_CHARACTER);
+                        frameBuffer.setParallelThreshold(getParallelThreshold());
+                        displayedBuffer.setParallelThreshold(getParallelThreshold());
+                    }
+                    pendingBuffer.copyDirtyRegionTo(frameBuffer);
+                    pendingBuffer.markClean();
+                    refreshType = pendingRefreshType;
+                    fullRedraw = pendingFullRedraw;
+                    cursorPosition = pendingCursorPosition;
+                    pendingFullRedraw = false;
+                    framePending = false;
+                }
+
+                try {
+                    render(frameBuffer, displayedBuffer, refreshType, fullRedraw, cursorPosition);
+                }
+                catch(IOException e) {
+                    synchronized(this) {
+                        outputError = e;
+                    }
+                }
+                catch(RuntimeException e) {
+                    synchronized(this) {
+                        outputError = e;
+                    }
                 }
-            } else {
-                return new Integer(o1.getRow()).compareTo(o2.getRow());
             }
         }
     }
+
+    private class TerminalResizeListener implements ResizeListener {
+        @Override
+        public void onResized(Terminal terminal, TerminalSize newSize) {
+            addResizeRequest(newSize);
+        }
+    }
 }
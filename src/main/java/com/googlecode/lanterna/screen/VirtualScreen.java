@@ -23,6 +23,14 @@ public class VirtualScreen extends AbstractScreen {
     private TerminalPosition viewportTopLeft;
     private TerminalSize viewportSize;
 
+    //What the real screen looked like after the last refresh, so we know how much of it we need to update
+    private TerminalSize lastRealSize;
+    private TerminalSize lastVirtualSize;
+    private TerminalPosition lastViewportTopLeft;
+    private TerminalSize lastViewportSize;
+    private TerminalPosition lastViewportOffset;
+    private ScreenBuffer lastRealBackBuffer;
+
     /**
      * Creates a new VirtualScreen that wraps a supplied Screen. The screen passed in here should be the real screen
      * that is created on top of the real {@code Terminal}, it will have the correct size and content for what's
@@ -39,6 +47,20 @@ public class VirtualScreen extends AbstractScreen {
         this.minimumSize = screen.getTerminalSize();
         this.viewportTopLeft = TerminalPosition.TOP_LEFT_CORNER;
         this.viewportSize = minimumSize;
+        this.lastRealSize = null;
+        this.lastVirtualSize = null;
+        this.lastViewportTopLeft = null;
+        this.lastViewportSize = null;
+        this.lastViewportOffset = null;
+        this.lastRealBackBuffer = null;
+    }
+
+    /**
+     * Returns the screen this virtual screen is drawing to
+     * @return Real screen the virtual screen is drawn on
+     */
+    public Screen getRealScreen() {
+        return realScreen;
     }
 
     /**
@@ -134,40 +156,131 @@ public class VirtualScreen extends AbstractScreen {
     @Override
     public void refresh(RefreshType refreshType) throws IOException {
         setCursorPosition(getCursorPosition()); //Make sure the cursor is at the correct position
-        if(!viewportSize.equals(realScreen.getTerminalSize())) {
+        TerminalSize realSize = realScreen.getTerminalSize();
+        TerminalPosition viewportOffset = frameRenderer.getViewportOffset();
+        ScreenBuffer realBackBuffer = null;
+        if(realScreen instanceof AbstractScreen) {
+            realBackBuffer = ((AbstractScreen)realScreen).getBackBuffer();
+        }
+
+        //If anything about the layout changed (or the real screen has new buffers), we have to start over. The real
+        //screen marks its back buffer clean on every refresh, so if it's dirty now someone else has drawn on it since
+        //our last refresh and we can't trust that what we copied there last time is still intact.
+        boolean layoutChanged = refreshType == RefreshType.COMPLETE ||
+                !realSize.equals(lastRealSize) ||
+                !getTerminalSize().equals(lastVirtualSize) ||
+                !viewportSize.equals(lastViewportSize) ||
+                !viewportOffset.equals(lastViewportOffset) ||
+                realBackBuffer != lastRealBackBuffer ||
+                (realBackBuffer != null && realBackBuffer.isDirty());
+
+        if(!viewportSize.equals(realSize) && (layoutChanged || !viewportTopLeft.equals(lastViewportTopLeft))) {
             frameRenderer.drawFrame(
                     realScreen.newTextGraphics(),
-                    realScreen.getTerminalSize(),
+                    realSize,
                     getTerminalSize(),
                     viewportTopLeft);
         }
 
-        //Copy the rows
+        int rows = viewportSize.getRows();
+        if(layoutChanged) {
+            copyViewportRows(0, rows, false);
+        }
+        else {
+            int scrolledRows = viewportTopLeft.getRow() - lastViewportTopLeft.getRow();
+            boolean scrolledHorizontally = viewportTopLeft.getColumn() != lastViewportTopLeft.getColumn();
+            if(scrolledHorizontally || (scrolledRows != 0 && (realBackBuffer == null || Math.abs(scrolledRows) >= rows))) {
+                copyViewportRows(0, rows, false);
+            }
+            else if(scrolledRows != 0) {
+                //Move what's already on the real screen and only copy the rows that scrolled into view
+                realBackBuffer.scrollLines(
+                        viewportOffset.getRow(),
+                        viewportOffset.getRow() + rows - 1,
+                        viewportOffset.getColumn(),
+                        viewportSize.getColumns(),
+                        scrolledRows,
+                        DEFAULT_CHARACTER);
+                if(scrolledRows > 0) {
+                    copyViewportRows(0, rows - scrolledRows, true);
+                    copyViewportRows(rows - scrolledRows, rows, false);
+                }
+                else {
+                    copyViewportRows(0, -scrolledRows, false);
+                    copyViewportRows(-scrolledRows, rows, true);
+                }
+            }
+            else {
+                copyViewportRows(0, rows, true);
+            }
+        }
+        //Everything that's visible has been copied, anything else will be copied when it scrolls into view
+        getBackBuffer().markClean();
+
+        lastRealSize = realSize;
+        lastVirtualSize = getTerminalSize();
+        lastViewportTopLeft = viewportTopLeft;
+        lastViewportSize = viewportSize;
+        lastViewportOffset = viewportOffset;
+        lastRealBackBuffer = realBackBuffer;
+        realScreen.refresh(refreshType);
+    }
+
+    /**
+     * Copies a range of rows of the viewport from this screen's back buffer to the real screen
+     * @param firstRow First row, relative to the viewport, to copy
+     * @param endRow Row after the last row, relative to the viewport, to copy
+     * @param onlyDirty If {@code true}, only copy the parts of the rows that have been modified since the last refresh
+     */
+    private void copyViewportRows(int firstRow, int endRow, boolean onlyDirty) {
+        ScreenBuffer backBuffer = getBackBuffer();
         TerminalPosition viewportOffset = frameRenderer.getViewportOffset();
-        if(realScreen instanceof AbstractScreen) {
-            AbstractScreen asAbstractScreen = (AbstractScreen)realScreen;
-            getBackBuffer().copyTo(
-                    asAbstractScreen.getBackBuffer(),
-                    viewportTopLeft.getRow(),
-                    viewportSize.getRows(),
-                    viewportTopLeft.getColumn(),
+        int viewportStartColumn = viewportTopLeft.getColumn();
+        int viewportEndColumn = viewportStartColumn + viewportSize.getColumns();
+        if(!onlyDirty && realScreen instanceof AbstractScreen) {
+            backBuffer.copyTo(
+                    ((AbstractScreen)realScreen).getBackBuffer(),
+                    viewportTopLeft.getRow() + firstRow,
+                    endRow - firstRow,
+                    viewportStartColumn,
                     viewportSize.getColumns(),
-                    viewportOffset.getRow(),
+                    viewportOffset.getRow() + firstRow,
                     viewportOffset.getColumn());
+            return;
         }
-        else {
-            for(int y = 0; y < viewportSize.getRows(); y++) {
-                for(int x = 0; x < viewportSize.getColumns(); x++) {
+        for(int y = firstRow; y < endRow; y++) {
+            int virtualRow = y + viewportTopLeft.getRow();
+            int startColumn = viewportStartColumn;
+            int endColumn = viewportEndColumn;
+            if(onlyDirty) {
+                if(!backBuffer.isRowDirty(virtualRow)) {
+                    continue;
+                }
+                startColumn = Math.max(startColumn, backBuffer.getDirtyColumnStart(virtualRow));
+                endColumn = Math.min(endColumn, backBuffer.getDirtyColumnEnd(virtualRow));
+                if(startColumn >= endColumn) {
+                    continue;
+                }
+            }
+            if(realScreen instanceof AbstractScreen) {
+                backBuffer.copyTo(
+                        ((AbstractScreen)realScreen).getBackBuffer(),
+                        virtualRow,
+                        1,
+                        startColumn,
+                        endColumn - startColumn,
+                        viewportOffset.getRow() + y,
+                        viewportOffset.getColumn() + startColumn - viewportStartColumn);
+            }
+            else {
+                for(int x = startColumn; x < endColumn; x++) {
                     realScreen.setCharacter(
-                            x + viewportOffset.getColumn(),
+                            x - viewportStartColumn + viewportOffset.getColumn(),
                             y + viewportOffset.getRow(),
-                            getBackBuffer().getCharacterAt(
-                                    x + viewportTopLeft.getColumn(),
-                                    y + viewportTopLeft.getRow()));
+                            backBuffer.getCharacterAt(x, virtualRow));
                 }
             }
         }
-        realScreen.refresh(refreshType);
     }
 
     @Override
@@ -280,7 +393,15 @@ public class VirtualScreen extends AbstractScreen {
 
             graphics.setForegroundColor(TextColor.ANSI.WHITE);
             graphics.setBackgroundColor(TextColor.ANSI.BLACK);
-            graphics.fill(' ');
+            //Only clear what's outside of the viewport, the viewport content may be reused between refreshes
+            graphics.fillRectangle(
+                    new TerminalPosition(viewportSize.getColumns(), 0),
+                    new TerminalSize(realSize.getColumns() - viewportSize.getColumns(), realSize.getRows()),
+                    ' ');
+            graphics.fillRectangle(
+                    new TerminalPosition(0, viewportSize.getRows()),
+                    new TerminalSize(viewportSize.getColumns(), realSize.getRows() - viewportSize.getRows()),
+                    ' ');
             graphics.putString(0, graphics.getSize().getRows() - 1, "Terminal too small, use ctrl+arrows to scroll");
 
             int horizontalSize = (int)(((double)(viewportSize.getColumns()) / (double)virtualSize.getColumns()) * (viewportSize.getColumns()));
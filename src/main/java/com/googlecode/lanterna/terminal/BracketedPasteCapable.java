@@ -0,0 +1,38 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import java.io.IOException;
+
+/**
+ * Describes a terminal that can mark text pasted into it, so that the paste can be read as a single
+ * {@code PasteAction} instead of one key stroke per character.
+ * @author martin
+ */
+public interface BracketedPasteCapable {
+    /**
+     * If set to true, text pasted into the terminal will be surrounded by markers so that it can be read as a single
+     * {@code PasteAction} instead of one key stroke per character. Components that don't know about pastes will still
+     * get the text as key strokes through the {@code TextGUI}, but if you read the input directly you need to handle
+     * {@code KeyType.Paste}.
+     * @param enabled Whether to enable bracketed paste mode or not
+     * @throws IOException If the was an underlying I/O error
+     */
+    void setBracketedPasteEnabled(boolean enabled) throws IOException;
+}
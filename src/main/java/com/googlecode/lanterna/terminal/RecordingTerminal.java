@@ -0,0 +1,376 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminal decorator that records a session as it goes: everything written to the terminal, every key stroke read
+ * from it and every time it's resized, all with timestamps. The session is written to a compact binary log that
+ * {@code ReplayTerminal} can play back, either to drive a {@code Screen} or a {@code TextGUI} with the recorded input
+ * or to show the recorded output on another terminal.
+ * <p/>
+ * The recording is designed to be cheap enough to leave on. Output is collected in memory between flushes and then
+ * stored as a single record, where a character typically takes one byte and a cursor movement three. Records are
+ * collected in a buffer which is only written to the log channel when it's full, when the terminal leaves private mode
+ * and when the recording is closed. If writing to the log fails, the recording stops but the terminal keeps working;
+ * you can find out what happened through {@code getRecordingError()}.
+ * @author martin
+ */
+public class RecordingTerminal extends AbstractTerminal implements Closeable {
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+    private static final int CHARACTER_RUN_SIZE = 1024;
+
+    private final Terminal terminal;
+    private final WritableByteChannel channel;
+    private final ByteBuffer logBuffer;
+    private final SessionLog.Encoder output;
+    private final SessionLog.Encoder record;
+    private final SessionLog.Encoder header;
+    private final char[] characterRun;
+    private int characterRunLength;
+    private long lastRecordTime;
+    private TerminalSize lastRecordedSize;
+    private boolean recording;
+    private IOException recordingError;
+
+    /**
+     * Creates a new recording terminal that writes the session log to a file, replacing the file if it already exists
+     * @param terminal Terminal to record the session on
+     * @param file File to write the session log to
+     * @throws IOException If the file couldn't be opened
+     */
+    public RecordingTerminal(Terminal terminal, File file) throws IOException {
+        this(terminal, new FileOutputStream(file).getChannel());
+    }
+
+    /**
+     * Creates a new recording terminal that writes the session log to a channel
+     * @param terminal Terminal to record the session on
+     * @param channel Channel to write the session log to, it will be closed when the recording is closed
+     */
+    public RecordingTerminal(Terminal terminal, WritableByteChannel channel) {
+        this.terminal = terminal;
+        this.channel = channel;
+        this.logBuffer = ByteBuffer.allocateDirect(LOG_BUFFER_SIZE);
+        this.output = new SessionLog.Encoder(4096);
+        this.record = new SessionLog.Encoder(16);
+        this.header = new SessionLog.Encoder(16);
+        this.characterRun = new char[CHARACTER_RUN_SIZE];
+        this.characterRunLength = 0;
+        this.lastRecordTime = System.nanoTime();
+        this.lastRecordedSize = null;
+        this.recording = true;
+        this.recordingError = null;
+
+        logBuffer.put(SessionLog.MAGIC);
+        logBuffer.put((byte)SessionLog.VERSION);
+        terminal.addResizeListener(new ResizeListener() {
+            @Override
+            public void onResized(Terminal terminal, TerminalSize newSize) {
+                recordResize(newSize);
+                RecordingTerminal.this.onResized(newSize.getColumns(), newSize.getRows());
+            }
+        });
+    }
+
+    /**
+     * Returns the terminal this recording terminal is recording
+     * @return Terminal being recorded
+     */
+    public Terminal getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Returns {@code true} until the recording has been closed or has stopped because of an error
+     * @return {@code true} if the session is being recorded
+     */
+    public synchronized boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * If writing the session log failed, this returns the error that stopped the recording
+     * @return Error that stopped the recording or {@code null} if there hasn't been any
+     */
+    public synchronized IOException getRecordingError() {
+        return recordingError;
+    }
+
+    /**
+     * Stops recording, writes anything still buffered to the log and closes the log channel. The terminal itself is
+     * left as it is and can still be used, but nothing more is recorded.
+     * @throws IOException If there was an error writing the end of the log or closing the channel
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(recording) {
+            recordOutput();
+            writeLog();
+            recording = false;
+        }
+        channel.close();
+        if(recordingError != null) {
+            throw recordingError;
+        }
+    }
+
+    @Override
+    public void enterPrivateMode() throws IOException {
+        terminal.enterPrivateMode();
+        recordOperation(SessionLog.OPERATION_ENTER_PRIVATE_MODE);
+    }
+
+    @Override
+    public void exitPrivateMode() throws IOException {
+        terminal.exitPrivateMode();
+        recordOperation(SessionLog.OPERATION_EXIT_PRIVATE_MODE);
+        //Leaving private mode usually means the application is done, so make sure the session so far is in the log
+        synchronized(this) {
+            if(recording) {
+                recordOutput();
+                writeLog();
+            }
+        }
+    }
+
+    @Override
+    public void clearScreen() throws IOException {
+        terminal.clearScreen();
+        recordOperation(SessionLog.OPERATION_CLEAR_SCREEN);
+    }
+
+    @Override
+    public void setCursorPosition(int x, int y) throws IOException {
+        terminal.setCursorPosition(x, y);
+        recordOperation(SessionLog.OPERATION_CURSOR_POSITION, x, y);
+    }
+
+    @Override
+    public void setCursorVisible(boolean visible) throws IOException {
+        terminal.setCursorVisible(visible);
+        recordOperation(SessionLog.OPERATION_CURSOR_VISIBLE, visible ? 1 : 0);
+    }
+
+    @Override
+    public void putCharacter(char c) throws IOException {
+        terminal.putCharacter(c);
+        recordCharacter(c);
+    }
+
+    @Override
+    public void enableSGR(SGR sgr) throws IOException {
+        terminal.enableSGR(sgr);
+        recordOperation(SessionLog.OPERATION_ENABLE_SGR, sgr.ordinal());
+    }
+
+    @Override
+    public void disableSGR(SGR sgr) throws IOException {
+        terminal.disableSGR(sgr);
+        recordOperation(SessionLog.OPERATION_DISABLE_SGR, sgr.ordinal());
+    }
+
+    @Override
+    public void resetColorAndSGR() throws IOException {
+        terminal.resetColorAndSGR();
+        recordOperation(SessionLog.OPERATION_RESET_COLOR_AND_SGR);
+    }
+
+    @Override
+    public void setForegroundColor(TextColor color) throws IOException {
+        terminal.setForegroundColor(color);
+        recordOperation(SessionLog.OPERATION_FOREGROUND_COLOR, color);
+    }
+
+    @Override
+    public void setBackgroundColor(TextColor color) throws IOException {
+        terminal.setBackgroundColor(color);
+        recordOperation(SessionLog.OPERATION_BACKGROUND_COLOR, color);
+    }
+
+    @Override
+    public TerminalSize getTerminalSize() throws IOException {
+        TerminalSize size = terminal.getTerminalSize();
+        recordResize(size);
+        return size;
+    }
+
+    @Override
+    public byte[] enquireTerminal(int timeout, TimeUnit timeoutUnit) throws IOException {
+        return terminal.enquireTerminal(timeout, timeoutUnit);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        terminal.flush();
+        synchronized(this) {
+            if(recording) {
+                recordOutput();
+            }
+        }
+    }
+
+    @Override
+    public KeyStroke pollInput() throws IOException {
+        return recordInput(terminal.pollInput());
+    }
+
+    @Override
+    public KeyStroke readInput() throws IOException {
+        return recordInput(terminal.readInput());
+    }
+
+    private synchronized void recordCharacter(char c) {
+        if(!recording) {
+            return;
+        }
+        if(characterRunLength == characterRun.length) {
+            endCharacterRun();
+        }
+        characterRun[characterRunLength++] = c;
+    }
+
+    private synchronized void recordOperation(int operation) {
+        if(recording) {
+            endCharacterRun();
+            output.writeByte(operation);
+        }
+    }
+
+    private synchronized void recordOperation(int operation, int argument) {
+        if(recording) {
+            endCharacterRun();
+            output.writeByte(operation);
+            output.writeVarint(argument);
+        }
+    }
+
+    private synchronized void recordOperation(int operation, int argument1, int argument2) {
+        if(recording) {
+            endCharacterRun();
+            output.writeByte(operation);
+            output.writeVarint(argument1);
+            output.writeVarint(argument2);
+        }
+    }
+
+    private synchronized void recordOperation(int operation, TextColor color) {
+        if(recording) {
+            endCharacterRun();
+            output.writeByte(operation);
+            output.writeColor(color);
+        }
+    }
+
+    private synchronized KeyStroke recordInput(KeyStroke keyStroke) {
+        if(keyStroke != null && recording) {
+            record.reset();
+            record.writeKeyStroke(keyStroke);
+            writeRecord(SessionLog.RECORD_INPUT, record);
+        }
+        return keyStroke;
+    }
+
+    private synchronized void recordResize(TerminalSize size) {
+        if(recording && !size.equals(lastRecordedSize)) {
+            lastRecordedSize = size;
+            record.reset();
+            record.writeVarint(size.getColumns());
+            record.writeVarint(size.getRows());
+            writeRecord(SessionLog.RECORD_RESIZE, record);
+        }
+    }
+
+    private void endCharacterRun() {
+        if(characterRunLength > 0) {
+            output.writeByte(SessionLog.OPERATION_CHARACTERS);
+            output.writeVarint(characterRunLength);
+            for(int i = 0; i < characterRunLength; i++) {
+                output.writeVarint(characterRun[i]);
+            }
+            characterRunLength = 0;
+        }
+    }
+
+    private void recordOutput() {
+        endCharacterRun();
+        if(output.getLength() > 0) {
+            writeRecord(SessionLog.RECORD_OUTPUT, output);
+            output.reset();
+        }
+    }
+
+    private void writeRecord(int type, SessionLog.Encoder payload) {
+        //Timestamps are stored in microseconds; moving the reference forward by exactly what was stored means the
+        //rounding doesn't add up over a long session
+        long now = System.nanoTime();
+        long delta = Math.min(Integer.MAX_VALUE, (now - lastRecordTime) / 1000);
+        lastRecordTime += delta * 1000;
+
+        header.reset();
+        header.writeByte(type);
+        header.writeVarint((int)delta);
+        header.writeVarint(payload.getLength());
+        if(logBuffer.remaining() < header.getLength() + payload.getLength()) {
+            writeLog();
+        }
+        logBuffer.put(header.getBytes(), 0, header.getLength());
+        if(logBuffer.remaining() < payload.getLength()) {
+            //Too big for the buffer, write it straight to the channel
+            writeLog();
+            writeToChannel(ByteBuffer.wrap(payload.getBytes(), 0, payload.getLength()));
+        }
+        else {
+            logBuffer.put(payload.getBytes(), 0, payload.getLength());
+        }
+    }
+
+    private void writeLog() {
+        logBuffer.flip();
+        writeToChannel(logBuffer);
+        logBuffer.clear();
+    }
+
+    private void writeToChannel(ByteBuffer buffer) {
+        if(!recording) {
+            return;
+        }
+        try {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        catch(IOException e) {
+            recordingError = e;
+            recording = false;
+        }
+    }
+}
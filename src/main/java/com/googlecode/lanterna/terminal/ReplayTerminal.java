@@ -0,0 +1,339 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminal that plays back a session log written by {@code RecordingTerminal}. The recorded key strokes are returned
+ * as input and the recorded resizes are passed on to the resize listeners, so if you put a {@code Screen} or a
+ * {@code TextGUI} on top of this terminal it will go through the same session again. This can be done either at the
+ * speed it was recorded or as fast as possible, which is useful for reproducing performance problems and for
+ * regression testing. What the application draws is passed on to an optional output terminal, like a
+ * {@code HeadlessTerminal} that can be inspected afterwards, or discarded. When the log runs out, the input returns
+ * {@code KeyType.EOF}.
+ * <p/>
+ * To look at what was shown during a recorded session instead, use {@code replayOutput(..)} which draws the recorded
+ * output on another terminal.
+ * @author martin
+ */
+public class ReplayTerminal extends AbstractTerminal {
+    private static final SGR[] SGRS = SGR.values();
+
+    private final SessionLog.Reader reader;
+    private final Terminal output;
+    private final boolean realTime;
+    private long startTime;
+    private boolean recordPending;
+    private boolean endOfLog;
+    private TerminalSize terminalSize;
+
+    /**
+     * Creates a new replay terminal that plays back a session log file, discarding the output
+     * @param file Session log to play back
+     * @param realTime If {@code true}, the input comes at the same pace as when it was recorded, otherwise as fast as
+     *                 it can be read
+     * @throws IOException If the log couldn't be opened or isn't a session log
+     */
+    public ReplayTerminal(File file, boolean realTime) throws IOException {
+        this(new FileInputStream(file).getChannel(), realTime, null);
+    }
+
+    /**
+     * Creates a new replay terminal that plays back a session log from a channel
+     * @param channel Channel to read the session log from
+     * @param realTime If {@code true}, the input comes at the same pace as when it was recorded, otherwise as fast as
+     *                 it can be read
+     * @param output Terminal to pass everything written to this terminal on to, or {@code null} to discard it
+     * @throws IOException If the log couldn't be read or isn't a session log
+     */
+    public ReplayTerminal(ReadableByteChannel channel, boolean realTime, Terminal output) throws IOException {
+        this.reader = new SessionLog.Reader(channel);
+        this.output = output;
+        this.realTime = realTime;
+        this.startTime = -1;
+        this.recordPending = false;
+        this.endOfLog = false;
+        this.terminalSize = new TerminalSize(80, 24);
+
+        //The recorded size is usually asked for before there is any input, so apply the first resize immediately
+        while(nextRecord() && reader.getType() != SessionLog.RECORD_INPUT) {
+            recordPending = false;
+            if(reader.getType() == SessionLog.RECORD_RESIZE) {
+                applyResize();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Plays back the output of a recorded session on a terminal, showing what the user saw during the session. Input
+     * and resizes in the log are skipped.
+     * @param channel Channel to read the session log from, it's closed when the playback is done
+     * @param terminal Terminal to draw the recorded output on
+     * @param realTime If {@code true}, the output is drawn at the same pace as when it was recorded, otherwise as fast
+     *                 as possible
+     * @throws IOException If there was an error reading the log or writing to the terminal
+     */
+    public static void replayOutput(ReadableByteChannel channel, Terminal terminal, boolean realTime) throws IOException {
+        SessionLog.Reader reader = new SessionLog.Reader(channel);
+        try {
+            long startTime = System.nanoTime();
+            while(reader.readRecord()) {
+                if(reader.getType() != SessionLog.RECORD_OUTPUT) {
+                    continue;
+                }
+                if(realTime) {
+                    sleepUntil(startTime + reader.getTime() * 1000);
+                }
+                playOutput(reader.getPayload(), terminal);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public KeyStroke pollInput() throws IOException {
+        return nextInput(false);
+    }
+
+    @Override
+    public KeyStroke readInput() throws IOException {
+        return nextInput(true);
+    }
+
+    @Override
+    public synchronized TerminalSize getTerminalSize() throws IOException {
+        return terminalSize;
+    }
+
+    @Override
+    public byte[] enquireTerminal(int timeout, TimeUnit timeoutUnit) throws IOException {
+        if(output != null) {
+            return output.enquireTerminal(timeout, timeoutUnit);
+        }
+        return new byte[0];
+    }
+
+    @Override
+    public void enterPrivateMode() throws IOException {
+        if(output != null) {
+            output.enterPrivateMode();
+        }
+    }
+
+    @Override
+    public void exitPrivateMode() throws IOException {
+        if(output != null) {
+            output.exitPrivateMode();
+        }
+    }
+
+    @Override
+    public void clearScreen() throws IOException {
+        if(output != null) {
+            output.clearScreen();
+        }
+    }
+
+    @Override
+    public void setCursorPosition(int x, int y) throws IOException {
+        if(output != null) {
+            output.setCursorPosition(x, y);
+        }
+    }
+
+    @Override
+    public void setCursorVisible(boolean visible) throws IOException {
+        if(output != null) {
+            output.setCursorVisible(visible);
+        }
+    }
+
+    @Override
+    public void putCharacter(char c) throws IOException {
+        if(output != null) {
+            output.putCharacter(c);
+        }
+    }
+
+    @Override
+    public void enableSGR(SGR sgr) throws IOException {
+        if(output != null) {
+            output.enableSGR(sgr);
+        }
+    }
+
+    @Override
+    public void disableSGR(SGR sgr) throws IOException {
+        if(output != null) {
+            output.disableSGR(sgr);
+        }
+    }
+
+    @Override
+    public void resetColorAndSGR() throws IOException {
+        if(output != null) {
+            output.resetColorAndSGR();
+        }
+    }
+
+    @Override
+    public void setForegroundColor(TextColor color) throws IOException {
+        if(output != null) {
+            output.setForegroundColor(color);
+        }
+    }
+
+    @Override
+    public void setBackgroundColor(TextColor color) throws IOException {
+        if(output != null) {
+            output.setBackgroundColor(color);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(output != null) {
+            output.flush();
+        }
+    }
+
+    private KeyStroke nextInput(boolean blocking) throws IOException {
+        while(true) {
+            long dueTime;
+            synchronized(this) {
+                if(!nextRecord()) {
+                    return new KeyStroke(KeyType.EOF);
+                }
+                if(startTime == -1) {
+                    startTime = System.nanoTime();
+                }
+                dueTime = startTime + reader.getTime() * 1000;
+                if(!realTime || System.nanoTime() >= dueTime) {
+                    recordPending = false;
+                    if(reader.getType() == SessionLog.RECORD_INPUT) {
+                        return reader.getPayload().readKeyStroke();
+                    }
+                    else if(reader.getType() == SessionLog.RECORD_RESIZE) {
+                        applyResize();
+                    }
+                    //Recorded output is what the application drew the last time, it's drawing again now
+                    continue;
+                }
+                else if(!blocking) {
+                    return null;
+                }
+            }
+            //Sleep outside the lock so the size can be read in the meantime
+            sleepUntil(dueTime);
+        }
+    }
+
+    private boolean nextRecord() throws IOException {
+        if(!recordPending && !endOfLog) {
+            if(reader.readRecord()) {
+                recordPending = true;
+            }
+            else {
+                endOfLog = true;
+                reader.close();
+            }
+        }
+        return recordPending;
+    }
+
+    private void applyResize() throws IOException {
+        SessionLog.Decoder payload = reader.getPayload();
+        int columns = payload.readVarint();
+        int rows = payload.readVarint();
+        terminalSize = new TerminalSize(columns, rows);
+        onResized(columns, rows);
+    }
+
+    private static void playOutput(SessionLog.Decoder payload, Terminal terminal) throws IOException {
+        while(payload.hasRemaining()) {
+            int operation = payload.readByte();
+            switch(operation) {
+                case SessionLog.OPERATION_CHARACTERS:
+                    for(int count = payload.readVarint(); count > 0; count--) {
+                        terminal.putCharacter((char)payload.readVarint());
+                    }
+                    break;
+                case SessionLog.OPERATION_CURSOR_POSITION:
+                    terminal.setCursorPosition(payload.readVarint(), payload.readVarint());
+                    break;
+                case SessionLog.OPERATION_CURSOR_VISIBLE:
+                    terminal.setCursorVisible(payload.readVarint() != 0);
+                    break;
+                case SessionLog.OPERATION_ENABLE_SGR:
+                    terminal.enableSGR(SGRS[payload.readVarint()]);
+                    break;
+                case SessionLog.OPERATION_DISABLE_SGR:
+                    terminal.disableSGR(SGRS[payload.readVarint()]);
+                    break;
+                case SessionLog.OPERATION_RESET_COLOR_AND_SGR:
+                    terminal.resetColorAndSGR();
+                    break;
+                case SessionLog.OPERATION_FOREGROUND_COLOR:
+                    terminal.setForegroundColor(payload.readColor());
+                    break;
+                case SessionLog.OPERATION_BACKGROUND_COLOR:
+                    terminal.setBackgroundColor(payload.readColor());
+                    break;
+                case SessionLog.OPERATION_CLEAR_SCREEN:
+                    terminal.clearScreen();
+                    break;
+                case SessionLog.OPERATION_ENTER_PRIVATE_MODE:
+                    terminal.enterPrivateMode();
+                    break;
+                case SessionLog.OPERATION_EXIT_PRIVATE_MODE:
+                    terminal.exitPrivateMode();
+                    break;
+                default:
+                    throw new IOException("Corrupt session log, unknown output operation " + operation);
+            }
+        }
+        terminal.flush();
+    }
+
+    private static void sleepUntil(long time) throws IOException {
+        long delay = time - System.nanoTime();
+        if(delay > 0) {
+            try {
+                Thread.sleep(delay / 1000000, (int)(delay % 1000000));
+            }
+            catch(InterruptedException e) {
+                throw new IOException("Interrupted while replaying session", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import java.io.IOException;
+
+/**
+ * Describes a terminal that can move a range of its lines up or down without having to draw them again. The Screen
+ * uses this when the terminal supports it, to turn a scrolling pane into a few bytes of output instead of repainting
+ * every character in it.
+ * @author martin
+ */
+public interface Scrollable {
+    /**
+     * Moves the content of the lines between {@code firstLine} and {@code lastLine} (both inclusive) up or down. Lines
+     * moved outside of the range are discarded and the lines uncovered on the other side are cleared. If the range is
+     * empty or the distance is 0, nothing happens. Cleared lines will normally get the current background color, so
+     * reset the colors before calling this method if you want them to be blank.
+     * @param firstLine Index of the first line in the range to scroll
+     * @param lastLine Index of the last line in the range to scroll
+     * @param distance Number of lines to scroll by, a positive value moves the content up and a negative value moves
+     *                 it down
+     * @throws IOException If there was an underlying I/O error
+     */
+    void scrollLines(int firstLine, int lastLine, int distance) throws IOException;
+}
@@ -0,0 +1,369 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.PasteAction;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Binary format of the session logs written by {@code RecordingTerminal} and read by {@code ReplayTerminal}. A log
+ * starts with a four byte magic number and a version byte, followed by records that each look like this:
+ * <pre>
+ *     type (1 byte), microseconds since the previous record (varint), payload length (varint), payload
+ * </pre>
+ * Integers are unsigned LEB128 varints, so small numbers like coordinates, sizes and ASCII characters take one byte.
+ * An output record holds everything written to the terminal between two flushes, as a sequence of operations where
+ * consecutive characters are grouped together. An input record holds one key stroke and a resize record holds the new
+ * number of columns and rows.
+ * @author martin
+ */
+final class SessionLog {
+    static final byte[] MAGIC = { 'L', 'T', 'S', 'L' };
+    static final int VERSION = 1;
+
+    static final int RECORD_OUTPUT = 1;
+    static final int RECORD_INPUT = 2;
+    static final int RECORD_RESIZE = 3;
+
+    static final int OPERATION_CHARACTERS = 1;
+    static final int OPERATION_CURSOR_POSITION = 2;
+    static final int OPERATION_CURSOR_VISIBLE = 3;
+    static final int OPERATION_ENABLE_SGR = 4;
+    static final int OPERATION_DISABLE_SGR = 5;
+    static final int OPERATION_RESET_COLOR_AND_SGR = 6;
+    static final int OPERATION_FOREGROUND_COLOR = 7;
+    static final int OPERATION_BACKGROUND_COLOR = 8;
+    static final int OPERATION_CLEAR_SCREEN = 9;
+    static final int OPERATION_ENTER_PRIVATE_MODE = 10;
+    static final int OPERATION_EXIT_PRIVATE_MODE = 11;
+
+    private static final int COLOR_NONE = 0;
+    private static final int COLOR_ANSI = 1;
+    private static final int COLOR_INDEXED = 2;
+    private static final int COLOR_RGB = 3;
+
+    private static final int KEY_CTRL = 1;
+    private static final int KEY_ALT = 2;
+    private static final int KEY_CHARACTER = 4;
+    private static final int KEY_TEXT = 8;
+    private static final int KEY_MOUSE = 16;
+
+    private static final TextColor.ANSI[] ANSI_COLORS = TextColor.ANSI.values();
+    private static final KeyType[] KEY_TYPES = KeyType.values();
+
+    private SessionLog() {}
+
+    /**
+     * Growable byte array that payloads are encoded into
+     */
+    static class Encoder {
+        private byte[] bytes;
+        private int length;
+
+        Encoder(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+            this.length = 0;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        int getLength() {
+            return length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeByte(int value) {
+            if(length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte)value;
+        }
+
+        void writeVarint(int value) {
+            while((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeColor(TextColor color) {
+            if(color == null) {
+                writeByte(COLOR_NONE);
+            }
+            else if(color instanceof TextColor.ANSI) {
+                writeByte(COLOR_ANSI);
+                writeByte(((TextColor.ANSI)color).ordinal());
+            }
+            else if(color instanceof TextColor.Indexed) {
+                writeByte(COLOR_INDEXED);
+                writeByte(((TextColor.Indexed)color).getColorIndex());
+            }
+            else {
+                Color awtColor = color.toColor();
+                writeByte(COLOR_RGB);
+                writeByte(awtColor.getRed());
+                writeByte(awtColor.getGreen());
+                writeByte(awtColor.getBlue());
+            }
+        }
+
+        void writeKeyStroke(KeyStroke keyStroke) {
+            Character character = keyStroke.getCharacter();
+            writeByte(keyStroke.getKeyType().ordinal());
+            writeByte((keyStroke.isCtrlDown() ? KEY_CTRL : 0) |
+                    (keyStroke.isAltDown() ? KEY_ALT : 0) |
+                    (character != null ? KEY_CHARACTER : 0) |
+                    (keyStroke instanceof PasteAction ? KEY_TEXT : 0) |
+                    (keyStroke instanceof MouseAction ? KEY_MOUSE : 0));
+            if(character != null) {
+                writeVarint(character);
+            }
+            if(keyStroke instanceof PasteAction) {
+                String text = ((PasteAction)keyStroke).getText();
+                writeVarint(text.length());
+                for(int i = 0; i < text.length(); i++) {
+                    writeVarint(text.charAt(i));
+                }
+            }
+            if(keyStroke instanceof MouseAction) {
+                MouseAction mouseAction = (MouseAction)keyStroke;
+                writeVarint(mouseAction.getButton());
+                writeVarint(mouseAction.getPosition().getColumn());
+                writeVarint(mouseAction.getPosition().getRow());
+            }
+        }
+    }
+
+    /**
+     * Reads the values of a payload back out
+     */
+    static class Decoder {
+        private byte[] bytes;
+        private int length;
+        private int position;
+
+        Decoder() {
+            this.bytes = new byte[256];
+            this.length = 0;
+            this.position = 0;
+        }
+
+        boolean hasRemaining() {
+            return position < length;
+        }
+
+        int readByte() throws IOException {
+            if(position == length) {
+                throw new IOException("Corrupt session log, record ended unexpectedly");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt session log, varint is too long");
+        }
+
+        TextColor readColor() throws IOException {
+            int type = readByte();
+            switch(type) {
+                case COLOR_NONE:
+                    return null;
+                case COLOR_ANSI:
+                    return ANSI_COLORS[readByte()];
+                case COLOR_INDEXED:
+                    return new TextColor.Indexed(readByte());
+                case COLOR_RGB:
+                    return new TextColor.RGB(readByte(), readByte(), readByte());
+                default:
+                    throw new IOException("Corrupt session log, unknown color type " + type);
+            }
+        }
+
+        KeyStroke readKeyStroke() throws IOException {
+            KeyType keyType = KEY_TYPES[readByte()];
+            int flags = readByte();
+            boolean ctrlDown = (flags & KEY_CTRL) != 0;
+            boolean altDown = (flags & KEY_ALT) != 0;
+            if(keyType == KeyType.Character) {
+                return new KeyStroke((char)readVarint(), ctrlDown, altDown);
+            }
+            if((flags & KEY_CHARACTER) != 0) {
+                //Implied by the key type (like '\n' for Enter), the KeyStroke constructor will put it back
+                readVarint();
+            }
+            if((flags & KEY_TEXT) != 0) {
+                char[] text = new char[readVarint()];
+                for(int i = 0; i < text.length; i++) {
+                    text[i] = (char)readVarint();
+                }
+                return new PasteAction(new String(text));
+            }
+            if((flags & KEY_MOUSE) != 0) {
+                int button = readVarint();
+                TerminalPosition position = new TerminalPosition(readVarint(), readVarint());
+                return new MouseAction(keyType, button, position, ctrlDown, altDown);
+            }
+            return new KeyStroke(keyType, ctrlDown, altDown);
+        }
+    }
+
+    /**
+     * Reads the records of a session log one at a time from a channel
+     */
+    static class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final Decoder payload;
+        private boolean endOfStream;
+        private int type;
+        private long time;
+
+        Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(64 * 1024);
+            this.payload = new Decoder();
+            this.endOfStream = false;
+            this.type = 0;
+            this.time = 0;
+
+            buffer.flip();
+            if(!fill(MAGIC.length + 1)) {
+                throw new IOException("Not a session log, too short");
+            }
+            for(byte b: MAGIC) {
+                if(buffer.get() != b) {
+                    throw new IOException("Not a session log, the magic number doesn't match");
+                }
+            }
+            int version = buffer.get();
+            if(version != VERSION) {
+                throw new IOException("Unsupported session log version " + version);
+            }
+        }
+
+        /**
+         * Reads the next record
+         * @return {@code false} if there are no more records in the log
+         * @throws IOException If there was an underlying I/O error or the log is corrupt
+         */
+        boolean readRecord() throws IOException {
+            if(!fill(1)) {
+                return false;
+            }
+            type = buffer.get() & 0xFF;
+            long delta = readVarint();
+            int length = readVarint();
+            if(delta < 0 || length < 0) {
+                //A log cut off in the middle of a record, like when the recording process died, just ends there
+                return false;
+            }
+            time += delta;
+            if(payload.bytes.length < length) {
+                payload.bytes = new byte[Math.max(length, payload.bytes.length * 2)];
+            }
+            int read = 0;
+            while(read < length) {
+                if(!fill(1)) {
+                    return false;
+                }
+                int chunk = Math.min(length - read, buffer.remaining());
+                buffer.get(payload.bytes, read, chunk);
+                read += chunk;
+            }
+            payload.length = length;
+            payload.position = 0;
+            return true;
+        }
+
+        /**
+         * @return Type of the record last read, one of the {@code RECORD_} constants
+         */
+        int getType() {
+            return type;
+        }
+
+        /**
+         * @return Time of the record last read, in microseconds since the recording started
+         */
+        long getTime() {
+            return time;
+        }
+
+        /**
+         * @return Decoder for the payload of the record last read
+         */
+        Decoder getPayload() {
+            return payload;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7) {
+                if(!fill(1)) {
+                    return -1;
+                }
+                int b = buffer.get() & 0xFF;
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt session log, varint is too long");
+        }
+
+        private boolean fill(int needed) throws IOException {
+            while(buffer.remaining() < needed && !endOfStream) {
+                buffer.compact();
+                if(channel.read(buffer) < 0) {
+                    endOfStream = true;
+                }
+                buffer.flip();
+            }
+            return buffer.remaining() >= needed;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ *
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TextColor;
+
+import java.io.IOException;
+
+/**
+ * Describes a terminal that can switch to a new combination of colors and modifiers in a single operation. The Screen
+ * uses this when the terminal supports it, instead of resetting and then setting colors and modifiers one at a time.
+ * @author martin
+ */
+public interface StyleCapable {
+    /**
+     * Sets the foreground color, background color and active modifiers in one operation. Any modifier not in the mask
+     * will be turned off. This has the same effect as calling {@code resetColorAndSGR()} followed by
+     * {@code setForegroundColor(..)}, {@code setBackgroundColor(..)} and {@code enableSGR(..)} for each modifier, but
+     * the terminal implementation can send it as a single command.
+     * @param foregroundColor Color to use for the foreground
+     * @param backgroundColor Color to use for the background
+     * @param modifierMask Modifiers that should be active as a bit mask, where each {@code SGR} is represented by the
+     *                     bit {@code 1 << sgr.ordinal()}, the same format as {@code TextCharacter.getModifierMask()};
+     *                     all other modifiers are disabled
+     * @throws IOException If the was an underlying I/O error
+     */
+    void setStyle(TextColor foregroundColor, TextColor backgroundColor, int modifierMask) throws IOException;
+}
@@ -38,6 +38,12 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * If you want to write an application that has a very precise control of the terminal, this is the
  * interface you should be programming against.
+ * <p/>
+ * Terminals reading from an input stream, like the ANSI based ones, decode input on a background daemon thread. The
+ * thread is started by the first call to {@code pollInput()} or {@code readInput()} (or by anything else that needs
+ * input from the terminal, such as asking for its size) and keeps running, reading everything that arrives on the
+ * input stream, until private mode is exited. This is also the case if you never use a Screen or a GUI and only poll
+ * the terminal for input once.
  *
  * @author Martin
  */
@@ -237,7 +243,8 @@ public interface Terminal extends InputProvider {
     /**
      * Calls {@code flush()} on the underlying {@code OutputStream} object, or whatever other implementation this
      * terminal is built around. Some implementing classes of this interface (like SwingTerminal) doesn't do anything
-     * as it doesn't really apply to them.
+     * as it doesn't really apply to them. Terminals that write to a stream may keep the output in a buffer until this
+     * method is called, so always call it when you want what you've drawn to be visible.
      * @throws java.io.IOException If there was an underlying I/O error
      */
     void flush() throws IOException;
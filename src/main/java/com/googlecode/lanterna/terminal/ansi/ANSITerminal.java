@@ -18,12 +18,16 @@
  */
 package com.googlecode.lanterna.terminal.ansi;
 
+import com.googlecode.lanterna.CJKUtils;
 import com.googlecode.lanterna.SGR;
 import com.googlecode.lanterna.input.DefaultKeyDecodingProfile;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.TextColor;
 import com.googlecode.lanterna.input.KeyDecodingProfile;
+import com.googlecode.lanterna.terminal.BracketedPasteCapable;
 import com.googlecode.lanterna.terminal.ExtendedTerminal;
+import com.googlecode.lanterna.terminal.Scrollable;
+import com.googlecode.lanterna.terminal.StyleCapable;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,17 +41,55 @@ import java.nio.charset.Charset;
  * @see <a href="http://en.wikipedia.org/wiki/ANSI_escape_code">Wikipedia</a>
  * @author Martin
  */
-public abstract class ANSITerminal extends StreamBasedTerminal implements ExtendedTerminal {
+public abstract class ANSITerminal extends StreamBasedTerminal
+        implements ExtendedTerminal, Scrollable, StyleCapable, BracketedPasteCapable {
+
+    private static final SGR[] ALL_SGR = SGR.values();
+    private static final byte[] INDEXED_COLOR_PREFIX = "8;5;".getBytes();
+    private static final byte[] RGB_COLOR_PREFIX = "8;2;".getBytes();
 
     private boolean inPrivateMode;
+    private boolean bracketedPasteEnabled;
+    private boolean mouseMovementCapturing;
+    private boolean mouseClicksCapturing;
+
+    //Where we believe the cursor is, or -1 if we don't know; guarded by writerMutex
+    private int cursorColumn;
+    private int cursorRow;
+    //High surrogate written last, its width depends on the low surrogate that follows; 0 if none, guarded by writerMutex
+    private char pendingHighSurrogate;
+    //Last size reported through onResized(..), the cursor position is only trusted when it's inside this area
+    private volatile int knownColumns;
+    private volatile int knownRows;
+    //Number of escape sequences buffered so far, written under writerMutex
+    private volatile long escapeSequencesWritten;
 
     @SuppressWarnings("WeakerAccess")
     protected ANSITerminal(InputStream terminalInput, OutputStream terminalOutput, Charset terminalCharset) {
         super(terminalInput, terminalOutput, terminalCharset);
         this.inPrivateMode = false;
+        this.bracketedPasteEnabled = false;
+        this.mouseMovementCapturing = false;
+        this.mouseClicksCapturing = false;
+        this.cursorColumn = -1;
+        this.cursorRow = -1;
+        this.pendingHighSurrogate = 0;
+        this.knownColumns = 0;
+        this.knownRows = 0;
+        this.escapeSequencesWritten = 0;
         addKeyDecodingProfile(getDefaultKeyDecodingProfile());
     }
 
+    /**
+     * Returns the total number of escape sequences (control sequences and operating system commands) this terminal
+     * has sent or buffered for sending. Together with {@code getBytesWritten()} this gives an idea of how expensive the
+     * output is for the terminal emulator to process.
+     * @return Number of escape sequences written to the terminal
+     */
+    public long getEscapeSequencesWritten() {
+        return escapeSequencesWritten;
+    }
+
     /**
      * This method can be overridden in a custom terminal implementation to change the default key decoders.
      * @return The KeyDecodingProfile used by the terminal when translating character sequences to keystrokes
@@ -57,37 +99,236 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
     }
 
     private void writeCSISequenceToTerminal(byte... tail) throws IOException {
-        byte[] completeSequence = new byte[tail.length + 2];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)'[';
-        System.arraycopy(tail, 0, completeSequence, 2, tail.length);
-        writeToTerminal(completeSequence);
+        synchronized(writerMutex) {
+            bufferCSI();
+            bufferBytes(tail);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    private void writeCSISequenceToTerminal(int parameter, char command) throws IOException {
+        synchronized(writerMutex) {
+            bufferCSI();
+            bufferNumber(parameter);
+            bufferByte(command);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    private void writeCSISequenceToTerminal(int parameter1, int parameter2, char command) throws IOException {
+        synchronized(writerMutex) {
+            bufferCSI();
+            bufferNumber(parameter1);
+            bufferByte(';');
+            bufferNumber(parameter2);
+            bufferByte(command);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    private void writePrivateModeSequenceToTerminal(int mode, boolean enable) throws IOException {
+        synchronized(writerMutex) {
+            bufferCSI();
+            bufferByte('?');
+            bufferNumber(mode);
+            bufferByte(enable ? 'h' : 'l');
+            writeIfAboveHighWaterMark();
+        }
     }
 
-    private void writeSGRSequenceToTerminal(byte... sgrParameters) throws IOException {
-        byte[] completeSequence = new byte[sgrParameters.length + 3];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)'[';
-        completeSequence[completeSequence.length - 1] = (byte)'m';
-        System.arraycopy(sgrParameters, 0, completeSequence, 2, sgrParameters.length);
-        writeToTerminal(completeSequence);
+    private void writeColorSequenceToTerminal(TextColor color, boolean foreground) throws IOException {
+        synchronized(writerMutex) {
+            bufferCSI();
+            bufferColorParameters(color, foreground);
+            bufferByte('m');
+            writeIfAboveHighWaterMark();
+        }
     }
 
     private void writeOSCSequenceToTerminal(byte... tail) throws IOException {
-        byte[] completeSequence = new byte[tail.length + 2];
-        completeSequence[0] = (byte)0x1b;
-        completeSequence[1] = (byte)']';
-        System.arraycopy(tail, 0, completeSequence, 2, tail.length);
-        writeToTerminal(completeSequence);
+        synchronized(writerMutex) {
+            escapeSequencesWritten++;
+            bufferByte(0x1b);
+            bufferByte(']');
+            bufferBytes(tail);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    /**
+     * Writes a cursor movement sequence, leaving out the parameter if it's 1 since that's the default. Synchronize with
+     * writerMutex externally!!!
+     */
+    private void bufferCursorMovement(int distance, char command) {
+        bufferCSI();
+        if(distance != 1) {
+            bufferNumber(distance);
+        }
+        bufferByte(command);
+    }
+
+    /**
+     * Returns the number of bytes needed to write a CSI sequence with a single optional numeric parameter
+     */
+    private static int getCursorMovementLength(int distance) {
+        if(distance == 1) {
+            return 3;
+        }
+        return 3 + getNumberLength(distance);
+    }
+
+    private static int getNumberLength(int number) {
+        int length = 1;
+        while(number >= 10) {
+            number /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Marks the cursor position as unknown, the next call to {@code setCursorPosition(..)} will then always send an
+     * absolute positioning sequence. Synchronize with writerMutex externally!!!
+     */
+    private void forgetCursorPosition() {
+        cursorColumn = -1;
+        cursorRow = -1;
+        pendingHighSurrogate = 0;
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    private void bufferCSI() {
+        escapeSequencesWritten++;
+        bufferByte(0x1b);
+        bufferByte('[');
+    }
+
+    /**
+     * Writes the SGR parameters selecting a color, without the surrounding CSI and 'm'. Synchronize with writerMutex
+     * externally!!!
+     */
+    void bufferColorParameters(TextColor color, boolean foreground) {
+        if(color instanceof TextColor.ANSI) {
+            //The standard colors are the most common, so make sure they don't need any lookups or allocations
+            bufferByte(foreground ? '3' : '4');
+            bufferByte(color == TextColor.ANSI.DEFAULT ? '9' : '0' + ((TextColor.ANSI)color).ordinal());
+        }
+        else if(color instanceof TextColor.Indexed) {
+            bufferByte(foreground ? '3' : '4');
+            bufferBytes(INDEXED_COLOR_PREFIX);
+            bufferNumber(((TextColor.Indexed)color).getColorIndex());
+        }
+        else if(color instanceof TextColor.RGB) {
+            TextColor.RGB rgb = (TextColor.RGB)color;
+            bufferByte(foreground ? '3' : '4');
+            bufferBytes(RGB_COLOR_PREFIX);
+            bufferNumber(rgb.getRed());
+            bufferByte(';');
+            bufferNumber(rgb.getGreen());
+            bufferByte(';');
+            bufferNumber(rgb.getBlue());
+        }
+        else {
+            bufferBytes(foreground ? color.getForegroundSGRSequence() : color.getBackgroundSGRSequence());
+        }
+    }
+
+    /**
+     * Returns the SGR parameter that turns on or off a particular modifier
+     * @param sgr Modifier to get the parameter for
+     * @param enable If {@code true}, return the parameter that enables the modifier, otherwise the one that disables it
+     * @return SGR parameter number
+     */
+    static int getSGRParameter(SGR sgr, boolean enable) {
+        switch(sgr) {
+            case BLINK:
+                return enable ? 5 : 25;
+            case BOLD:
+                return enable ? 1 : 22;
+            case BORDERED:
+                return enable ? 51 : 54;
+            case CIRCLED:
+                return enable ? 52 : 54;
+            case CROSSED_OUT:
+                return enable ? 9 : 29;
+            case FRAKTUR:
+                return enable ? 20 : 23;
+            case REVERSE:
+                return enable ? 7 : 27;
+            case UNDERLINE:
+                return enable ? 4 : 24;
+            default:
+                throw new IllegalArgumentException("Unknown SGR " + sgr);
+        }
+    }
+
+    @Override
+    protected synchronized void onResized(int columns, int rows) {
+        knownColumns = columns;
+        knownRows = rows;
+        super.onResized(columns, rows);
+    }
+
+    /**
+     * Writes a character to the terminal and keeps track of where the cursor ends up, so that subsequent calls to
+     * {@code setCursorPosition(..)} can use the cheapest sequence available.
+     * @param c Character to write to the output stream
+     * @throws IOException If there was an underlying I/O error
+     */
+    @Override
+    public void putCharacter(char c) throws IOException {
+        synchronized(writerMutex) {
+            super.putCharacter(c);
+            if(cursorColumn == -1) {
+                return;
+            }
+            if(c < 0x20 || c == 0x7f) {
+                //Control characters can move the cursor in ways we don't want to guess
+                forgetCursorPosition();
+                return;
+            }
+            if(pendingHighSurrogate != 0 && !Character.isLowSurrogate(c)) {
+                //A high surrogate on its own, assume the terminal prints something narrow for it
+                cursorColumn++;
+            }
+            if(Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+                return;
+            }
+            if(pendingHighSurrogate != 0 && Character.isLowSurrogate(c)) {
+                cursorColumn += CJKUtils.getColumnWidth(Character.toCodePoint(pendingHighSurrogate, c));
+            }
+            else {
+                cursorColumn += CJKUtils.getColumnWidth(c);
+            }
+            pendingHighSurrogate = 0;
+            if(cursorColumn >= knownColumns) {
+                //The cursor is now in the last column or has wrapped, terminals differ too much in how they handle this
+                forgetCursorPosition();
+            }
+        }
+    }
+
+    @Override
+    protected void writeToTerminal(byte... bytes) throws IOException {
+        synchronized(writerMutex) {
+            //We don't know what these bytes will do to the cursor
+            forgetCursorPosition();
+            super.writeToTerminal(bytes);
+        }
     }
 
     @Override
     public TerminalSize getTerminalSize() throws IOException {
+        long previousReport = expectTerminalSizeReport();
         saveCursorPosition();
         setCursorPosition(5000, 5000);
         reportPosition();
         restoreCursorPosition();
-        return waitForTerminalSizeReport();
+        flush();
+        return waitForTerminalSizeReport(previousReport);
     }
 
     @Override
@@ -108,82 +349,61 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
 
     @Override
     public void setForegroundColor(TextColor color) throws IOException {
-        writeSGRSequenceToTerminal(color.getForegroundSGRSequence());
+        writeColorSequenceToTerminal(color, true);
     }
 
     @Override
     public void setBackgroundColor(TextColor color) throws IOException {
-        writeSGRSequenceToTerminal(color.getBackgroundSGRSequence());
+        writeColorSequenceToTerminal(color, false);
     }
 
     @Override
     public void enableSGR(SGR sgr) throws IOException {
-        switch(sgr) {
-            case BLINK:
-                writeCSISequenceToTerminal((byte) '5', (byte) 'm');
-                break;
-            case BOLD:
-                writeCSISequenceToTerminal((byte) '1', (byte) 'm');
-                break;
-            case BORDERED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '1', (byte) 'm');
-                break;
-            case CIRCLED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '2', (byte) 'm');
-                break;
-            case CROSSED_OUT:
-                writeCSISequenceToTerminal((byte) '9', (byte) 'm');
-                break;
-            case FRAKTUR:
-                writeCSISequenceToTerminal((byte) '2', (byte) '0', (byte) 'm');
-                break;
-            case REVERSE:
-                writeCSISequenceToTerminal((byte) '7', (byte) 'm');
-                break;
-            case UNDERLINE:
-                writeCSISequenceToTerminal((byte) '4', (byte) 'm');
-                break;
-        }
+        writeCSISequenceToTerminal(getSGRParameter(sgr, true), 'm');
     }
 
     @Override
     public void disableSGR(SGR sgr) throws IOException {
-        switch(sgr) {
-            case BLINK:
-                writeCSISequenceToTerminal((byte) '2', (byte) '5', (byte) 'm');
-                break;
-            case BOLD:
-                writeCSISequenceToTerminal((byte) '2', (byte) '2', (byte) 'm');
-                break;
-            case BORDERED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '4', (byte) 'm');
-                break;
-            case CIRCLED:
-                writeCSISequenceToTerminal((byte) '5', (byte) '4', (byte) 'm');
-                break;
-            case CROSSED_OUT:
-                writeCSISequenceToTerminal((byte) '2', (byte) '9', (byte) 'm');
-                break;
-            case FRAKTUR:
-                writeCSISequenceToTerminal((byte) '2', (byte) '3', (byte) 'm');
-                break;
-            case REVERSE:
-                writeCSISequenceToTerminal((byte) '2', (byte) '7', (byte) 'm');
-                break;
-            case UNDERLINE:
-                writeCSISequenceToTerminal((byte) '2', (byte) '4', (byte) 'm');
-                break;
+        writeCSISequenceToTerminal(getSGRParameter(sgr, false), 'm');
+    }
+
+    @Override
+    public void setStyle(TextColor foregroundColor, TextColor backgroundColor, int modifierMask) throws IOException {
+        synchronized(writerMutex) {
+            //Start with a reset, then we only need to add what differs from the defaults
+            bufferCSI();
+            bufferByte('0');
+            if(foregroundColor != null && foregroundColor != TextColor.ANSI.DEFAULT) {
+                bufferByte(';');
+                bufferColorParameters(foregroundColor, true);
+            }
+            if(backgroundColor != null && backgroundColor != TextColor.ANSI.DEFAULT) {
+                bufferByte(';');
+                bufferColorParameters(backgroundColor, false);
+            }
+            for(SGR sgr: ALL_SGR) {
+                if((modifierMask & (1 << sgr.ordinal())) != 0) {
+                    bufferByte(';');
+                    bufferNumber(getSGRParameter(sgr, true));
+                }
+            }
+            bufferByte('m');
+            writeIfAboveHighWaterMark();
         }
     }
 
     @Override
     public void resetColorAndSGR() throws IOException {
-        writeCSISequenceToTerminal((byte) '0', (byte) 'm');
+        writeCSISequenceToTerminal(0, 'm');
     }
 
     @Override
     public void clearScreen() throws IOException {
-        writeCSISequenceToTerminal((byte) '2', (byte) 'J');
+        synchronized(writerMutex) {
+            //Not all terminals agree on where the cursor ends up after clearing the screen
+            forgetCursorPosition();
+            writeCSISequenceToTerminal(2, 'J');
+        }
     }
 
     @Override
@@ -191,7 +411,10 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         if(inPrivateMode) {
             throw new IllegalStateException("Cannot call enterPrivateMode() when already in private mode");
         }
-        writeCSISequenceToTerminal((byte) '?', (byte) '1', (byte) '0', (byte) '4', (byte) '9', (byte) 'h');
+        synchronized(writerMutex) {
+            forgetCursorPosition();
+            writePrivateModeSequenceToTerminal(1049, true);
+        }
         inPrivateMode = true;
     }
 
@@ -202,18 +425,184 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
         }
         resetColorAndSGR();
         setCursorVisible(true);
-        writeCSISequenceToTerminal((byte) '?', (byte) '1', (byte) '0', (byte) '4', (byte) '9', (byte) 'l');
+        if(bracketedPasteEnabled) {
+            //Don't leave the shell with pastes it doesn't expect
+            setBracketedPasteEnabled(false);
+        }
+        synchronized(writerMutex) {
+            forgetCursorPosition();
+            writePrivateModeSequenceToTerminal(1049, false);
+        }
         inPrivateMode = false;
+        //This is typically the last thing that happens before the application exits, make sure it reaches the terminal
+        flush();
+        //Let whatever comes next in the program have the input
+        stopInputReader();
     }
 
+    /**
+     * Moves the text cursor to a new location. If the terminal knows where the cursor currently is, it will pick the
+     * shortest sequence among absolute positioning (CUP), relative movements (CUU/CUD/CUF/CUB) and carriage return
+     * combined with line feeds or a forward movement. If the cursor is already at the requested location, nothing is
+     * written at all.
+     * @param x The 0-indexed column to place the cursor at
+     * @param y The 0-indexed row to place the cursor at
+     * @throws IOException If there was an underlying I/O error
+     */
     @Override
     public void setCursorPosition(int x, int y) throws IOException {
-        writeCSISequenceToTerminal(((y + 1) + ";" + (x + 1) + "H").getBytes());
+        synchronized(writerMutex) {
+            bufferCursorPosition(x, y);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    private void bufferCursorPosition(int x, int y) {
+        int columns = knownColumns;
+        int rows = knownRows;
+        boolean targetInside = x >= 0 && y >= 0 && x < columns && y < rows;
+        boolean cursorKnown = cursorColumn != -1 && cursorColumn < columns && cursorRow < rows;
+        if(!targetInside) {
+            //Probably a deliberate out-of-bounds move (like when querying the size), the terminal will clamp it
+            forgetCursorPosition();
+            bufferAbsoluteCursorPosition(x, y);
+            return;
+        }
+        if(!cursorKnown) {
+            bufferAbsoluteCursorPosition(x, y);
+        }
+        else if(cursorColumn != x || cursorRow != y) {
+            bufferCheapestCursorMovement(x, y);
+        }
+        cursorColumn = x;
+        cursorRow = y;
+        pendingHighSurrogate = 0;
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    private void bufferAbsoluteCursorPosition(int x, int y) {
+        bufferCSI();
+        if(x == 0 && y == 0) {
+            bufferByte('H');
+        }
+        else if(x == 0) {
+            bufferNumber(y + 1);
+            bufferByte('H');
+        }
+        else {
+            bufferNumber(y + 1);
+            bufferByte(';');
+            bufferNumber(x + 1);
+            bufferByte('H');
+        }
+    }
+
+    /**
+     * Picks between absolute and relative cursor movement from the current (known) cursor position. Synchronize with
+     * writerMutex externally!!!
+     */
+    private void bufferCheapestCursorMovement(int x, int y) {
+        int absoluteCost;
+        if(x == 0 && y == 0) {
+            absoluteCost = 3;
+        }
+        else if(x == 0) {
+            absoluteCost = 3 + getNumberLength(y + 1);
+        }
+        else {
+            absoluteCost = 4 + getNumberLength(y + 1) + getNumberLength(x + 1);
+        }
+
+        int verticalCost = y == cursorRow ? 0 : getCursorMovementLength(Math.abs(y - cursorRow));
+        int relativeCost = verticalCost + (x == cursorColumn ? 0 : getCursorMovementLength(Math.abs(x - cursorColumn)));
+
+        //Carriage return first brings us to column 0, from there we can go down with line feeds (only if moving down a
+        //few lines, we don't want to risk scrolling) and/or forward again
+        int carriageReturnCost = 1 + (x == 0 ? 0 : getCursorMovementLength(x));
+        if(y > cursorRow && y - cursorRow <= 4) {
+            carriageReturnCost += y - cursorRow;
+        }
+        else {
+            carriageReturnCost += verticalCost;
+        }
+
+        if(absoluteCost <= relativeCost && absoluteCost <= carriageReturnCost) {
+            bufferAbsoluteCursorPosition(x, y);
+        }
+        else if(carriageReturnCost < relativeCost) {
+            bufferByte('\r');
+            if(y > cursorRow && y - cursorRow <= 4) {
+                for(int i = cursorRow; i < y; i++) {
+                    bufferByte('\n');
+                }
+            }
+            else if(y != cursorRow) {
+                bufferCursorMovement(Math.abs(y - cursorRow), y < cursorRow ? 'A' : 'B');
+            }
+            if(x != 0) {
+                bufferCursorMovement(x, 'C');
+            }
+        }
+        else {
+            if(y != cursorRow) {
+                bufferCursorMovement(Math.abs(y - cursorRow), y < cursorRow ? 'A' : 'B');
+            }
+            if(x != cursorColumn) {
+                bufferCursorMovement(Math.abs(x - cursorColumn), x < cursorColumn ? 'D' : 'C');
+            }
+        }
+    }
+
+    /**
+     * Scrolls a range of lines. If the range reaches the bottom of the terminal, this is done by deleting (DL) or
+     * inserting (IL) lines at the top of the range, otherwise the range is set as the scrolling region (DECSTBM) and
+     * scrolled with SU or SD before the scrolling region is reset again. In both cases the cursor position is undefined
+     * afterwards.
+     * @param firstLine Index of the first line in the range to scroll
+     * @param lastLine Index of the last line in the range to scroll
+     * @param distance Number of lines to scroll by, a positive value moves the content up and a negative value moves
+     *                 it down
+     * @throws IOException If there was an underlying I/O error
+     */
+    @Override
+    public void scrollLines(int firstLine, int lastLine, int distance) throws IOException {
+        int rows = knownRows;
+        firstLine = Math.max(0, firstLine);
+        if(rows > 0) {
+            lastLine = Math.min(rows - 1, lastLine);
+        }
+        if(distance == 0 || lastLine < firstLine) {
+            return;
+        }
+        int lines = Math.min(Math.abs(distance), lastLine - firstLine + 1);
+        synchronized(writerMutex) {
+            if(lastLine == rows - 1) {
+                bufferCursorPosition(0, firstLine);
+                bufferCursorMovement(lines, distance > 0 ? 'M' : 'L');
+            }
+            else {
+                bufferCSI();
+                bufferNumber(firstLine + 1);
+                bufferByte(';');
+                bufferNumber(lastLine + 1);
+                bufferByte('r');
+                bufferCursorMovement(lines, distance > 0 ? 'S' : 'T');
+                bufferCSI();
+                bufferByte('r');
+            }
+            forgetCursorPosition();
+            writeIfAboveHighWaterMark();
+        }
     }
 
     @Override
     public void setCursorVisible(boolean visible) throws IOException {
-        writeCSISequenceToTerminal(("?25" + (visible ? "h" : "l")).getBytes());
+        writePrivateModeSequenceToTerminal(25, visible);
     }
 
     @Override
@@ -228,44 +617,57 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
 
     @Override
     public void iconify() throws IOException {
-        writeCSISequenceToTerminal((byte)'2', (byte)'t');
+        writeCSISequenceToTerminal(2, 't');
     }
 
     @Override
     public void deiconify() throws IOException {
-        writeCSISequenceToTerminal((byte)'1', (byte)'t');
+        writeCSISequenceToTerminal(1, 't');
     }
 
     @Override
     public void maximize() throws IOException {
-        writeCSISequenceToTerminal((byte)'9', (byte)';', (byte)'1', (byte)'t');
+        writeCSISequenceToTerminal(9, 1, 't');
     }
 
     @Override
     public void unmaximize() throws IOException {
-        writeCSISequenceToTerminal((byte)'9', (byte)';', (byte)'0', (byte)'t');
+        writeCSISequenceToTerminal(9, 0, 't');
     }
 
     @Override
     public void setMouseMovementCapturingEnabled(boolean enabled) throws IOException {
-        if(enabled) {
-            writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'3', (byte)'h');
-        }
-        else {
-            writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'3', (byte)'l');
+        synchronized(writerMutex) {
+            writePrivateModeSequenceToTerminal(1003, enabled);
+            mouseMovementCapturing = enabled;
+            updateSGRMouseEncoding();
         }
     }
 
     @Override
     public void setMouseClicksCapturingEnabled(boolean enabled) throws IOException {
-        if(enabled) {
-            writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'0', (byte)'h');
-        }
-        else {
-            writeCSISequenceToTerminal((byte)'?', (byte)'1', (byte)'0', (byte)'0', (byte)'0', (byte)'l');
+        synchronized(writerMutex) {
+            writePrivateModeSequenceToTerminal(1000, enabled);
+            mouseClicksCapturing = enabled;
+            updateSGRMouseEncoding();
         }
     }
 
+    /**
+     * Asks for mouse reports in the SGR encoding (mode 1006) while any mouse capturing is on, since the legacy encoding
+     * can't report coordinates past column and row 223. Terminals that don't know the mode ignore it and keep sending
+     * the legacy encoding, both are decoded. Synchronize with writerMutex externally!!!
+     */
+    private void updateSGRMouseEncoding() throws IOException {
+        writePrivateModeSequenceToTerminal(1006, mouseMovementCapturing || mouseClicksCapturing);
+    }
+
+    @Override
+    public void setBracketedPasteEnabled(boolean enabled) throws IOException {
+        writePrivateModeSequenceToTerminal(2004, enabled);
+        bracketedPasteEnabled = enabled;
+    }
+
     /**
      * Method to test if the terminal (as far as the library knows) is in private mode.
      *
@@ -279,14 +681,17 @@ public abstract class ANSITerminal extends StreamBasedTerminal implements Extend
      * Synchronize with writerMutex externally!!!
      */
     void reportPosition() throws IOException {
-        writeCSISequenceToTerminal("6n".getBytes());
+        writeCSISequenceToTerminal(6, 'n');
     }
 
     /**
      * Synchronize with writerMutex externally!!!
      */
     void restoreCursorPosition() throws IOException {
-        writeCSISequenceToTerminal("u".getBytes());
+        synchronized(writerMutex) {
+            forgetCursorPosition();
+            writeCSISequenceToTerminal("u".getBytes());
+        }
     }
 
     /**
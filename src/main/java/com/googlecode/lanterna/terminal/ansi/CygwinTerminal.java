@@ -51,10 +51,7 @@ public class CygwinTerminal extends UnixLikeTerminal {
         //Make sure to set an initial size
         onResized(80, 24);
 
-        saveSTTY();
-        setCBreak(true);
-        setEcho(false);
-        sttyMinimum1CharacterForRead();
+        setupSTTY();
         setupShutdownHook();
     }
 
@@ -77,17 +74,17 @@ public class CygwinTerminal extends UnixLikeTerminal {
 
     @Override
     protected void sttyKeyEcho(final boolean enable) throws IOException {
-        runSTTYCommand(enable ? "echo" : "-echo");
+        stty(enable ? "echo" : "-echo");
     }
 
     @Override
     protected void sttyMinimum1CharacterForRead() throws IOException {
-        runSTTYCommand("min", "1");
+        stty("min", "1");
     }
 
     @Override
     protected void sttyICanon(final boolean enable) throws IOException {
-        runSTTYCommand(enable ? "icanon" : "cbreak");
+        stty(enable ? "icanon" : "cbreak");
     }
 
     @Override
@@ -97,14 +94,15 @@ public class CygwinTerminal extends UnixLikeTerminal {
 
     @Override
     protected void sttyRestore(String tok) throws IOException {
-        runSTTYCommand(tok);
+        stty(tok);
     }
 
     protected String findSTTY() {
         return STTY_LOCATION;
     }
 
-    private String runSTTYCommand(String... parameters) throws IOException {
+    @Override
+    protected String runSTTYCommand(String... parameters) throws IOException {
         List<String> commandLine = new ArrayList<String>(Arrays.asList(
                 findSTTY(),
                 "-F",
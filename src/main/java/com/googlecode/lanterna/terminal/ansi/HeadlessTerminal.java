@@ -0,0 +1,1093 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+import com.googlecode.lanterna.CJKUtils;
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.Symbols;
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import com.googlecode.lanterna.graphics.BasicTextImage;
+import com.googlecode.lanterna.graphics.TextImage;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.PasteAction;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Terminal that emulates an ANSI terminal in memory, without any window or tty. Everything the {@code ANSITerminal}
+ * code writes is decoded and parsed, escape sequences and all, into a grid of characters that you can inspect through
+ * {@code getTextImage()}, {@code getCharacterAt(..)} and {@code getCursorPosition()}. Input is scripted: whatever is
+ * passed to one of the {@code addInput(..)} methods is what the terminal reads, just like if the user had typed it.
+ * <p/>
+ * Since there's no real terminal to wait for, this is useful for benchmarking the whole output path at full speed and
+ * for checking that what an application draws actually ends up where it should on the screen. The emulation covers
+ * what lanterna itself uses, which is most of what xterm does with text: cursor movement, colors (including indexed
+ * and RGB colors), modifiers, erasing, scrolling regions, inserting and deleting lines and characters, the alternate
+ * screen buffer, saving and restoring the cursor, the DEC line drawing character set and the window title. Cursor
+ * position requests are answered through the input, like a real terminal does.
+ * @author martin
+ */
+public class HeadlessTerminal extends ANSITerminal {
+    private final Emulator emulator;
+    private final ScriptedInputStream scriptedInput;
+
+    /**
+     * Creates a new headless terminal of a particular size, using UTF-8
+     * @param initialSize Size of the emulated terminal
+     */
+    public HeadlessTerminal(TerminalSize initialSize) {
+        this(initialSize, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Creates a new headless terminal of a particular size, using a custom character set
+     * @param initialSize Size of the emulated terminal
+     * @param terminalCharset Character set used between lanterna and the emulated terminal
+     */
+    public HeadlessTerminal(TerminalSize initialSize, Charset terminalCharset) {
+        this(new ScriptedInputStream(), initialSize, terminalCharset);
+    }
+
+    private HeadlessTerminal(ScriptedInputStream scriptedInput, TerminalSize initialSize, Charset terminalCharset) {
+        this(scriptedInput, new Emulator(scriptedInput, initialSize, terminalCharset), terminalCharset);
+    }
+
+    private HeadlessTerminal(ScriptedInputStream scriptedInput, Emulator emulator, Charset terminalCharset) {
+        super(scriptedInput, emulator, terminalCharset);
+        this.scriptedInput = scriptedInput;
+        this.emulator = emulator;
+        this.emulator.terminal = this;
+        onResized(emulator.columns, emulator.rows);
+    }
+
+    @Override
+    public TerminalSize getTerminalSize() throws IOException {
+        //Anything still in the output buffer, like a resize request, should be applied first
+        flush();
+        synchronized(emulator) {
+            return new TerminalSize(emulator.columns, emulator.rows);
+        }
+    }
+
+    /**
+     * Changes the size of the emulated terminal, like when the user resizes the window of a terminal emulator. The
+     * content is kept as far as it fits and resize listeners are notified.
+     * @param newSize New size of the terminal
+     */
+    public void resize(TerminalSize newSize) {
+        synchronized(emulator) {
+            emulator.resize(newSize.getColumns(), newSize.getRows());
+        }
+        onResized(newSize.getColumns(), newSize.getRows());
+    }
+
+    /**
+     * Returns a copy of what the emulated terminal is currently showing. Note that output is buffered by the terminal
+     * until it's flushed, anything not yet flushed is not included.
+     * @return Copy of the content of the terminal
+     */
+    public TextImage getTextImage() {
+        synchronized(emulator) {
+            BasicTextImage copy = new BasicTextImage(emulator.columns, emulator.rows);
+            emulator.image.copyTo(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Returns the character currently shown at a particular position of the emulated terminal
+     * @param column Column of the character
+     * @param row Row of the character
+     * @return Character at the position, or {@code null} if the position is outside the terminal
+     */
+    public TextCharacter getCharacterAt(int column, int row) {
+        synchronized(emulator) {
+            return emulator.image.getCharacterAt(column, row);
+        }
+    }
+
+    /**
+     * Returns the text on one row of the emulated terminal, without colors or modifiers and with trailing spaces
+     * removed. The padding after a CJK character is left out, so the string is shorter than the number of columns the
+     * row takes up.
+     * @param row Row to get the text from
+     * @return Text on the row
+     */
+    public String getLine(int row) {
+        synchronized(emulator) {
+            StringBuilder line = new StringBuilder();
+            for(int column = 0; column < emulator.columns; column++) {
+                char c = emulator.image.getCharacterAt(column, row).getCharacter();
+                line.append(c);
+                if(CJKUtils.isCharCJK(c)) {
+                    column++;
+                }
+            }
+            int length = line.length();
+            while(length > 0 && line.charAt(length - 1) == ' ') {
+                length--;
+            }
+            line.setLength(length);
+            return line.toString();
+        }
+    }
+
+    /**
+     * Returns where the emulated terminal has its cursor
+     * @return Position of the cursor
+     */
+    public TerminalPosition getCursorPosition() {
+        synchronized(emulator) {
+            return new TerminalPosition(emulator.cursorColumn, emulator.cursorRow);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the cursor of the emulated terminal is visible
+     * @return {@code true} if the cursor is visible
+     */
+    public boolean isCursorVisible() {
+        synchronized(emulator) {
+            return emulator.cursorVisible;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the emulated terminal is showing the alternate screen buffer, which is what private mode
+     * switches to
+     * @return {@code true} if the alternate screen buffer is active
+     */
+    public boolean isAlternateScreenActive() {
+        synchronized(emulator) {
+            return emulator.image == emulator.alternateImage;
+        }
+    }
+
+    /**
+     * Returns the window title last set on the emulated terminal
+     * @return Title of the terminal, empty if none has been set
+     */
+    public String getTitle() {
+        synchronized(emulator) {
+            return emulator.title;
+        }
+    }
+
+    /**
+     * Adds raw bytes to the input of the terminal, they will be decoded just like if they came from a real terminal
+     * @param bytes Bytes to add to the input
+     */
+    public void addInput(byte[] bytes) {
+        scriptedInput.add(bytes);
+    }
+
+    /**
+     * Adds text to the input of the terminal, as if the user typed it. The text can contain escape sequences.
+     * @param text Text to add to the input
+     */
+    public void addInput(String text) {
+        scriptedInput.add(text.getBytes(emulator.charset));
+    }
+
+    /**
+     * Adds a key stroke to the input of the terminal, encoded the way xterm would send it
+     * @param keyStroke Key stroke to add to the input
+     * @throws IllegalArgumentException If the key stroke is of a type that a terminal can't send, like
+     * {@code KeyType.EOF} (use {@code closeInput()} for that)
+     */
+    public void addInput(KeyStroke keyStroke) {
+        if(keyStroke instanceof PasteAction) {
+            paste(((PasteAction)keyStroke).getText());
+        }
+        else if(keyStroke instanceof MouseAction) {
+            boolean sgrMouseEncoding;
+            synchronized(emulator) {
+                sgrMouseEncoding = emulator.sgrMouseEncoding;
+            }
+            addInput(encodeMouseAction((MouseAction)keyStroke, sgrMouseEncoding));
+        }
+        else {
+            addInput(encodeKeyStroke(keyStroke));
+        }
+    }
+
+    /**
+     * Adds text to the input of the terminal as if the user pasted it. Line breaks arrive as {@code '\n'}, like they
+     * do from a terminal through a tty that translates carriage returns. If the application has turned on bracketed
+     * paste mode, the text is surrounded by the paste markers.
+     * @param text Text to paste
+     */
+    public void paste(String text) {
+        String pasted = text.replace("\r\n", "\n").replace('\r', '\n');
+        boolean bracketedPaste;
+        synchronized(emulator) {
+            bracketedPaste = emulator.bracketedPaste;
+        }
+        addInput(bracketedPaste ? "\033[200~" + pasted + "\033[201~" : pasted);
+    }
+
+    /**
+     * Closes the input, once everything that has been added has been read, the terminal will report end of file
+     */
+    public void closeInput() {
+        scriptedInput.close();
+    }
+
+    private static String encodeKeyStroke(KeyStroke keyStroke) {
+        String prefix = keyStroke.isAltDown() ? "\033" : "";
+        boolean ctrl = keyStroke.isCtrlDown();
+        switch(keyStroke.getKeyType()) {
+            case Character:
+                char c = keyStroke.getCharacter();
+                if(ctrl && c >= '@' && c <= '~' && c != '`') {
+                    c = (char)(c & 0x1f);
+                }
+                return prefix + c;
+            case Escape: return prefix + "\033";
+            case Backspace: return prefix + "\u007f";
+            case Tab: return prefix + "\t";
+            case ReverseTab: return prefix + "\033[Z";
+            case Enter: return prefix + "\r";
+            case ArrowUp: return prefix + (ctrl ? "\033[1;5A" : "\033[A");
+            case ArrowDown: return prefix + (ctrl ? "\033[1;5B" : "\033[B");
+            case ArrowRight: return prefix + (ctrl ? "\033[1;5C" : "\033[C");
+            case ArrowLeft: return prefix + (ctrl ? "\033[1;5D" : "\033[D");
+            case Insert: return prefix + "\033[2~";
+            case Delete: return prefix + "\033[3~";
+            case Home: return prefix + "\033[H";
+            case End: return prefix + "\033[F";
+            case PageUp: return prefix + "\033[5~";
+            case PageDown: return prefix + "\033[6~";
+            case F1: return prefix + (ctrl ? "\033[1;5P" : "\033OP");
+            case F2: return prefix + (ctrl ? "\033[1;5Q" : "\033OQ");
+            case F3: return prefix + (ctrl ? "\033[1;5R" : "\033OR");
+            case F4: return prefix + (ctrl ? "\033[1;5S" : "\033OS");
+            case F5: return prefix + functionKey(15, ctrl);
+            case F6: return prefix + functionKey(17, ctrl);
+            case F7: return prefix + functionKey(18, ctrl);
+            case F8: return prefix + functionKey(19, ctrl);
+            case F9: return prefix + functionKey(20, ctrl);
+            case F10: return prefix + functionKey(21, ctrl);
+            case F11: return prefix + functionKey(23, ctrl);
+            case F12: return prefix + functionKey(24, ctrl);
+            case F13: return prefix + functionKey(25, ctrl);
+            case F14: return prefix + functionKey(26, ctrl);
+            case F15: return prefix + functionKey(28, ctrl);
+            case F16: return prefix + functionKey(29, ctrl);
+            case F17: return prefix + functionKey(31, ctrl);
+            case F18: return prefix + functionKey(32, ctrl);
+            case F19: return prefix + functionKey(33, ctrl);
+            default:
+                throw new IllegalArgumentException("Can't add " + keyStroke + " to the input of a terminal");
+        }
+    }
+
+    private static String encodeMouseAction(MouseAction mouseAction, boolean sgrMouseEncoding) {
+        int button = mouseAction.getButton();
+        boolean release = mouseAction.getKeyType() == KeyType.MouseClickRelease;
+        int code;
+        if(button >= 4) {
+            code = 64 + (button - 4);
+        }
+        else if(button == 0 || (release && !sgrMouseEncoding)) {
+            code = 3;
+        }
+        else {
+            code = button - 1;
+        }
+        if(mouseAction.getKeyType() == KeyType.MouseMove) {
+            code |= 32;
+        }
+        if(mouseAction.isCtrlDown()) {
+            code |= 16;
+        }
+        if(mouseAction.isAltDown()) {
+            code |= 8;
+        }
+        int column = mouseAction.getPosition().getColumn() + 1;
+        int row = mouseAction.getPosition().getRow() + 1;
+        if(sgrMouseEncoding) {
+            return "\033[<" + code + ";" + column + ";" + row + (release ? "m" : "M");
+        }
+        return "\033[M" + (char)(32 + code) + (char)(32 + column) + (char)(32 + row);
+    }
+
+    private static String functionKey(int code, boolean ctrl) {
+        return "\033[" + code + (ctrl ? ";5~" : "~");
+    }
+
+    /**
+     * Input stream reading from a queue of bytes that can be added to at any time. Reading blocks until there is
+     * something in the queue or the stream has been closed.
+     */
+    private static class ScriptedInputStream extends InputStream {
+        private byte[] queue;
+        private int start;
+        private int end;
+        private boolean closed;
+
+        ScriptedInputStream() {
+            this.queue = new byte[256];
+            this.start = 0;
+            this.end = 0;
+            this.closed = false;
+        }
+
+        synchronized void add(byte[] bytes) {
+            if(end + bytes.length > queue.length) {
+                //Move what's left to the beginning, and grow the queue if that's not enough
+                byte[] newQueue = queue;
+                if(end - start + bytes.length > queue.length) {
+                    newQueue = new byte[Math.max(queue.length * 2, end - start + bytes.length)];
+                }
+                System.arraycopy(queue, start, newQueue, 0, end - start);
+                queue = newQueue;
+                end -= start;
+                start = 0;
+            }
+            System.arraycopy(bytes, 0, queue, end, bytes.length);
+            end += bytes.length;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return 0;
+            }
+            while(start == end && !closed) {
+                try {
+                    wait();
+                }
+                catch(InterruptedException e) {
+                    throw new IOException("Interrupted while waiting for input", e);
+                }
+            }
+            if(start == end) {
+                return -1;
+            }
+            int count = Math.min(len, end - start);
+            System.arraycopy(queue, start, b, off, count);
+            start += count;
+            return count;
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * The emulated terminal. It's the output stream of the terminal, decoding and parsing everything written to it
+     * right away. All state is guarded by the emulator itself.
+     */
+    private static class Emulator extends OutputStream implements VTParser.Handler {
+        private static final int TAB_SIZE = 8;
+
+        private final ScriptedInputStream input;
+        private final Charset charset;
+        private final CharsetDecoder decoder;
+        private final VTParser parser;
+        private final ByteBuffer undecodedBytes;
+        private final CharBuffer decodedCharacters;
+        private HeadlessTerminal terminal;
+
+        private int columns;
+        private int rows;
+        private BasicTextImage mainImage;
+        private BasicTextImage alternateImage;
+        private BasicTextImage image;
+
+        private int cursorColumn;
+        private int cursorRow;
+        //The cursor is on the last column and the next printed character goes on the next line
+        private boolean wrapPending;
+        //High surrogate printed last, it's put on the screen together with the low surrogate that follows; 0 if none
+        private char highSurrogate;
+        private boolean cursorVisible;
+        private boolean bracketedPaste;
+        private boolean sgrMouseEncoding;
+        private int scrollTop;
+        private int scrollBottom;
+        private boolean lineDrawing;
+        private String title;
+
+        private TextColor foregroundColor;
+        private TextColor backgroundColor;
+        private int modifierMask;
+
+        private int savedCursorColumn;
+        private int savedCursorRow;
+        private TextColor savedForegroundColor;
+        private TextColor savedBackgroundColor;
+        private int savedModifierMask;
+
+        //A resize requested through the output, listeners are notified once the emulator is no longer locked
+        private TerminalSize pendingResize;
+
+        Emulator(ScriptedInputStream input, TerminalSize size, Charset charset) {
+            this.input = input;
+            this.charset = charset;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.parser = new VTParser(this);
+            this.undecodedBytes = ByteBuffer.allocate(8192);
+            this.decodedCharacters = CharBuffer.allocate(8192);
+            this.terminal = null;
+            this.columns = size.getColumns();
+            this.rows = size.getRows();
+            this.mainImage = new BasicTextImage(columns, rows);
+            this.alternateImage = new BasicTextImage(columns, rows);
+            this.image = mainImage;
+            this.title = "";
+            this.pendingResize = null;
+            reset();
+        }
+
+        private void reset() {
+            cursorColumn = 0;
+            cursorRow = 0;
+            wrapPending = false;
+            highSurrogate = 0;
+            cursorVisible = true;
+            bracketedPaste = false;
+            sgrMouseEncoding = false;
+            scrollTop = 0;
+            scrollBottom = rows - 1;
+            lineDrawing = false;
+            foregroundColor = TextColor.ANSI.DEFAULT;
+            backgroundColor = TextColor.ANSI.DEFAULT;
+            modifierMask = 0;
+            savedCursorColumn = 0;
+            savedCursorRow = 0;
+            savedForegroundColor = TextColor.ANSI.DEFAULT;
+            savedBackgroundColor = TextColor.ANSI.DEFAULT;
+            savedModifierMask = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte)b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            TerminalSize resize;
+            synchronized(this) {
+                while(len > 0) {
+                    int count = Math.min(len, undecodedBytes.remaining());
+                    undecodedBytes.put(b, off, count);
+                    off += count;
+                    len -= count;
+                    undecodedBytes.flip();
+                    while(true) {
+                        boolean overflow = decoder.decode(undecodedBytes, decodedCharacters, false).isOverflow();
+                        decodedCharacters.flip();
+                        parser.parse(decodedCharacters.array(), decodedCharacters.position(), decodedCharacters.remaining());
+                        decodedCharacters.clear();
+                        if(!overflow) {
+                            break;
+                        }
+                    }
+                    //Keep an incomplete multi-byte character until the rest of it arrives
+                    undecodedBytes.compact();
+                }
+                resize = pendingResize;
+                pendingResize = null;
+            }
+            if(resize != null && terminal != null) {
+                terminal.onResized(resize.getColumns(), resize.getRows());
+            }
+        }
+
+        void resize(int newColumns, int newRows) {
+            newColumns = Math.max(1, newColumns);
+            newRows = Math.max(1, newRows);
+            boolean alternate = image == alternateImage;
+            mainImage = mainImage.resize(new TerminalSize(newColumns, newRows), TextCharacter.DEFAULT_CHARACTER);
+            alternateImage = alternateImage.resize(new TerminalSize(newColumns, newRows), TextCharacter.DEFAULT_CHARACTER);
+            image = alternate ? alternateImage : mainImage;
+            columns = newColumns;
+            rows = newRows;
+            scrollTop = 0;
+            scrollBottom = rows - 1;
+            moveCursor(cursorColumn, cursorRow);
+        }
+
+        @Override
+        public void print(char c) {
+            if(lineDrawing && c >= '`' && c <= '~') {
+                c = getLineDrawingCharacter(c);
+            }
+            int width;
+            if(Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+                return;
+            }
+            else if(Character.isLowSurrogate(c) && highSurrogate != 0) {
+                //A cell can only hold one char, so the high surrogate stands in for the whole character
+                width = CJKUtils.getColumnWidth(Character.toCodePoint(highSurrogate, c));
+                c = highSurrogate;
+            }
+            else {
+                width = CJKUtils.getColumnWidth(c);
+            }
+            highSurrogate = 0;
+            if(width == 0) {
+                //Combining characters and such, we have no way of putting them together with the previous character
+                return;
+            }
+            if(wrapPending || (width == 2 && cursorColumn == columns - 1)) {
+                cursorColumn = 0;
+                index();
+            }
+            wrapPending = false;
+            TextCharacter character = TextCharacter.of(c, foregroundColor, backgroundColor, modifierMask);
+            image.setCharacterAt(cursorColumn, cursorRow, character);
+            if(width == 2) {
+                image.setCharacterAt(cursorColumn + 1, cursorRow, character.withCharacter(' '));
+            }
+            cursorColumn += width;
+            if(cursorColumn >= columns) {
+                cursorColumn = columns - 1;
+                wrapPending = true;
+            }
+        }
+
+        private static char getLineDrawingCharacter(char c) {
+            switch(c) {
+                case '`': return Symbols.DIAMOND;
+                case 'a': return Symbols.BLOCK_MIDDLE;
+                case 'j': return Symbols.SINGLE_LINE_BOTTOM_RIGHT_CORNER;
+                case 'k': return Symbols.SINGLE_LINE_TOP_RIGHT_CORNER;
+                case 'l': return Symbols.SINGLE_LINE_TOP_LEFT_CORNER;
+                case 'm': return Symbols.SINGLE_LINE_BOTTOM_LEFT_CORNER;
+                case 'n': return Symbols.SINGLE_LINE_CROSS;
+                case 'q': return Symbols.SINGLE_LINE_HORIZONTAL;
+                case 't': return Symbols.SINGLE_LINE_T_RIGHT;
+                case 'u': return Symbols.SINGLE_LINE_T_LEFT;
+                case 'v': return Symbols.SINGLE_LINE_T_UP;
+                case 'w': return Symbols.SINGLE_LINE_T_DOWN;
+                case 'x': return Symbols.SINGLE_LINE_VERTICAL;
+                case '~': return Symbols.BULLET;
+                default: return c;
+            }
+        }
+
+        @Override
+        public void execute(char c) {
+            switch(c) {
+                case '\b':
+                    if(cursorColumn > 0) {
+                        cursorColumn--;
+                    }
+                    wrapPending = false;
+                    break;
+                case '\t':
+                    moveCursor(Math.min(columns - 1, (cursorColumn / TAB_SIZE + 1) * TAB_SIZE), cursorRow);
+                    break;
+                case '\n':
+                case 0x0b:  //Vertical tab
+                case '\f':
+                    index();
+                    wrapPending = false;
+                    break;
+                case '\r':
+                    cursorColumn = 0;
+                    wrapPending = false;
+                    break;
+                default:
+                    //Bell, enquiry, shift in/out and the rest have no visible effect
+                    break;
+            }
+        }
+
+        @Override
+        public void escapeDispatch(String intermediates, char finalCharacter) {
+            if(intermediates.equals("(")) {
+                //Designate G0, we only know about line drawing and ASCII (everything else is treated as ASCII)
+                lineDrawing = finalCharacter == '0';
+                return;
+            }
+            if(intermediates.length() > 0) {
+                return;
+            }
+            switch(finalCharacter) {
+                case '7':
+                    saveCursor();
+                    break;
+                case '8':
+                    restoreCursor();
+                    break;
+                case 'D':
+                    index();
+                    break;
+                case 'E':
+                    cursorColumn = 0;
+                    index();
+                    break;
+                case 'M':
+                    reverseIndex();
+                    break;
+                case 'c':
+                    reset();
+                    mainImage.setAll(TextCharacter.DEFAULT_CHARACTER);
+                    alternateImage.setAll(TextCharacter.DEFAULT_CHARACTER);
+                    image = mainImage;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void csiDispatch(String intermediates, int[] parameters, int parameterCount, char finalCharacter) {
+            if(intermediates.equals("?")) {
+                if(finalCharacter == 'h' || finalCharacter == 'l') {
+                    for(int i = 0; i < parameterCount; i++) {
+                        setPrivateMode(parameters[i], finalCharacter == 'h');
+                    }
+                }
+                return;
+            }
+            if(intermediates.length() > 0) {
+                return;
+            }
+            int first = getParameter(parameters, parameterCount, 0, 1);
+            switch(finalCharacter) {
+                case 'A':
+                    moveCursor(cursorColumn, Math.max(cursorRow - first, cursorRow >= scrollTop ? scrollTop : 0));
+                    break;
+                case 'B':
+                    moveCursor(cursorColumn, Math.min(cursorRow + first, cursorRow <= scrollBottom ? scrollBottom : rows - 1));
+                    break;
+                case 'C':
+                    moveCursor(cursorColumn + first, cursorRow);
+                    break;
+                case 'D':
+                    moveCursor(cursorColumn - first, cursorRow);
+                    break;
+                case 'E':
+                    moveCursor(0, cursorRow + first);
+                    break;
+                case 'F':
+                    moveCursor(0, cursorRow - first);
+                    break;
+                case 'G':
+                case '`':
+                    moveCursor(first - 1, cursorRow);
+                    break;
+                case 'd':
+                    moveCursor(cursorColumn, first - 1);
+                    break;
+                case 'H':
+                case 'f':
+                    moveCursor(getParameter(parameters, parameterCount, 1, 1) - 1, first - 1);
+                    break;
+                case 'J':
+                    eraseInDisplay(getParameter(parameters, parameterCount, 0, 0));
+                    break;
+                case 'K':
+                    eraseInLine(getParameter(parameters, parameterCount, 0, 0));
+                    break;
+                case 'L':
+                    if(cursorRow >= scrollTop && cursorRow <= scrollBottom) {
+                        scroll(cursorRow, scrollBottom, -first);
+                        cursorColumn = 0;
+                    }
+                    break;
+                case 'M':
+                    if(cursorRow >= scrollTop && cursorRow <= scrollBottom) {
+                        scroll(cursorRow, scrollBottom, first);
+                        cursorColumn = 0;
+                    }
+                    break;
+                case '@':
+                    shiftCharacters(cursorColumn, first);
+                    break;
+                case 'P':
+                    shiftCharacters(cursorColumn, -first);
+                    break;
+                case 'X':
+                    fill(cursorColumn, cursorRow, Math.min(cursorColumn + first, columns), cursorRow + 1);
+                    wrapPending = false;
+                    break;
+                case 'S':
+                    scroll(scrollTop, scrollBottom, first);
+                    break;
+                case 'T':
+                    scroll(scrollTop, scrollBottom, -first);
+                    break;
+                case 'r':
+                    setScrollingRegion(first - 1, getParameter(parameters, parameterCount, 1, rows) - 1);
+                    break;
+                case 's':
+                    saveCursor();
+                    break;
+                case 'u':
+                    restoreCursor();
+                    break;
+                case 'm':
+                    selectGraphicRendition(parameters, parameterCount);
+                    break;
+                case 'n':
+                    deviceStatusReport(getParameter(parameters, parameterCount, 0, 0));
+                    break;
+                case 't':
+                    if(first == 8 && parameterCount == 3) {
+                        resize(getParameter(parameters, parameterCount, 2, columns),
+                                getParameter(parameters, parameterCount, 1, rows));
+                        pendingResize = new TerminalSize(columns, rows);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void oscDispatch(String command) {
+            if(command.startsWith("0;") || command.startsWith("2;")) {
+                title = command.substring(2);
+            }
+        }
+
+        /**
+         * Returns a parameter of a control sequence, or a default value if it's missing or zero
+         */
+        private static int getParameter(int[] parameters, int parameterCount, int index, int defaultValue) {
+            if(index >= parameterCount || parameters[index] <= 0) {
+                return defaultValue;
+            }
+            return parameters[index];
+        }
+
+        private void moveCursor(int column, int row) {
+            cursorColumn = Math.max(0, Math.min(columns - 1, column));
+            cursorRow = Math.max(0, Math.min(rows - 1, row));
+            wrapPending = false;
+        }
+
+        private void index() {
+            if(cursorRow == scrollBottom) {
+                scroll(scrollTop, scrollBottom, 1);
+            }
+            else if(cursorRow < rows - 1) {
+                cursorRow++;
+            }
+        }
+
+        private void reverseIndex() {
+            if(cursorRow == scrollTop) {
+                scroll(scrollTop, scrollBottom, -1);
+            }
+            else if(cursorRow > 0) {
+                cursorRow--;
+            }
+        }
+
+        /**
+         * Moves the content of rows {@code top} to {@code bottom} up (positive distance) or down (negative distance),
+         * clearing the rows that are uncovered
+         */
+        private void scroll(int top, int bottom, int distance) {
+            int lines = bottom - top + 1;
+            if(distance == 0 || lines <= 0) {
+                return;
+            }
+            if(Math.abs(distance) >= lines) {
+                fill(0, top, columns, bottom + 1);
+                return;
+            }
+            if(distance > 0) {
+                for(int row = top; row <= bottom - distance; row++) {
+                    copyRow(row + distance, row);
+                }
+                fill(0, bottom - distance + 1, columns, bottom + 1);
+            }
+            else {
+                for(int row = bottom; row >= top - distance; row--) {
+                    copyRow(row + distance, row);
+                }
+                fill(0, top, columns, top - distance);
+            }
+        }
+
+        private void copyRow(int sourceRow, int row) {
+            for(int column = 0; column < columns; column++) {
+                image.setCharacterAt(column, row, image.getCharacterAt(column, sourceRow));
+            }
+        }
+
+        /**
+         * Inserts (positive count) or deletes (negative count) characters at a column on the cursor row, shifting the
+         * rest of the row
+         */
+        private void shiftCharacters(int column, int count) {
+            if(count > 0) {
+                for(int x = columns - 1; x >= column + count; x--) {
+                    image.setCharacterAt(x, cursorRow, image.getCharacterAt(x - count, cursorRow));
+                }
+                fill(column, cursorRow, Math.min(columns, column + count), cursorRow + 1);
+            }
+            else {
+                count = -count;
+                for(int x = column; x < columns - count; x++) {
+                    image.setCharacterAt(x, cursorRow, image.getCharacterAt(x + count, cursorRow));
+                }
+                fill(Math.max(column, columns - count), cursorRow, columns, cursorRow + 1);
+            }
+            wrapPending = false;
+        }
+
+        private void eraseInDisplay(int mode) {
+            switch(mode) {
+                case 0:
+                    eraseInLine(0);
+                    fill(0, cursorRow + 1, columns, rows);
+                    break;
+                case 1:
+                    fill(0, 0, columns, cursorRow);
+                    eraseInLine(1);
+                    break;
+                case 2:
+                case 3:
+                    fill(0, 0, columns, rows);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void eraseInLine(int mode) {
+            switch(mode) {
+                case 0:
+                    fill(cursorColumn, cursorRow, columns, cursorRow + 1);
+                    break;
+                case 1:
+                    fill(0, cursorRow, cursorColumn + 1, cursorRow + 1);
+                    break;
+                case 2:
+                    fill(0, cursorRow, columns, cursorRow + 1);
+                    break;
+                default:
+                    break;
+            }
+            wrapPending = false;
+        }
+
+        /**
+         * Clears a rectangle, using the current background color like xterm does
+         */
+        private void fill(int startColumn, int startRow, int endColumn, int endRow) {
+            TextCharacter blank = TextCharacter.of(' ', TextColor.ANSI.DEFAULT, backgroundColor, 0);
+            for(int row = startRow; row < endRow; row++) {
+                for(int column = startColumn; column < endColumn; column++) {
+                    image.setCharacterAt(column, row, blank);
+                }
+            }
+        }
+
+        private void setScrollingRegion(int top, int bottom) {
+            bottom = Math.min(bottom, rows - 1);
+            if(top >= bottom) {
+                return;
+            }
+            scrollTop = top;
+            scrollBottom = bottom;
+            moveCursor(0, 0);
+        }
+
+        private void saveCursor() {
+            savedCursorColumn = cursorColumn;
+            savedCursorRow = cursorRow;
+            savedForegroundColor = foregroundColor;
+            savedBackgroundColor = backgroundColor;
+            savedModifierMask = modifierMask;
+        }
+
+        private void restoreCursor() {
+            moveCursor(savedCursorColumn, savedCursorRow);
+            foregroundColor = savedForegroundColor;
+            backgroundColor = savedBackgroundColor;
+            modifierMask = savedModifierMask;
+        }
+
+        private void setPrivateMode(int mode, boolean enable) {
+            switch(mode) {
+                case 25:
+                    cursorVisible = enable;
+                    break;
+                case 1006:
+                    sgrMouseEncoding = enable;
+                    break;
+                case 2004:
+                    bracketedPaste = enable;
+                    break;
+                case 47:
+                case 1047:
+                case 1049:
+                    if(enable && image != alternateImage) {
+                        if(mode == 1049) {
+                            saveCursor();
+                        }
+                        image = alternateImage;
+                        fill(0, 0, columns, rows);
+                    }
+                    else if(!enable && image == alternateImage) {
+                        image = mainImage;
+                        if(mode == 1049) {
+                            restoreCursor();
+                        }
+                    }
+                    break;
+                default:
+                    //Mouse reporting and other modes don't change anything we emulate
+                    break;
+            }
+        }
+
+        private void deviceStatusReport(int request) {
+            if(request == 5) {
+                input.add("\033[0n".getBytes(charset));
+            }
+            else if(request == 6) {
+                input.add(("\033[" + (cursorRow + 1) + ";" + (cursorColumn + 1) + "R").getBytes(charset));
+            }
+        }
+
+        private void selectGraphicRendition(int[] parameters, int parameterCount) {
+            if(parameterCount == 0) {
+                resetGraphicRendition();
+                return;
+            }
+            for(int i = 0; i < parameterCount; i++) {
+                int parameter = Math.max(0, parameters[i]);
+                if(parameter >= 30 && parameter <= 37) {
+                    foregroundColor = TextColor.ANSI.values()[parameter - 30];
+                }
+                else if(parameter >= 40 && parameter <= 47) {
+                    backgroundColor = TextColor.ANSI.values()[parameter - 40];
+                }
+                else if(parameter >= 90 && parameter <= 97) {
+                    foregroundColor = new TextColor.Indexed(parameter - 90 + 8);
+                }
+                else if(parameter >= 100 && parameter <= 107) {
+                    backgroundColor = new TextColor.Indexed(parameter - 100 + 8);
+                }
+                else if(parameter == 38 || parameter == 48) {
+                    //Extended color, either 38;5;index or 38;2;red;green;blue
+                    TextColor color = null;
+                    int type = i + 1 < parameterCount ? parameters[i + 1] : -1;
+                    if(type == 5 && i + 2 < parameterCount) {
+                        color = new TextColor.Indexed(Math.max(0, Math.min(255, parameters[i + 2])));
+                        i += 2;
+                    }
+                    else if(type == 2 && i + 4 < parameterCount) {
+                        color = new TextColor.RGB(
+                                Math.max(0, Math.min(255, parameters[i + 2])),
+                                Math.max(0, Math.min(255, parameters[i + 3])),
+                                Math.max(0, Math.min(255, parameters[i + 4])));
+                        i += 4;
+                    }
+                    else {
+                        //Don't know how to read the rest
+                        return;
+                    }
+                    if(parameter == 38) {
+                        foregroundColor = color;
+                    }
+                    else {
+                        backgroundColor = color;
+                    }
+                }
+                else {
+                    switch(parameter) {
+                        case 0:
+                            resetGraphicRendition();
+                            break;
+                        case 1: setModifier(SGR.BOLD, true); break;
+                        case 4: setModifier(SGR.UNDERLINE, true); break;
+                        case 5: setModifier(SGR.BLINK, true); break;
+                        case 7: setModifier(SGR.REVERSE, true); break;
+                        case 9: setModifier(SGR.CROSSED_OUT, true); break;
+                        case 20: setModifier(SGR.FRAKTUR, true); break;
+                        case 51: setModifier(SGR.BORDERED, true); break;
+                        case 52: setModifier(SGR.CIRCLED, true); break;
+                        case 21:
+                        case 22: setModifier(SGR.BOLD, false); break;
+                        case 23: setModifier(SGR.FRAKTUR, false); break;
+                        case 24: setModifier(SGR.UNDERLINE, false); break;
+                        case 25: setModifier(SGR.BLINK, false); break;
+                        case 27: setModifier(SGR.REVERSE, false); break;
+                        case 29: setModifier(SGR.CROSSED_OUT, false); break;
+                        case 54:
+                            setModifier(SGR.BORDERED, false);
+                            setModifier(SGR.CIRCLED, false);
+                            break;
+                        case 39: foregroundColor = TextColor.ANSI.DEFAULT; break;
+                        case 49: backgroundColor = TextColor.ANSI.DEFAULT; break;
+                        default: break;
+                    }
+                }
+            }
+        }
+
+        private void resetGraphicRendition() {
+            foregroundColor = TextColor.ANSI.DEFAULT;
+            backgroundColor = TextColor.ANSI.DEFAULT;
+            modifierMask = 0;
+        }
+
+        private void setModifier(SGR sgr, boolean enable) {
+            if(enable) {
+                modifierMask |= 1 << sgr.ordinal();
+            }
+            else {
+                modifierMask &= ~(1 << sgr.ordinal());
+            }
+        }
+    }
+}
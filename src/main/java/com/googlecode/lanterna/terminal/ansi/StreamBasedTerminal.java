@@ -18,53 +18,109 @@
  */
 package com.googlecode.lanterna.terminal.ansi;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 
 import com.googlecode.lanterna.Symbols;
+import com.googlecode.lanterna.input.ChannelReader;
 import com.googlecode.lanterna.input.InputDecoder;
 import com.googlecode.lanterna.input.KeyDecodingProfile;
 import com.googlecode.lanterna.input.KeyStroke;
 import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.ObservableInputProvider;
 import com.googlecode.lanterna.terminal.AbstractTerminal;
 import com.googlecode.lanterna.TerminalPosition;
 import com.googlecode.lanterna.TerminalSize;
-import java.io.ByteArrayOutputStream;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An abstract terminal implementing functionality for terminals using OutputStream/InputStream. You can extend from
  * this class if your terminal implementation is using standard input and standard output but not ANSI escape codes (in
  * which case you should extend ANSITerminal). This class also contains some automatic UTF-8 to VT100 character
  * conversion when the terminal is not set to read UTF-8.
+ * <p/>
+ * All output is collected in an internal buffer and isn't written to the output stream until {@code flush()} is called,
+ * the buffer reaches its high-water mark (see {@code setOutputBufferHighWaterMark(..)}) or we are about to read input.
+ * This means drawing a whole frame normally results in a single {@code write(..)} on the stream.
+ * <p/>
+ * Input is read and decoded by a background thread, which is started the first time input is asked for. The thread
+ * blocks on the input stream and queues the key strokes it decodes, so waiting for input, for a terminal size report
+ * or for the answer to an enquiry doesn't cost anything while nothing is coming in. Listeners added through
+ * {@code addInputListener(..)} are told when new input has been queued. While the thread is running, it reads
+ * everything that comes in on the input stream, even if nobody asks for input again, until {@code stopInputReader()}
+ * is called (which leaving private mode does) to hand the input stream back to the rest of the program. Mouse moves
+ * are coalesced in the queue; if a move arrives while the previous move with the same buttons and modifiers is still
+ * waiting to be read, it takes its place.
  *
  * @author Martin
  */
-public abstract class StreamBasedTerminal extends AbstractTerminal {
+public abstract class StreamBasedTerminal extends AbstractTerminal implements ObservableInputProvider {
 
     private static final Charset UTF8_REFERENCE = Charset.forName("UTF-8");
+    private static final int DEFAULT_OUTPUT_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+    private static final KeyStroke INPUT_ERROR_MARKER = new KeyStroke(KeyType.Unknown);
 
     private final InputStream terminalInput;
     private final OutputStream terminalOutput;
     private final Charset terminalCharset;
 
     private final InputDecoder inputDecoder;
-    private final Queue<KeyStroke> keyQueue;
+    private final BlockingDeque<KeyStroke> keyQueue;
+    private final List<Listener> inputListeners;
     private final Object readMutex;
+    //Guarded by readMutex, the thread is cleared by the thread itself when it stops
+    private Thread inputReaderThread;
+    private boolean inputReaderStopRequested;
+    private volatile IOException inputReaderError;
+
+    //Cursor position reports, guarded by reportMutex
+    private final Object reportMutex;
+    private long cursorReportCount;
+    private TerminalPosition lastCursorReport;
+    private int sizeReportsExpected;
+
+    //Answer to an enquiry being collected from the raw input, or null if there's no enquiry, guarded by answerbackMutex
+    private final Object answerbackMutex;
+    private ByteArrayOutputStream answerback;
+
+    //Everything below is guarded by writerMutex
+    final Object writerMutex;
+    private final CharsetEncoder charsetEncoder;
+    private final CharBuffer encoderInput;
+    private final ByteBuffer encoderOutput;
+    private final boolean asciiCompatibleCharset;
+    //High surrogate waiting for its low surrogate, so the pair can be encoded as one code point, or 0 if none
+    private char unencodedHighSurrogate;
+    private byte[] outputBuffer;
+    private int outputBufferLength;
+    private int outputBufferHighWaterMark;
+
+    //Statistics, written to under writerMutex and readMutex respectively but can be read at any time
+    private volatile long bytesWritten;
+    private final AtomicLong bytesRead;
+    private volatile long keyStrokesRead;
     
     @SuppressWarnings("WeakerAccess")
     public StreamBasedTerminal(InputStream terminalInput, OutputStream terminalOutput, Charset terminalCharset) {
-        this.terminalInput = terminalInput;
+        this.bytesRead = new AtomicLong(0);
+        this.bytesWritten = 0;
+        this.keyStrokesRead = 0;
+        this.terminalInput = new InputStreamCounter(terminalInput);
         this.terminalOutput = terminalOutput;
-        this.inputDecoder = new InputDecoder(new InputStreamReader(terminalInput, terminalCharset));
-        this.keyQueue = new LinkedList<KeyStroke>();
-        this.readMutex = new Object();
         //noinspection ConstantConditions
         if(terminalCharset == null) {
             this.terminalCharset = Charset.defaultCharset();
@@ -72,6 +128,73 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
         else {
             this.terminalCharset = terminalCharset;
         }
+        this.inputDecoder = new InputDecoder(new ChannelReader(this.terminalInput, this.terminalCharset));
+        this.keyQueue = new LinkedBlockingDeque<KeyStroke>();
+        this.inputListeners = new CopyOnWriteArrayList<Listener>();
+        this.readMutex = new Object();
+        this.inputReaderThread = null;
+        this.inputReaderStopRequested = false;
+        this.inputReaderError = null;
+        this.reportMutex = new Object();
+        this.cursorReportCount = 0;
+        this.lastCursorReport = null;
+        this.sizeReportsExpected = 0;
+        this.answerbackMutex = new Object();
+        this.answerback = null;
+        this.writerMutex = new Object();
+        this.charsetEncoder = this.terminalCharset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoderInput = CharBuffer.allocate(2);
+        this.encoderOutput = ByteBuffer.allocate((int)Math.ceil(charsetEncoder.maxBytesPerChar() * 2) + 16);
+        this.asciiCompatibleCharset = isAsciiCompatible(this.terminalCharset);
+        this.unencodedHighSurrogate = 0;
+        this.outputBuffer = new byte[4096];
+        this.outputBufferLength = 0;
+        this.outputBufferHighWaterMark = DEFAULT_OUTPUT_BUFFER_HIGH_WATER_MARK;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        StringBuilder printableAscii = new StringBuilder();
+        for(char c = 0x20; c < 0x7f; c++) {
+            printableAscii.append(c);
+        }
+        byte[] encoded = printableAscii.toString().getBytes(charset);
+        if(encoded.length != printableAscii.length()) {
+            return false;
+        }
+        for(int i = 0; i < encoded.length; i++) {
+            if(encoded[i] != printableAscii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the number of bytes the output buffer can hold before its content is automatically written to the output
+     * stream, even though {@code flush()} hasn't been called. Please note that the output stream is not flushed when
+     * this happens.
+     * @param highWaterMark Number of buffered bytes that triggers writing to the output stream, must be positive
+     */
+    public void setOutputBufferHighWaterMark(int highWaterMark) {
+        if(highWaterMark <= 0) {
+            throw new IllegalArgumentException("Output buffer high-water mark must be positive, was " + highWaterMark);
+        }
+        synchronized(writerMutex) {
+            this.outputBufferHighWaterMark = highWaterMark;
+        }
+    }
+
+    /**
+     * Returns the number of bytes the output buffer can hold before its content is automatically written to the output
+     * stream.
+     * @return Output buffer high-water mark, in bytes
+     */
+    public int getOutputBufferHighWaterMark() {
+        synchronized(writerMutex) {
+            return outputBufferHighWaterMark;
+        }
     }
 
     /**
@@ -82,48 +205,237 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
      */
     @Override
     public void putCharacter(char c) throws IOException {
-        writeToTerminal(translateCharacter(c));
+        synchronized(writerMutex) {
+            bufferCharacter(c);
+            writeIfAboveHighWaterMark();
+        }
     }
 
     /**
-     * This method will write a list of bytes directly to the output stream of the terminal.
+     * This method will write a list of bytes to the output buffer of the terminal.
      * @param bytes Bytes to write to the terminal (synchronized)
      * @throws java.io.IOException If there was an underlying I/O error
      */
     @SuppressWarnings("WeakerAccess")
     protected void writeToTerminal(byte... bytes) throws IOException {
-        synchronized(terminalOutput) {
-            terminalOutput.write(bytes);
+        synchronized(writerMutex) {
+            bufferBytes(bytes);
+            writeIfAboveHighWaterMark();
+        }
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    void bufferByte(int b) {
+        if(outputBufferLength == outputBuffer.length) {
+            growOutputBuffer(1);
+        }
+        outputBuffer[outputBufferLength++] = (byte)b;
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    void bufferBytes(byte[] bytes) {
+        if(outputBufferLength + bytes.length > outputBuffer.length) {
+            growOutputBuffer(bytes.length);
+        }
+        System.arraycopy(bytes, 0, outputBuffer, outputBufferLength, bytes.length);
+        outputBufferLength += bytes.length;
+    }
+
+    /**
+     * Writes a non-negative number as decimal ASCII digits. Synchronize with writerMutex externally!!!
+     */
+    void bufferNumber(int number) {
+        if(number < 10) {
+            bufferByte('0' + number);
+            return;
+        }
+        int digits = 0;
+        for(int remaining = number; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        if(outputBufferLength + digits > outputBuffer.length) {
+            growOutputBuffer(digits);
+        }
+        for(int i = outputBufferLength + digits - 1; i >= outputBufferLength; i--) {
+            outputBuffer[i] = (byte)('0' + number % 10);
+            number /= 10;
+        }
+        outputBufferLength += digits;
+    }
+
+    /**
+     * Writes a character, translating it in the same way as {@code translateCharacter(..)}. A high surrogate is held
+     * back until the next character, so that a surrogate pair is encoded as the code point it represents rather than
+     * as two unmappable halves. Synchronize with writerMutex externally!!!
+     */
+    void bufferCharacter(char c) {
+        if(unencodedHighSurrogate != 0) {
+            char highSurrogate = unencodedHighSurrogate;
+            unencodedHighSurrogate = 0;
+            if(Character.isLowSurrogate(c)) {
+                bufferEncoded(encodeCharacters(highSurrogate, c));
+                return;
+            }
+            //The other half never came, let the encoder replace it
+            bufferSingleCharacter(highSurrogate);
+        }
+        if(Character.isHighSurrogate(c)) {
+            unencodedHighSurrogate = c;
+            return;
+        }
+        bufferSingleCharacter(c);
+    }
+
+    private void bufferSingleCharacter(char c) {
+        if(c < 0x80 && asciiCompatibleCharset) {
+            //There is no translation to be done for plain ASCII
+            bufferByte(c);
+        }
+        else if(UTF8_REFERENCE == terminalCharset) {
+            bufferEncoded(encodeCharacter(c));
+        }
+        else {
+            bufferBytes(translateCharacter(c));
+        }
+    }
+
+    private void bufferEncoded(ByteBuffer encoded) {
+        int length = encoded.remaining();
+        if(outputBufferLength + length > outputBuffer.length) {
+            growOutputBuffer(length);
+        }
+        encoded.get(outputBuffer, outputBufferLength, length);
+        outputBufferLength += length;
+    }
+
+    /**
+     * Encodes a character into the re-used encoder output buffer. Synchronize with writerMutex externally!!!
+     */
+    private ByteBuffer encodeCharacter(char c) {
+        encoderInput.clear();
+        encoderInput.put(c);
+        return encodeInput();
+    }
+
+    /**
+     * Encodes a surrogate pair into the re-used encoder output buffer. Synchronize with writerMutex externally!!!
+     */
+    private ByteBuffer encodeCharacters(char highSurrogate, char lowSurrogate) {
+        encoderInput.clear();
+        encoderInput.put(highSurrogate);
+        encoderInput.put(lowSurrogate);
+        return encodeInput();
+    }
+
+    private ByteBuffer encodeInput() {
+        encoderInput.flip();
+        encoderOutput.clear();
+        charsetEncoder.reset();
+        charsetEncoder.encode(encoderInput, encoderOutput, true);
+        charsetEncoder.flush(encoderOutput);
+        encoderOutput.flip();
+        return encoderOutput;
+    }
+
+    private void growOutputBuffer(int extraBytes) {
+        byte[] newBuffer = new byte[Math.max(outputBuffer.length * 2, outputBufferLength + extraBytes)];
+        System.arraycopy(outputBuffer, 0, newBuffer, 0, outputBufferLength);
+        outputBuffer = newBuffer;
+    }
+
+    /**
+     * Synchronize with writerMutex externally!!!
+     */
+    void writeIfAboveHighWaterMark() throws IOException {
+        if(outputBufferLength >= outputBufferHighWaterMark) {
+            writeOutputBuffer();
+        }
+    }
+
+    private void writeOutputBuffer() throws IOException {
+        if(outputBufferLength > 0) {
+            //Reset the length first, if the write fails we don't want to send the same data again on the next flush
+            int length = outputBufferLength;
+            outputBufferLength = 0;
+            terminalOutput.write(outputBuffer, 0, length);
+            bytesWritten += length;
         }
     }
 
+    /**
+     * Before we wait for input, make sure everything we've written so far has reached the terminal since the input may
+     * well be a reply to it (or the user reacting to it)
+     */
+    private void flushPendingOutput() throws IOException {
+        synchronized(writerMutex) {
+            if(outputBufferLength > 0) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * While waiting for the answer, everything that arrives on the input stream is taken as part of it and kept away
+     * from the input decoder, so the answer is returned exactly as the terminal sent it. Input that was read before the
+     * enquiry was sent is not affected, but keys the user presses while the enquiry is waiting end up in the answer.
+     */
     @Override
     public byte[] enquireTerminal(int timeout, TimeUnit timeoutTimeUnit) throws IOException {
-        synchronized(terminalOutput) {
-            terminalOutput.write(5);    //ENQ
-            flush();
-        }
-        
-        //Wait for input
-        long startTime = System.currentTimeMillis();
-        while(terminalInput.available() == 0) {
-            if(System.currentTimeMillis() - startTime > timeoutTimeUnit.toMillis(timeout)) {
-                return new byte[0];
+        synchronized(answerbackMutex) {
+            answerback = new ByteArrayOutputStream();
+        }
+        try {
+            synchronized(writerMutex) {
+                bufferByte(5);    //ENQ
+                flush();
             }
-            try { 
-                Thread.sleep(1); 
-            } 
-            catch(InterruptedException e) {
-                return new byte[0];
+            startInputReader();
+
+            //Wait for the first part of the answer, the input reader thread reads as much as is available in one go
+            long deadline = System.currentTimeMillis() + timeoutTimeUnit.toMillis(timeout);
+            synchronized(answerbackMutex) {
+                while(answerback.size() == 0 && inputReaderError == null) {
+                    long timeLeft = deadline - System.currentTimeMillis();
+                    if(timeLeft <= 0) {
+                        break;
+                    }
+                    try {
+                        answerbackMutex.wait(timeLeft);
+                    }
+                    catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return new byte[0];
+                    }
+                }
+                return answerback.toByteArray();
             }
         }
-        
-        //We have at least one character, read as far as we can and return
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        while(terminalInput.available() > 0) {
-            buffer.write(terminalInput.read());
+        finally {
+            synchronized(answerbackMutex) {
+                answerback = null;
+            }
+        }
+    }
+
+    /**
+     * Called by the input stream with every block of bytes read from the terminal
+     * @return {@code true} if the bytes were taken as the answer to an enquiry and shouldn't be decoded
+     */
+    private boolean captureAnswerback(byte[] bytes, int offset, int length) {
+        synchronized(answerbackMutex) {
+            if(answerback == null) {
+                return false;
+            }
+            answerback.write(bytes, offset, length);
+            answerbackMutex.notifyAll();
+            return true;
         }
-        return buffer.toByteArray();
     }
     
     /**
@@ -137,41 +449,56 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
         inputDecoder.addProfile(profile);
     }
 
-    @SuppressWarnings("ConstantConditions")
-    TerminalSize waitForTerminalSizeReport() throws IOException {
-        long startTime = System.currentTimeMillis();
-        synchronized(readMutex) {
-            while(true) {
-                KeyStroke key = inputDecoder.getNextCharacter(false);
-                if(key == null) {
-                    if(System.currentTimeMillis() - startTime > 1000) {  //Wait 1 second for the terminal size report to come, is this reasonable?
+    @Override
+    public void addInputListener(Listener listener) {
+        if(listener != null) {
+            inputListeners.add(listener);
+            startInputReader();
+        }
+    }
+
+    @Override
+    public void removeInputListener(Listener listener) {
+        inputListeners.remove(listener);
+    }
+
+    /**
+     * Call this before asking the terminal for its size through a cursor position report, then pass the returned
+     * value to {@code waitForTerminalSizeReport(..)}. While a size report is expected, the CTRL+F3 key stroke (which
+     * has the same sequence as a cursor report of 5x1) is taken as a size report.
+     * @return Value to pass on to {@code waitForTerminalSizeReport(..)}
+     */
+    long expectTerminalSizeReport() {
+        startInputReader();
+        synchronized(reportMutex) {
+            sizeReportsExpected++;
+            return cursorReportCount;
+        }
+    }
+
+    TerminalSize waitForTerminalSizeReport(long previousReportCount) throws IOException {
+        //Wait 1 second for the terminal size report to come, is this reasonable?
+        long deadline = System.currentTimeMillis() + 1000;
+        synchronized(reportMutex) {
+            try {
+                while(cursorReportCount == previousReportCount) {
+                    long timeLeft = deadline - System.currentTimeMillis();
+                    if(timeLeft <= 0 || inputReaderError != null) {
                         throw new IOException(
                                 "Timeout while waiting for terminal size report! Your terminal may have refused to go into cbreak mode.");
                     }
                     try {
-                        Thread.sleep(1);
+                        reportMutex.wait(timeLeft);
                     }
-                    catch(InterruptedException ignored) {}
-                    continue;
-                }
-
-                //If we got CTRL+F3, it's probably a size report instead!!!
-                if(key.getKeyType()!= KeyType.CursorLocation &&
-                        !(key.getKeyType() == KeyType.F3 && key.isCtrlDown() && !key.isAltDown())) {
-                    keyQueue.add(key);
-                }
-                else {
-                    TerminalPosition reportedTerminalPosition = inputDecoder.getLastReportedTerminalPosition();
-                    if(key.getKeyType() == KeyType.F3 && key.isCtrlDown() && !key.isAltDown()) {
-                        reportedTerminalPosition = new TerminalPosition(5, 1);
+                    catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for terminal size report");
                     }
-                    if(reportedTerminalPosition != null)
-                        onResized(reportedTerminalPosition.getColumn(), reportedTerminalPosition.getRow());
-                    else
-                        throw new IOException("Unexpected: inputDecoder.getLastReportedTerminalPosition() "
-                                + "returned null after position was reported");
-                    return new TerminalSize(reportedTerminalPosition.getColumn(), reportedTerminalPosition.getRow());
                 }
+                return new TerminalSize(lastCursorReport.getColumn(), lastCursorReport.getRow());
+            }
+            finally {
+                sizeReportsExpected--;
             }
         }
     }
@@ -187,26 +514,189 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
     }
 
     private KeyStroke readInput(boolean blocking) throws IOException {
+        flushPendingOutput();
+        startInputReader();
+        KeyStroke key;
+        if(blocking) {
+            try {
+                key = keyQueue.take();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Blocking input was interrupted");
+            }
+        }
+        else {
+            key = keyQueue.poll();
+        }
+        if(key == null) {
+            return null;
+        }
+        if(key == INPUT_ERROR_MARKER || key.getKeyType() == KeyType.EOF) {
+            //The input reader has stopped, so put it back for the next caller
+            keyQueue.add(key);
+            if(key == INPUT_ERROR_MARKER) {
+                throw inputReaderError;
+            }
+            return key;
+        }
+        synchronized(readMutex) {
+            keyStrokesRead++;
+        }
+        return key;
+    }
+
+    /**
+     * Stops the background thread that reads and decodes input, so that it no longer takes what comes in on the input
+     * stream. This is done automatically when leaving private mode. A read from the input stream can't be cancelled, so
+     * if the thread is waiting for input it stops as soon as that read returns, and any key strokes decoded from what
+     * it read are queued as usual. Reading or polling for input, adding an input listener or asking the terminal for its
+     * size afterwards starts the reader again; if the thread is still waiting for its last read at that point, it's
+     * simply kept running instead of being replaced, so there is never more than one thread reading the input stream.
+     */
+    public void stopInputReader() {
+        synchronized(readMutex) {
+            if(inputReaderThread != null) {
+                inputReaderStopRequested = true;
+            }
+        }
+    }
+
+    /**
+     * Called by the input reader thread before every read, clears the thread when it's time to stop
+     * @return {@code true} if the thread should keep reading input
+     */
+    private boolean keepReadingInput() {
         synchronized(readMutex) {
-            if(!keyQueue.isEmpty())
-                return keyQueue.poll();
-
-            KeyStroke key = inputDecoder.getNextCharacter(blocking);
-            if (key != null && key.getKeyType() == KeyType.CursorLocation) {
-                TerminalPosition reportedTerminalPosition = inputDecoder.getLastReportedTerminalPosition();
-                if (reportedTerminalPosition != null)
-                    onResized(reportedTerminalPosition.getColumn(), reportedTerminalPosition.getRow());
-
-                return pollInput();
-            } else {
-                return key;
+            if(inputReaderStopRequested) {
+                inputReaderStopRequested = false;
+                inputReaderThread = null;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void startInputReader() {
+        synchronized(readMutex) {
+            //If the reader is still around, waiting for the read it will stop after, let it keep going instead
+            inputReaderStopRequested = false;
+            if(inputReaderThread == null) {
+                inputReaderThread = new Thread("LanternaInputReader") {
+                    @Override
+                    public void run() {
+                        readInputInBackground();
+                    }
+                };
+                inputReaderThread.setDaemon(true);
+                inputReaderThread.start();
+            }
+        }
+    }
+
+    private void readInputInBackground() {
+        try {
+            while(keepReadingInput()) {
+                KeyStroke key = inputDecoder.getNextCharacter(true);
+                if(key == null) {
+                    continue;
+                }
+                if(key.getKeyType() == KeyType.CursorLocation) {
+                    TerminalPosition reportedTerminalPosition = inputDecoder.getLastReportedTerminalPosition();
+                    if(reportedTerminalPosition != null) {
+                        onCursorPositionReport(reportedTerminalPosition);
+                    }
+                    continue;
+                }
+                //If we got CTRL+F3 when asking for the size, it's probably a size report instead!!!
+                if(key.getKeyType() == KeyType.F3 && key.isCtrlDown() && !key.isAltDown() && isSizeReportExpected()) {
+                    onCursorPositionReport(new TerminalPosition(5, 1));
+                    continue;
+                }
+                queueKeyStroke(key);
+                fireInputAvailable();
+                if(key.getKeyType() == KeyType.EOF) {
+                    return;
+                }
+            }
+        }
+        catch(IOException e) {
+            inputReaderError = e;
+            keyQueue.add(INPUT_ERROR_MARKER);
+            synchronized(reportMutex) {
+                reportMutex.notifyAll();
+            }
+            fireInputAvailable();
+        }
+    }
+
+    private void queueKeyStroke(KeyStroke key) {
+        if(key.getKeyType() == KeyType.MouseMove && key instanceof MouseAction) {
+            //Only the latest position matters for a move nobody has read yet, so if the last thing in the queue is a
+            //move with the same buttons and modifiers, this one replaces it
+            KeyStroke last = keyQueue.peekLast();
+            if(last instanceof MouseAction && last.getKeyType() == KeyType.MouseMove &&
+                    ((MouseAction)last).getButton() == ((MouseAction)key).getButton() &&
+                    last.isCtrlDown() == key.isCtrlDown() && last.isAltDown() == key.isAltDown()) {
+                //If it has been read already in the meantime, this does nothing
+                keyQueue.removeLastOccurrence(last);
             }
         }
+        keyQueue.add(key);
+    }
+
+    private boolean isSizeReportExpected() {
+        synchronized(reportMutex) {
+            return sizeReportsExpected > 0;
+        }
+    }
+
+    private void onCursorPositionReport(TerminalPosition reportedTerminalPosition) {
+        synchronized(reportMutex) {
+            lastCursorReport = reportedTerminalPosition;
+            cursorReportCount++;
+            reportMutex.notifyAll();
+        }
+        onResized(reportedTerminalPosition.getColumn(), reportedTerminalPosition.getRow());
+    }
+
+    private void fireInputAvailable() {
+        for(Listener listener: inputListeners) {
+            listener.onInputAvailable(this);
+        }
+    }
+
+    /**
+     * Returns the total number of bytes this terminal has written to its output stream. Bytes still in the output
+     * buffer, waiting for the next flush, are not included.
+     * @return Number of bytes written to the output stream
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the total number of bytes this terminal has read from its input stream. Since the input is read ahead
+     * in blocks, this can include bytes that are not yet decoded into key strokes.
+     * @return Number of bytes read from the input stream
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Returns the total number of key strokes that has been decoded from the input and returned by
+     * {@code readInput()} or {@code pollInput()}. Terminal replies like cursor position reports are not counted.
+     * @return Number of key strokes read from this terminal
+     */
+    public long getKeyStrokesRead() {
+        return keyStrokesRead;
     }
 
     @Override
     public void flush() throws IOException {
-        synchronized(terminalOutput) {
+        synchronized(writerMutex) {
+            writeOutputBuffer();
             terminalOutput.flush();
         }
     }
@@ -294,9 +784,46 @@ public abstract class StreamBasedTerminal extends AbstractTerminal {
     }
 
     private byte[] convertToCharset(char input) {
-        //TODO: This is a silly way to do it, improve?
-        final char[] buffer = new char[1];
-        buffer[0] = input;
-        return terminalCharset.encode(CharBuffer.wrap(buffer)).array();
+        synchronized(writerMutex) {
+            ByteBuffer encoded = encodeCharacter(input);
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return bytes;
+        }
+    }
+
+    private class InputStreamCounter extends FilterInputStream {
+        InputStreamCounter(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while(true) {
+                int read = super.read(b, off, len);
+                if(read > 0) {
+                    bytesRead.addAndGet(read);
+                }
+                //The answer to an enquiry doesn't go to the decoder, wait for something that should
+                if(read <= 0 || !captureAnswerback(b, off, read)) {
+                    return read;
+                }
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if(skipped > 0) {
+                bytesRead.addAndGet(skipped);
+            }
+            return skipped;
+        }
     }
 }
@@ -70,6 +70,7 @@ public class TelnetTerminal extends ANSITerminal {
             @Override
             public void requestReply(boolean will, byte option) throws IOException {
                 writeToTerminal(COMMAND_IAC, will ? COMMAND_WILL : COMMAND_WONT, option);
+                flush();
             }
         });
         setLineMode0();
@@ -109,6 +110,7 @@ public class TelnetTerminal extends ANSITerminal {
      * @throws IOException If there was an underlying I/O error
      */
     public void close() throws IOException {
+        stopInputReader();
         socket.close();
     }
 
@@ -253,20 +255,23 @@ public class TelnetTerminal extends ANSITerminal {
             if(inputStream.available() > 0) {
                 fillBuffer();
             }
-            if(bytesInBuffer == 0) {
-                return -1;
+            //Block until there is something to return, the input is read by a thread that waits for it anyway
+            while(bytesInBuffer == 0) {
+                if(!fillBuffer()) {
+                    return -1;
+                }
             }
             int bytesToCopy = Math.min(len, bytesInBuffer);
             System.arraycopy(buffer, 0, b, off, bytesToCopy);
-            System.arraycopy(buffer, bytesToCopy, buffer, 0, buffer.length - bytesToCopy);
+            System.arraycopy(buffer, bytesToCopy, buffer, 0, bytesInBuffer - bytesToCopy);
             bytesInBuffer -= bytesToCopy;
             return bytesToCopy;
         }
 
-        private void fillBuffer() throws IOException {
+        private boolean fillBuffer() throws IOException {
             int readBytes = inputStream.read(workingBuffer, 0, Math.min(workingBuffer.length, buffer.length - bytesInBuffer));
             if(readBytes == -1) {
-                return;
+                return false;
             }
             for(int i = 0; i < readBytes; i++) {
                 if(workingBuffer[i] == COMMAND_IAC) {
@@ -286,6 +291,7 @@ public class TelnetTerminal extends ANSITerminal {
                 }
                 buffer[bytesInBuffer++] = workingBuffer[i];
             }
+            return true;
         }
         
         private void parseCommand(byte[] buffer, int position, int max) throws IOException {
@@ -1,17 +1,17 @@
 package com.googlecode.lanterna.terminal.ansi;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.googlecode.lanterna.input.KeyStroke;
 
@@ -24,6 +24,9 @@ import com.googlecode.lanterna.input.KeyStroke;
  *  If requested, it handles Control-C input to terminate the program, and hooks
  *  into Unix WINCH signal to detect when the user has resized the terminal,
  *  if supported by the JVM.
+ * <p/>
+ *  Every call to stty means starting a new process, which is slow compared to everything else the terminal does, so
+ *  the settings made while setting up and restoring the terminal are collected and passed to stty in one go.
  *
  * @author Andreas
  * @author Martin
@@ -48,6 +51,8 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
     protected final CtrlCBehaviour terminalCtrlCBehaviour;
     protected final File ttyDev;
     private String sttyStatusToRestore;
+    private final List<String> deferredSTTYSettings;
+    private int sttyDeferralDepth;
 
     /**
      * Creates a UnixTerminal using a specified input stream, output stream and character set, with a custom size
@@ -72,6 +77,8 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
         super(terminalInput, terminalOutput, terminalCharset);
         this.terminalCtrlCBehaviour = terminalCtrlCBehaviour;
         this.sttyStatusToRestore = null;
+        this.deferredSTTYSettings = new ArrayList<String>();
+        this.sttyDeferralDepth = 0;
         this.ttyDev = ttyDev;
     }
 
@@ -88,24 +95,65 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
         }
         ProcessBuilder pb = new ProcessBuilder(cmd);
         Process process = pb.start();
-        ByteArrayOutputStream stdoutBuffer = new ByteArrayOutputStream();
-        InputStream stdout = process.getInputStream();
-        int readByte = stdout.read();
-        while(readByte >= 0) {
-            stdoutBuffer.write(readByte);
-            readByte = stdout.read();
-        }
-        ByteArrayInputStream stdoutBufferInputStream = new ByteArrayInputStream(stdoutBuffer.toByteArray());
-        BufferedReader reader = new BufferedReader(new InputStreamReader(stdoutBufferInputStream));
+        //Read the whole output, joining the lines together
+        Reader stdout = new InputStreamReader(process.getInputStream());
         StringBuilder builder = new StringBuilder();
-        String line;
-        while((line = reader.readLine()) != null) {
-            builder.append(line);
+        char[] buffer = new char[256];
+        int readChars = stdout.read(buffer);
+        while(readChars >= 0) {
+            for(int i = 0; i < readChars; i++) {
+                if(buffer[i] != '\n' && buffer[i] != '\r') {
+                    builder.append(buffer[i]);
+                }
+            }
+            readChars = stdout.read(buffer);
         }
-        reader.close();
+        stdout.close();
         return builder.toString();
     }
 
+    /**
+     * Applies one or more stty settings to the terminal. If the settings are being deferred (see
+     * {@code deferSTTYSettings()}), they are only remembered and will be passed to stty along with the others when
+     * {@code applyDeferredSTTYSettings()} is called.
+     * @param settings Settings to pass to stty, like {@code "-echo"} or {@code "min", "1"}
+     * @throws IOException If there was an I/O error running stty
+     */
+    protected synchronized void stty(String... settings) throws IOException {
+        if(sttyDeferralDepth > 0) {
+            for(String setting: settings) {
+                deferredSTTYSettings.add(setting);
+            }
+        }
+        else {
+            runSTTYCommand(settings);
+        }
+    }
+
+    /**
+     * Starts collecting the settings made through {@code stty(..)} instead of running stty for each of them, until
+     * {@code applyDeferredSTTYSettings()} is called. Calls can be nested, in which case the settings are applied when
+     * the outermost deferral ends.
+     */
+    protected synchronized void deferSTTYSettings() {
+        sttyDeferralDepth++;
+    }
+
+    /**
+     * Ends a deferral started by {@code deferSTTYSettings()}. If it was the outermost one, all settings collected since
+     * then are passed to stty in a single invocation, in the order they were made, and settings will be applied
+     * immediately again.
+     * @throws IOException If there was an I/O error running stty
+     */
+    protected synchronized void applyDeferredSTTYSettings() throws IOException {
+        if(sttyDeferralDepth == 0 || --sttyDeferralDepth > 0 || deferredSTTYSettings.isEmpty()) {
+            return;
+        }
+        String[] settings = deferredSTTYSettings.toArray(new String[deferredSTTYSettings.size()]);
+        deferredSTTYSettings.clear();
+        runSTTYCommand(settings);
+    }
+
     @Override
     public KeyStroke pollInput() throws IOException {
         //Check if we have ctrl+c coming
@@ -200,6 +248,25 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
         }
     }
 
+    /**
+     * Puts the terminal in the mode Lanterna needs; cbreak, no echo and returning from reads as soon as there is one
+     * character available, after saving the current settings so they can be restored at the end. Apart from saving,
+     * this is done with a single call to stty.
+     * @throws IOException If there was an I/O error running stty
+     */
+    protected synchronized void setupSTTY() throws IOException {
+        saveSTTY();
+        deferSTTYSettings();
+        try {
+            setCBreak(true);
+            setEcho(false);
+            sttyMinimum1CharacterForRead();
+        }
+        finally {
+            applyDeferredSTTYSettings();
+        }
+    }
+
     protected synchronized void restoreSTTY() throws IOException {
         if(sttyStatusToRestore != null) {
             sttyRestore( sttyStatusToRestore );
@@ -207,6 +274,14 @@ public abstract class UnixLikeTerminal extends ANSITerminal {
         }
     }
 
+    /**
+     * Runs stty on the terminal device with the given parameters and returns what it printed
+     * @param parameters Parameters to pass to stty
+     * @return Output of stty, with the lines joined together
+     * @throws IOException If there was an I/O error running stty
+     */
+    protected abstract String runSTTYCommand(String... parameters) throws IOException;
+
     // A couple of system-dependent helpers:
     protected abstract void sttyKeyEcho(final boolean enable) throws IOException;
     protected abstract void sttyMinimum1CharacterForRead() throws IOException;
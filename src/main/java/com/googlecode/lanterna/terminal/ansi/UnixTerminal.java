@@ -117,16 +117,16 @@ public class UnixTerminal extends UnixLikeTerminal {
         onResized(80, 24);
         
         setupWinResizeHandler();
-        saveSTTY();
-        setCBreak(true);
-        setEcho(false);
-        sttyMinimum1CharacterForRead();
-        if("false".equals(System.getProperty("com.googlecode.lanterna.terminal.UnixTerminal.catchSpecialCharacters", "").trim().toLowerCase())) {
-            catchSpecialCharacters = false;
+        catchSpecialCharacters = !"false".equals(System.getProperty("com.googlecode.lanterna.terminal.UnixTerminal.catchSpecialCharacters", "").trim().toLowerCase());
+        deferSTTYSettings();
+        try {
+            setupSTTY();
+            if(catchSpecialCharacters) {
+                disableSpecialCharacters();
+            }
         }
-        else {
-            catchSpecialCharacters = true;
-            disableSpecialCharacters();
+        finally {
+            applyDeferredSTTYSettings();
         }
         setupShutdownHook();
     }
@@ -142,27 +142,35 @@ public class UnixTerminal extends UnixLikeTerminal {
 
     @Override
     protected void sttyKeyEcho(final boolean enable) throws IOException {
-        exec(getSTTYCommand(), enable ? "echo" : "-echo");
+        stty(enable ? "echo" : "-echo");
     }
 
     @Override
     protected void sttyMinimum1CharacterForRead() throws IOException {
-        exec(getSTTYCommand(), "min", "1");
+        stty("min", "1");
     }
 
     @Override
     protected void sttyICanon(final boolean enable) throws IOException {
-        exec(getSTTYCommand(), enable ? "icanon" : "-icanon");
+        stty(enable ? "icanon" : "-icanon");
     }
 
     @Override
     protected String sttySave() throws IOException {
-        return exec(getSTTYCommand(), "-g").trim();
+        return runSTTYCommand("-g").trim();
     }
 
     @Override
     protected void sttyRestore(String tok) throws IOException {
-        exec(getSTTYCommand(), tok);
+        stty(tok);
+    }
+
+    @Override
+    protected String runSTTYCommand(String... parameters) throws IOException {
+        String[] commandLine = new String[parameters.length + 1];
+        commandLine[0] = getSTTYCommand();
+        System.arraycopy(parameters, 0, commandLine, 1, parameters.length);
+        return exec(commandLine);
     }
 
     /*
@@ -187,18 +195,24 @@ public class UnixTerminal extends UnixLikeTerminal {
     */
 
     public void disableSpecialCharacters() throws IOException {
-        exec(getSTTYCommand(), "intr", "undef");
+        stty("intr", "undef");
     }
 
     public void restoreSpecialCharacters() throws IOException {
-        exec(getSTTYCommand(), "intr", "^C");
+        stty("intr", "^C");
     }
 
     @Override
     protected synchronized void restoreSTTY() throws IOException {
-        super.restoreSTTY();
-        if(catchSpecialCharacters) {
-            restoreSpecialCharacters();
+        deferSTTYSettings();
+        try {
+            super.restoreSTTY();
+            if(catchSpecialCharacters) {
+                restoreSpecialCharacters();
+            }
+        }
+        finally {
+            applyDeferredSTTYSettings();
         }
     }
 
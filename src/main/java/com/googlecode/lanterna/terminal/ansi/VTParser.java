@@ -0,0 +1,272 @@
+/*
+ * This file is part of lanterna (http://code.google.com/p/lanterna/).
+ * 
+ * lanterna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2010-2015 Martin
+ */
+package com.googlecode.lanterna.terminal.ansi;
+
+/**
+ * Table-driven parser for the escape sequences of VT100-style terminals, following the state machine described by
+ * Paul Williams (http://vt100.net/emu/dec_ansi_parser). Characters are fed in one by one and every complete printable
+ * character, control character or escape sequence is passed on to a {@code Handler}. Each state has a table with an
+ * entry for every character from 0x00 to 0xA0, telling what to do with the character and which state to go to next;
+ * everything above 0xA0 is treated like 0xA0, which in ground state means it's printed.
+ * <p/>
+ * Device control strings and SOS/PM/APC strings are recognized but ignored.
+ * @author Martin
+ */
+class VTParser {
+    /**
+     * Receives what the parser found in the character stream
+     */
+    interface Handler {
+        /**
+         * A printable character
+         */
+        void print(char c);
+
+        /**
+         * A C0 or C1 control character, like carriage return or line feed
+         */
+        void execute(char c);
+
+        /**
+         * An escape sequence that is not a control sequence, like ESC 7
+         * @param intermediates Intermediate characters between ESC and the final character, empty if there were none
+         * @param finalCharacter Character ending the sequence
+         */
+        void escapeDispatch(String intermediates, char finalCharacter);
+
+        /**
+         * A control sequence (CSI)
+         * @param intermediates Private marker (like '?') and intermediate characters, empty if there were none
+         * @param parameters Numeric parameters, a parameter that was left out is -1
+         * @param parameterCount How many parameters in {@code parameters} are used
+         * @param finalCharacter Character ending the sequence
+         */
+        void csiDispatch(String intermediates, int[] parameters, int parameterCount, char finalCharacter);
+
+        /**
+         * An operating system command (OSC) string, like the one setting the window title
+         * @param command The string between OSC and the terminating BEL or ST
+         */
+        void oscDispatch(String command);
+    }
+
+    private static final int MAX_PARAMETERS = 16;
+    private static final int MAX_INTERMEDIATES = 4;
+    private static final int MAX_OSC_LENGTH = 4096;
+    private static final int TABLE_SIZE = 0xA1;
+
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int ESCAPE_INTERMEDIATE = 2;
+    private static final int CSI_ENTRY = 3;
+    private static final int CSI_PARAM = 4;
+    private static final int CSI_INTERMEDIATE = 5;
+    private static final int CSI_IGNORE = 6;
+    private static final int OSC_STRING = 7;
+    private static final int IGNORED_STRING = 8;    //DCS, SOS, PM and APC, all ignored until ST
+    private static final int STATE_COUNT = 9;
+
+    private static final int NONE = 0;
+    private static final int PRINT = 1;
+    private static final int EXECUTE = 2;
+    private static final int CLEAR = 3;
+    private static final int COLLECT = 4;
+    private static final int PARAM = 5;
+    private static final int ESC_DISPATCH = 6;
+    private static final int CSI_DISPATCH = 7;
+    private static final int OSC_START = 8;
+    private static final int OSC_PUT = 9;
+    private static final int OSC_END = 10;
+
+    //Each entry is (action << 4) | next state
+    private static final byte[][] TRANSITIONS = new byte[STATE_COUNT][TABLE_SIZE];
+
+    static {
+        for(int state = 0; state < STATE_COUNT; state++) {
+            //C0 controls are executed in the middle of sequences, except in the strings
+            if(state == OSC_STRING || state == IGNORED_STRING) {
+                set(state, 0x00, 0x1F, NONE, state);
+                set(state, 0x20, 0xA0, state == OSC_STRING ? OSC_PUT : NONE, state);
+            }
+            else {
+                set(state, 0x00, 0x17, EXECUTE, state);
+                set(state, 0x19, 0x19, EXECUTE, state);
+                set(state, 0x1C, 0x1F, EXECUTE, state);
+            }
+            //These transitions apply anywhere
+            set(state, 0x18, 0x18, EXECUTE, GROUND);
+            set(state, 0x1A, 0x1A, EXECUTE, GROUND);
+            set(state, 0x1B, 0x1B, state == OSC_STRING ? OSC_END : CLEAR, ESCAPE);
+            set(state, 0x80, 0x8F, EXECUTE, GROUND);
+            set(state, 0x90, 0x90, NONE, IGNORED_STRING);
+            set(state, 0x91, 0x97, EXECUTE, GROUND);
+            set(state, 0x98, 0x98, NONE, IGNORED_STRING);
+            set(state, 0x99, 0x9A, EXECUTE, GROUND);
+            set(state, 0x9B, 0x9B, CLEAR, CSI_ENTRY);
+            set(state, 0x9C, 0x9C, state == OSC_STRING ? OSC_END : NONE, GROUND);
+            set(state, 0x9D, 0x9D, OSC_START, OSC_STRING);
+            set(state, 0x9E, 0x9F, NONE, IGNORED_STRING);
+        }
+        set(OSC_STRING, 0x07, 0x07, OSC_END, GROUND);
+
+        set(GROUND, 0x20, 0x7F, PRINT, GROUND);
+        set(GROUND, 0xA0, 0xA0, PRINT, GROUND);
+
+        set(ESCAPE, 0x20, 0x2F, COLLECT, ESCAPE_INTERMEDIATE);
+        set(ESCAPE, 0x30, 0x7E, ESC_DISPATCH, GROUND);
+        set(ESCAPE, 0x50, 0x50, NONE, IGNORED_STRING);
+        set(ESCAPE, 0x58, 0x58, NONE, IGNORED_STRING);
+        set(ESCAPE, 0x5B, 0x5B, CLEAR, CSI_ENTRY);
+        set(ESCAPE, 0x5D, 0x5D, OSC_START, OSC_STRING);
+        set(ESCAPE, 0x5E, 0x5F, NONE, IGNORED_STRING);
+        set(ESCAPE, 0x7F, 0xA0, NONE, ESCAPE);
+
+        set(ESCAPE_INTERMEDIATE, 0x20, 0x2F, COLLECT, ESCAPE_INTERMEDIATE);
+        set(ESCAPE_INTERMEDIATE, 0x30, 0x7E, ESC_DISPATCH, GROUND);
+        set(ESCAPE_INTERMEDIATE, 0x7F, 0xA0, NONE, ESCAPE_INTERMEDIATE);
+
+        set(CSI_ENTRY, 0x20, 0x2F, COLLECT, CSI_INTERMEDIATE);
+        set(CSI_ENTRY, 0x30, 0x39, PARAM, CSI_PARAM);
+        set(CSI_ENTRY, 0x3A, 0x3A, NONE, CSI_IGNORE);
+        set(CSI_ENTRY, 0x3B, 0x3B, PARAM, CSI_PARAM);
+        set(CSI_ENTRY, 0x3C, 0x3F, COLLECT, CSI_PARAM);
+        set(CSI_ENTRY, 0x40, 0x7E, CSI_DISPATCH, GROUND);
+        set(CSI_ENTRY, 0x7F, 0xA0, NONE, CSI_ENTRY);
+
+        set(CSI_PARAM, 0x20, 0x2F, COLLECT, CSI_INTERMEDIATE);
+        set(CSI_PARAM, 0x30, 0x39, PARAM, CSI_PARAM);
+        set(CSI_PARAM, 0x3A, 0x3A, NONE, CSI_IGNORE);
+        set(CSI_PARAM, 0x3B, 0x3B, PARAM, CSI_PARAM);
+        set(CSI_PARAM, 0x3C, 0x3F, NONE, CSI_IGNORE);
+        set(CSI_PARAM, 0x40, 0x7E, CSI_DISPATCH, GROUND);
+        set(CSI_PARAM, 0x7F, 0xA0, NONE, CSI_PARAM);
+
+        set(CSI_INTERMEDIATE, 0x20, 0x2F, COLLECT, CSI_INTERMEDIATE);
+        set(CSI_INTERMEDIATE, 0x30, 0x3F, NONE, CSI_IGNORE);
+        set(CSI_INTERMEDIATE, 0x40, 0x7E, CSI_DISPATCH, GROUND);
+        set(CSI_INTERMEDIATE, 0x7F, 0xA0, NONE, CSI_INTERMEDIATE);
+
+        set(CSI_IGNORE, 0x20, 0x3F, NONE, CSI_IGNORE);
+        set(CSI_IGNORE, 0x40, 0x7E, NONE, GROUND);
+        set(CSI_IGNORE, 0x7F, 0xA0, NONE, CSI_IGNORE);
+    }
+
+    private static void set(int state, int from, int to, int action, int nextState) {
+        for(int c = from; c <= to; c++) {
+            TRANSITIONS[state][c] = (byte)((action << 4) | nextState);
+        }
+    }
+
+    private final Handler handler;
+    private final int[] parameters;
+    private final StringBuilder intermediates;
+    private final StringBuilder oscString;
+    private int parameterCount;
+    private int state;
+
+    VTParser(Handler handler) {
+        this.handler = handler;
+        this.parameters = new int[MAX_PARAMETERS];
+        this.intermediates = new StringBuilder();
+        this.oscString = new StringBuilder();
+        this.parameterCount = 0;
+        this.state = GROUND;
+    }
+
+    /**
+     * Parses the next character of the stream
+     * @param c Character to parse
+     */
+    void parse(char c) {
+        int transition = TRANSITIONS[state][c < TABLE_SIZE ? c : TABLE_SIZE - 1] & 0xFF;
+        state = transition & 0x0F;
+        switch(transition >> 4) {
+            case PRINT:
+                handler.print(c);
+                break;
+            case EXECUTE:
+                handler.execute(c);
+                break;
+            case CLEAR:
+                intermediates.setLength(0);
+                parameterCount = 0;
+                break;
+            case COLLECT:
+                if(intermediates.length() < MAX_INTERMEDIATES) {
+                    intermediates.append(c);
+                }
+                break;
+            case PARAM:
+                addParameterCharacter(c);
+                break;
+            case ESC_DISPATCH:
+                handler.escapeDispatch(intermediates.toString(), c);
+                break;
+            case CSI_DISPATCH:
+                handler.csiDispatch(intermediates.toString(), parameters, parameterCount, c);
+                break;
+            case OSC_START:
+                oscString.setLength(0);
+                break;
+            case OSC_PUT:
+                if(oscString.length() < MAX_OSC_LENGTH) {
+                    oscString.append(c);
+                }
+                break;
+            case OSC_END:
+                handler.oscDispatch(oscString.toString());
+                //ESC ending the string is also the start of the next sequence (normally ST)
+                intermediates.setLength(0);
+                parameterCount = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Parses a sequence of characters
+     * @param characters Array holding the characters
+     * @param offset Index of the first character to parse
+     * @param length Number of characters to parse
+     */
+    void parse(char[] characters, int offset, int length) {
+        for(int i = offset; i < offset + length; i++) {
+            parse(characters[i]);
+        }
+    }
+
+    private void addParameterCharacter(char c) {
+        if(parameterCount == 0) {
+            parameters[0] = -1;
+            parameterCount = 1;
+        }
+        if(c == ';') {
+            if(parameterCount < MAX_PARAMETERS) {
+                parameters[parameterCount++] = -1;
+            }
+        }
+        else {
+            int index = parameterCount - 1;
+            int value = parameters[index] == -1 ? 0 : parameters[index];
+            //Cap the value so a long run of digits can't overflow
+            parameters[index] = Math.min(value * 10 + (c - '0'), 99999);
+        }
+    }
+}
@@ -495,7 +495,7 @@ public class SwingTerminal extends JComponent implements IOSafeTerminal {
 
     @Override
     public synchronized void putCharacter(final char c) {
-        virtualTerminal.putCharacter(new TextCharacter(c, foregroundColor, backgroundColor, activeSGRs));
+        virtualTerminal.putCharacter(TextCharacter.of(c, foregroundColor, backgroundColor, activeSGRs));
     }
 
     @Override
@@ -0,0 +1,103 @@
+package com.googlecode.lanterna;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+public class TextCharacterTest {
+
+    @Test
+    public void testModifierMaskMatchesModifiers() {
+        SGR[] all = SGR.values();
+        for(int mask = 0; mask < 1 << all.length; mask++) {
+            EnumSet<SGR> modifiers = EnumSet.noneOf(SGR.class);
+            for(SGR sgr: all) {
+                if((mask & (1 << sgr.ordinal())) != 0) {
+                    modifiers.add(sgr);
+                }
+            }
+            TextCharacter fromMask = TextCharacter.of('x', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT, mask);
+            TextCharacter fromSet = new TextCharacter('x', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT, modifiers);
+            TextCharacter fromArray = new TextCharacter('x', TextColor.ANSI.RED, TextColor.ANSI.DEFAULT,
+                    modifiers.toArray(new SGR[modifiers.size()]));
+            assertEquals(mask, fromSet.getModifierMask());
+            assertEquals(modifiers, fromMask.getModifiers());
+            assertEquals(fromSet, fromMask);
+            assertEquals(fromSet, fromArray);
+            assertEquals(fromSet.hashCode(), fromMask.hashCode());
+            assertEquals(modifiers.contains(SGR.BOLD), fromMask.isBold());
+            assertEquals(modifiers.contains(SGR.REVERSE), fromMask.isReversed());
+            assertEquals(modifiers.contains(SGR.UNDERLINE), fromMask.isUnderlined());
+            assertEquals(modifiers.contains(SGR.BLINK), fromMask.isBlinking());
+            assertEquals(modifiers.contains(SGR.BORDERED), fromMask.isBordered());
+            assertEquals(modifiers.contains(SGR.CROSSED_OUT), fromMask.isCrossedOut());
+        }
+    }
+
+    @Test
+    public void testWithAndWithoutModifier() {
+        TextCharacter character = new TextCharacter('x');
+        for(SGR sgr: SGR.values()) {
+            TextCharacter with = character.withModifier(sgr);
+            assertEquals(EnumSet.of(sgr), with.getModifiers());
+            assertSame(with, with.withModifier(sgr));
+            assertEquals(character, with.withoutModifier(sgr));
+            assertSame(character, character.withoutModifier(sgr));
+        }
+        TextCharacter everything = TextCharacter.of('x', null, null, EnumSet.allOf(SGR.class));
+        assertEquals(EnumSet.allOf(SGR.class), everything.getModifiers());
+        assertEquals(EnumSet.complementOf(EnumSet.of(SGR.CIRCLED)),
+                everything.withoutModifier(SGR.CIRCLED).getModifiers());
+    }
+
+    @Test
+    public void testFlyweightInstances() {
+        TextColor rgb = new TextColor.RGB(10, 20, 30);
+        TextCharacter first = TextCharacter.of('q', rgb, new TextColor.Indexed(200), EnumSet.of(SGR.BOLD));
+        TextCharacter second = TextCharacter.of('q', new TextColor.RGB(10, 20, 30), new TextColor.Indexed(200),
+                EnumSet.of(SGR.BOLD));
+        assertSame(first, second);
+        assertSame(first, first.withForegroundColor(new TextColor.RGB(10, 20, 30)));
+        assertSame(first, first.withCharacter('q'));
+
+        //Changing a property gives an equal instance to one created directly
+        assertEquals(TextCharacter.of('r', rgb, new TextColor.Indexed(200), EnumSet.of(SGR.BOLD)),
+                first.withCharacter('r'));
+        assertEquals(new TextCharacter('q', rgb, TextColor.ANSI.BLUE, SGR.BOLD),
+                first.withBackgroundColor(TextColor.ANSI.BLUE));
+
+        //Null colors mean the default color, just like with the constructors
+        assertEquals(new TextCharacter('q'), TextCharacter.of('q', null, null, 0));
+    }
+
+    @Test
+    public void testCacheCollisionsDontMixUpCharacters() {
+        //Far more characters than there are cache slots, each must still come back exactly as asked for
+        for(int round = 0; round < 2; round++) {
+            for(int i = 0; i < 20000; i++) {
+                TextColor foreground = new TextColor.Indexed(i % 256);
+                TextCharacter character = TextCharacter.of((char)i, foreground, TextColor.ANSI.DEFAULT, i % 256);
+                assertEquals((char)i, character.getCharacter());
+                assertEquals(foreground, character.getForegroundColor());
+                assertEquals(i % 256, character.getModifierMask());
+            }
+        }
+    }
+
+    @Test
+    public void testEqualsComparesAllFields() {
+        TextCharacter character = new TextCharacter('x', TextColor.ANSI.RED, TextColor.ANSI.BLUE, SGR.CIRCLED);
+        assertFalse(character.equals(character.withCharacter('y')));
+        assertFalse(character.equals(character.withForegroundColor(TextColor.ANSI.GREEN)));
+        assertFalse(character.equals(character.withBackgroundColor(TextColor.ANSI.GREEN)));
+        assertFalse(character.equals(character.withoutModifier(SGR.CIRCLED)));
+        assertFalse(character.equals(character.withModifier(SGR.BOLD)));
+        assertNotSame(character, new TextCharacter(character));
+        assertEquals(character, new TextCharacter(character));
+    }
+}
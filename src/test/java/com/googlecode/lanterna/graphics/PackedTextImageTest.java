@@ -0,0 +1,133 @@
+package com.googlecode.lanterna.graphics;
+
+import com.googlecode.lanterna.SGR;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.TextCharacter;
+import com.googlecode.lanterna.TextColor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PackedTextImageTest {
+
+    private static final int SGR_COMBINATIONS = 1 << SGR.values().length;
+
+    @Test
+    public void testPackEveryModifierCombination() {
+        for(int mask = 0; mask < SGR_COMBINATIONS; mask++) {
+            TextCharacter character = TextCharacter.of('x', TextColor.ANSI.RED, TextColor.ANSI.BLUE, mask);
+            long packed = PackedTextImage.pack(character);
+            assertTrue(PackedTextImage.isUnpackable(packed));
+            TextCharacter unpacked = PackedTextImage.unpack(packed);
+            assertEquals(character, unpacked);
+            assertEquals(mask, unpacked.getModifierMask());
+        }
+    }
+
+    @Test
+    public void testCircledUsesTheSignBit() {
+        //The last modifier ends up in bit 63, which must survive the unsigned shift back
+        TextCharacter circled = new TextCharacter('o', TextColor.ANSI.DEFAULT, TextColor.ANSI.DEFAULT, SGR.CIRCLED);
+        long packed = PackedTextImage.pack(circled);
+        assertTrue(packed < 0);
+        assertEquals(EnumSet.of(SGR.CIRCLED), PackedTextImage.unpack(packed).getModifiers());
+
+        TextCharacter plain = circled.withoutModifier(SGR.CIRCLED);
+        assertEquals(packed & Long.MAX_VALUE, PackedTextImage.pack(plain));
+        assertEquals(plain, PackedTextImage.unpack(PackedTextImage.pack(plain)));
+    }
+
+    @Test
+    public void testPackCharactersAndAnsiColors() {
+        char[] characters = { ' ', 'a', 'ä', '日', '─', '￿' };
+        for(char c: characters) {
+            for(TextColor.ANSI foreground: TextColor.ANSI.values()) {
+                for(TextColor.ANSI background: TextColor.ANSI.values()) {
+                    TextCharacter character = new TextCharacter(c, foreground, background, SGR.BOLD, SGR.CIRCLED);
+                    assertEquals(character, PackedTextImage.unpack(PackedTextImage.pack(character)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedAndRGBColors() {
+        PackedTextImage image = new PackedTextImage(new TerminalSize(16, 16));
+        for(int i = 0; i < 256; i++) {
+            TextColor foreground = new TextColor.Indexed(i);
+            TextColor background = new TextColor.RGB(i, 255 - i, i / 2);
+            image.setCharacterAt(i % 16, i / 16,
+                    new TextCharacter((char)('A' + i % 26), foreground, background, SGR.values()[i % 8]));
+        }
+        for(int i = 0; i < 256; i++) {
+            TextCharacter character = image.getCharacterAt(i % 16, i / 16);
+            assertEquals(new TextColor.Indexed(i), character.getForegroundColor());
+            assertEquals(new TextColor.RGB(i, 255 - i, i / 2), character.getBackgroundColor());
+            assertEquals(EnumSet.of(SGR.values()[i % 8]), character.getModifiers());
+        }
+    }
+
+    @Test
+    public void testOutOfBounds() {
+        PackedTextImage image = new PackedTextImage(new TerminalSize(3, 2));
+        image.setCharacterAt(3, 0, new TextCharacter('x'));
+        image.setCharacterAt(-1, 0, new TextCharacter('x'));
+        assertNull(image.getCharacterAt(3, 0));
+        assertNull(image.getCharacterAt(0, 2));
+        assertEquals(TextCharacter.DEFAULT_CHARACTER, image.getCharacterAt(2, 1));
+    }
+
+    @Test
+    public void testMoreColorsThanTheColorTableHolds() {
+        //Distinct colors that no other test uses, more than the table could ever hold
+        List<TextColor> colors = new ArrayList<TextColor>();
+        for(int i = 0; i < 5000; i++) {
+            colors.add(new TextColor.RGB(i % 256, (i / 256) % 256, 77));
+        }
+        PackedTextImage image = new PackedTextImage(new TerminalSize(100, 50));
+        for(int i = 0; i < colors.size(); i++) {
+            image.setCharacterAt(i % 100, i / 100,
+                    new TextCharacter('c', colors.get(i), TextColor.ANSI.BLACK, SGR.CIRCLED));
+        }
+        //The table is full and the last colors didn't make it in
+        long lastPacked = image.getPackedCharacterAt(99, 49);
+        assertFalse(PackedTextImage.isUnpackable(lastPacked));
+
+        //Characters with those colors are still there, and still tell apart although the packed values are the same
+        for(int i = 0; i < colors.size(); i++) {
+            TextCharacter character = image.getCharacterAt(i % 100, i / 100);
+            assertEquals(colors.get(i), character.getForegroundColor());
+            assertEquals(EnumSet.of(SGR.CIRCLED), character.getModifiers());
+        }
+        PackedTextImage other = new PackedTextImage(new TerminalSize(100, 50));
+        image.copyTo(other);
+        assertTrue(other.isSameCharacterAt(99, 49, image));
+        other.setCharacterAt(99, 49, image.getCharacterAt(98, 49));
+        assertEquals(lastPacked, other.getPackedCharacterAt(99, 49));
+        assertFalse(other.isSameCharacterAt(99, 49, image));
+
+        //Copying to another kind of image and resizing keeps the colors
+        BasicTextImage basicImage = new BasicTextImage(new TerminalSize(100, 50));
+        image.copyTo(basicImage);
+        PackedTextImage resized = image.resize(new TerminalSize(101, 51), TextCharacter.DEFAULT_CHARACTER);
+        for(int i = 0; i < colors.size(); i++) {
+            assertEquals(image.getCharacterAt(i % 100, i / 100), basicImage.getCharacterAt(i % 100, i / 100));
+            assertEquals(image.getCharacterAt(i % 100, i / 100), resized.getCharacterAt(i % 100, i / 100));
+        }
+
+        //Overwriting with a character that packs normally replaces the one kept on the side
+        TextCharacter plain = new TextCharacter('p', TextColor.ANSI.GREEN, TextColor.ANSI.BLACK);
+        image.setCharacterAt(99, 49, plain);
+        assertEquals(plain, image.getCharacterAt(99, 49));
+        image.setAll(plain);
+        assertEquals(plain, image.getCharacterAt(0, 0));
+        assertTrue(PackedTextImage.isUnpackable(image.getPackedCharacterAt(99, 49)));
+    }
+}
@@ -0,0 +1,230 @@
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.input.CharacterPattern;
+import com.googlecode.lanterna.input.DefaultKeyDecodingProfile;
+import com.googlecode.lanterna.input.InputDecoder;
+import com.googlecode.lanterna.input.KeyDecodingProfile;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.PasteAction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BracketedPasteTest {
+
+    private static final String PASTE_START = KeyDecodingProfile.ESC_CODE + "[200~";
+    private static final String PASTE_END = KeyDecodingProfile.ESC_CODE + "[201~";
+
+    @Test
+    public void testPasteInOneRead() throws IOException {
+        InputDecoder decoder = createDecoder("a" + PASTE_START + "hello\r\nworld\rand\n" + PASTE_END + "b");
+        assertEquals(new KeyStroke('a', false, false), decoder.getNextCharacter(false));
+        assertEquals(new PasteAction("hello\nworld\nand\n"), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('b', false, false), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testEscapeSequencesInsidePasteAreText() throws IOException {
+        String text = KeyDecodingProfile.ESC_CODE + "[A" + KeyDecodingProfile.ESC_CODE + "[201" + "x";
+        InputDecoder decoder = createDecoder(PASTE_START + text + PASTE_END);
+        assertEquals(new PasteAction(text), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testPasteSplitAcrossReads() throws IOException {
+        String input = PASTE_START + "some\r\npasted text" + PASTE_END + "x";
+        //Cut the input everywhere after the start marker (which is decoded like any other escape sequence), including
+        //inside the end marker and between '\r' and '\n'
+        for(int split = PASTE_START.length(); split < input.length(); split++) {
+            String message = "Split at " + split;
+            InputDecoder decoder = createDecoder(input.substring(0, split), input.substring(split));
+            assertEquals(message, new PasteAction("some\npasted text"), decoder.getNextCharacter(true));
+            assertEquals(message, new KeyStroke('x', false, false), decoder.getNextCharacter(true));
+
+            //Without blocking, there's nothing to return until the rest of the paste has arrived
+            ScriptedReader reader = new ScriptedReader(false, input.substring(0, split), input.substring(split));
+            decoder = new InputDecoder(reader);
+            decoder.addProfile(new DefaultKeyDecodingProfile());
+            boolean endMarkerArrived = split == input.length() - 1;
+            if(!endMarkerArrived) {
+                assertNull(message, decoder.getNextCharacter(false));
+                assertNull(message, decoder.getNextCharacter(false));
+                reader.deliverNextChunk();
+            }
+            assertEquals(message, new PasteAction("some\npasted text"), decoder.getNextCharacter(false));
+            if(endMarkerArrived) {
+                assertNull(message, decoder.getNextCharacter(false));
+                reader.deliverNextChunk();
+            }
+            assertEquals(message, new KeyStroke('x', false, false), decoder.getNextCharacter(false));
+        }
+    }
+
+    @Test
+    public void testPasteInManyReads() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 200; i++) {
+            text.append("line ").append(i).append("\r\n");
+        }
+        String input = PASTE_START + text + PASTE_END;
+        String[] chunks = new String[(input.length() + 6) / 7];
+        for(int i = 0; i < chunks.length; i++) {
+            chunks[i] = input.substring(i * 7, Math.min(input.length(), i * 7 + 7));
+        }
+        InputDecoder decoder = createDecoder(chunks);
+        assertEquals(new PasteAction(text.toString().replace("\r\n", "\n")), decoder.getNextCharacter(true));
+    }
+
+    @Test
+    public void testPasteLargerThanBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while(text.length() < 200000) {
+            text.append("The quick brown fox jumps over the lazy dog\n");
+        }
+        InputDecoder decoder = createDecoder(PASTE_START + text + PASTE_END + "q");
+        assertEquals(new PasteAction(text.toString()), decoder.getNextCharacter(true));
+        assertEquals(new KeyStroke('q', false, false), decoder.getNextCharacter(true));
+    }
+
+    @Test
+    public void testMissingEndMarker() throws IOException {
+        //Without blocking, the paste isn't returned until it's complete
+        InputDecoder decoder = createDecoder(PASTE_START + "unfinished");
+        assertNull(decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+
+        //At the end of the stream, whatever was pasted so far is returned, followed by the end of the stream
+        decoder = new InputDecoder(new ScriptedReader(true, PASTE_START + "unfinished" + KeyDecodingProfile.ESC_CODE));
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        assertEquals(new PasteAction("unfinished" + KeyDecodingProfile.ESC_CODE), decoder.getNextCharacter(true));
+        assertEquals(new KeyStroke(KeyType.EOF), decoder.getNextCharacter(true));
+    }
+
+    @Test
+    public void testBlockingWaitsForIncompleteSequence() throws IOException {
+        //Nothing matches "xy" completely, so a blocking read has to wait for the rest instead of returning null
+        ScriptedReader reader = new ScriptedReader(false, "xy", "z");
+        InputDecoder decoder = new InputDecoder(reader);
+        decoder.addProfile(profile(new SequencePattern(new KeyStroke(KeyType.F1), "xyz")));
+        assertEquals(new KeyStroke(KeyType.F1), decoder.getNextCharacter(true));
+        assertTrue(reader.isFinished());
+    }
+
+    private static InputDecoder createDecoder(String... chunks) {
+        InputDecoder decoder = new InputDecoder(new ScriptedReader(false, chunks));
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        return decoder;
+    }
+
+    private static KeyDecodingProfile profile(final CharacterPattern... patterns) {
+        return new KeyDecodingProfile() {
+            @Override
+            public Collection<CharacterPattern> getPatterns() {
+                return Arrays.asList(patterns);
+            }
+        };
+    }
+
+    private static class SequencePattern implements CharacterPattern {
+        private final KeyStroke result;
+        private final String sequence;
+
+        SequencePattern(KeyStroke result, String sequence) {
+            this.result = result;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public KeyStroke getResult(List<Character> matching) {
+            return result;
+        }
+
+        @Override
+        public boolean isCompleteMatch(List<Character> currentMatching) {
+            return currentMatching.size() == sequence.length() && matches(currentMatching);
+        }
+
+        @Override
+        public boolean matches(List<Character> currentMatching) {
+            if(currentMatching.size() > sequence.length()) {
+                return false;
+            }
+            for(int i = 0; i < currentMatching.size(); i++) {
+                if(currentMatching.get(i) != sequence.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reader that returns its input in the chunks it was given, like input arriving in separate packets. The first
+     * chunk has arrived from the start, the next one arrives when {@code deliverNextChunk()} is called or when there's
+     * a read while there's nothing left, like a blocking read would wait for it.
+     */
+    private static class ScriptedReader extends Reader {
+        private final String[] chunks;
+        private final boolean endOfStream;
+        private int nextChunk;
+        private String current;
+        private int position;
+
+        ScriptedReader(boolean endOfStream, String... chunks) {
+            this.chunks = chunks;
+            this.endOfStream = endOfStream;
+            this.nextChunk = 0;
+            this.current = "";
+            this.position = 0;
+            deliverNextChunk();
+        }
+
+        void deliverNextChunk() {
+            if(nextChunk < chunks.length) {
+                current = current.substring(position) + chunks[nextChunk++];
+                position = 0;
+            }
+        }
+
+        boolean isFinished() {
+            return nextChunk == chunks.length && position == current.length();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if(position == current.length()) {
+                if(nextChunk == chunks.length) {
+                    if(endOfStream) {
+                        return -1;
+                    }
+                    throw new IOException("Read past the end of the script, this would block forever");
+                }
+                deliverNextChunk();
+            }
+            int count = Math.min(length, current.length() - position);
+            current.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public boolean ready() {
+            return position < current.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
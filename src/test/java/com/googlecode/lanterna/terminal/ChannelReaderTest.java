@@ -0,0 +1,186 @@
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.input.ChannelReader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChannelReaderTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    //One, two, three and four bytes in UTF-8, the last one is a surrogate pair in Java
+    private static final String TEXT = "a\u00e4\u65e5\ud83d\ude00z";
+
+    @Test
+    public void testSequenceSplitBetweenReads() throws IOException {
+        byte[] encoded = TEXT.getBytes(UTF8);
+        for(int split = 1; split < encoded.length; split++) {
+            ChannelReader reader = new ChannelReader(new ChunkedInputStream(
+                    Arrays.copyOfRange(encoded, 0, split),
+                    Arrays.copyOfRange(encoded, split, encoded.length)), UTF8);
+            String first = readOnce(reader);
+            assertTrue("Split at " + split + " gave " + first, TEXT.startsWith(first));
+            assertEquals("Split at " + split, TEXT, first + readAll(reader));
+        }
+    }
+
+    @Test
+    public void testOneByteAtATime() throws IOException {
+        byte[] encoded = TEXT.getBytes(UTF8);
+        byte[][] chunks = new byte[encoded.length][];
+        for(int i = 0; i < encoded.length; i++) {
+            chunks[i] = new byte[] { encoded[i] };
+        }
+        ChannelReader reader = new ChannelReader(new ChunkedInputStream(chunks), UTF8);
+        StringBuilder read = new StringBuilder();
+        while(read.length() < TEXT.length()) {
+            String chunk = readOnce(reader);
+            assertTrue(chunk.length() > 0);
+            read.append(chunk);
+            assertTrue(read.toString(), TEXT.startsWith(read.toString()));
+        }
+        assertEquals(TEXT, read.toString());
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+    }
+
+    @Test
+    public void testMoreThanTheBuffers() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while(text.length() < 30000) {
+            text.append(TEXT);
+        }
+        byte[] encoded = text.toString().getBytes(UTF8);
+        //Chunks of a size that puts the boundaries in the middle of characters all over
+        List<byte[]> chunks = new ArrayList<byte[]>();
+        for(int i = 0; i < encoded.length; i += 4099) {
+            chunks.add(Arrays.copyOfRange(encoded, i, Math.min(encoded.length, i + 4099)));
+        }
+        ChannelReader reader =
+                new ChannelReader(new ChunkedInputStream(chunks.toArray(new byte[chunks.size()][])), UTF8);
+        assertEquals(text.toString(), readAll(reader));
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        ChannelReader reader = new ChannelReader(new ByteArrayInputStream(new byte[0]), UTF8);
+        assertFalse(reader.ready());
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+
+        reader = new ChannelReader(new ByteArrayInputStream("xy".getBytes(UTF8)), UTF8);
+        assertTrue(reader.ready());
+        assertEquals("xy", readOnce(reader));
+        assertFalse(reader.ready());
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+    }
+
+    @Test
+    public void testIncompleteSequenceAtEndOfStream() throws IOException {
+        byte[] encoded = "x\u65e5".getBytes(UTF8);
+        ChannelReader reader = new ChannelReader(new ByteArrayInputStream(encoded, 0, encoded.length - 1), UTF8);
+        assertEquals("x\ufffd", readAll(reader));
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+    }
+
+    @Test
+    public void testEndOfStreamIsNotFinal() throws IOException {
+        //Some streams report the end when there's nothing to read at the moment, just like InputStreamReader the
+        //reader tries again on the next read
+        ChannelReader reader =
+                new ChannelReader(new ChunkedInputStream("ab".getBytes(UTF8), null, "c".getBytes(UTF8)), UTF8);
+        assertEquals("ab", readOnce(reader));
+        assertEquals(-1, reader.read(new char[8], 0, 8));
+        assertEquals("c", readOnce(reader));
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        byte[] encoded = TEXT.getBytes(UTF8);
+        ChannelReader reader = new ChannelReader(Channels.newChannel(new ByteArrayInputStream(encoded)), UTF8);
+        //Without a stream to ask, nothing is known to be ready until it has been read from the channel
+        assertFalse(reader.ready());
+        char[] buffer = new char[2];
+        assertEquals(2, reader.read(buffer, 0, 2));
+        assertEquals(TEXT.substring(0, 2), new String(buffer));
+        assertTrue(reader.ready());
+        assertEquals(TEXT.substring(2), readAll(reader));
+        assertFalse(reader.ready());
+    }
+
+    private static String readOnce(ChannelReader reader) throws IOException {
+        char[] buffer = new char[64];
+        int read = reader.read(buffer, 0, buffer.length);
+        return read == -1 ? "" : new String(buffer, 0, read);
+    }
+
+    private static String readAll(ChannelReader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[100];
+        int read;
+        while((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            text.append(buffer, 0, read);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Stream that returns its content in the chunks it was given, one chunk per read at the most, like input arriving
+     * in separate packets. A {@code null} chunk is an end of stream that isn't final.
+     */
+    private static class ChunkedInputStream extends InputStream {
+        private final byte[][] chunks;
+        private int chunk;
+        private int position;
+
+        ChunkedInputStream(byte[]... chunks) {
+            this.chunks = chunks;
+            this.chunk = 0;
+            this.position = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if(chunk == chunks.length) {
+                return -1;
+            }
+            if(chunks[chunk] == null) {
+                chunk++;
+                return -1;
+            }
+            int count = Math.min(length, chunks[chunk].length - position);
+            System.arraycopy(chunks[chunk], position, buffer, offset, count);
+            position += count;
+            if(position == chunks[chunk].length) {
+                chunk++;
+                position = 0;
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            //Only what's left of a chunk that has started arriving
+            if(chunk == chunks.length || chunks[chunk] == null || position == 0) {
+                return 0;
+            }
+            return chunks[chunk].length - position;
+        }
+    }
+}
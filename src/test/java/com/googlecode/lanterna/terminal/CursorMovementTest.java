@@ -0,0 +1,183 @@
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.terminal.ansi.ANSITerminal;
+import com.googlecode.lanterna.terminal.ansi.HeadlessTerminal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CursorMovementTest {
+
+    @Test
+    public void testAbsoluteWhenPositionIsUnknown() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        assertEquals("\033[6;11H", terminal.move(10, 5));
+        terminal.clearScreen();
+        terminal.takeOutput();
+        assertEquals("\033[6;12H", terminal.move(11, 5));
+        terminal.putCharacter('\n');
+        terminal.takeOutput();
+        assertEquals("\033[8;12H", terminal.move(11, 7));
+        terminal.writeBytes((byte)'x');
+        assertEquals("\033[8;12H", terminal.move(11, 7));
+        terminal.enterPrivateMode();
+        terminal.takeOutput();
+        assertEquals("\033[9;12H", terminal.move(11, 8));
+        terminal.exitPrivateMode();
+        terminal.takeOutput();
+        assertEquals("\033[10;12H", terminal.move(11, 9));
+        terminal.putCharacter('\r');
+        terminal.takeOutput();
+        assertEquals("\033[10H", terminal.move(0, 9));
+    }
+
+    @Test
+    public void testNothingWhenAlreadyThere() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(10, 5);
+        assertEquals("", terminal.move(10, 5));
+        terminal.putCharacter('x');
+        assertEquals("", terminal.move(11, 5));
+        terminal.putCharacter('日');
+        assertEquals("", terminal.move(13, 5));
+    }
+
+    @Test
+    public void testRelativeMovements() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(40, 10);
+        assertEquals("\033[D", terminal.move(39, 10));
+        assertEquals("\033[4C", terminal.move(43, 10));
+        assertEquals("\033[A", terminal.move(43, 9));
+        assertEquals("\033[B", terminal.move(43, 10));
+        assertEquals("\033[A\033[D", terminal.move(42, 9));
+        assertEquals("\033[3B\033[C", terminal.move(43, 12));
+    }
+
+    @Test
+    public void testCarriageReturnAndLineFeeds() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(11, 5);
+        assertEquals("\r", terminal.move(0, 5));
+        terminal.move(11, 5);
+        assertEquals("\r\n\n", terminal.move(0, 7));
+        terminal.move(50, 7);
+        assertEquals("\r\033[C", terminal.move(1, 7));
+        terminal.move(50, 7);
+        assertEquals("\r\n\033[C", terminal.move(1, 8));
+        //Line feeds are only used for a few lines, further down absolute positioning is shorter anyway
+        terminal.move(11, 5);
+        assertEquals("\033[16H", terminal.move(0, 15));
+    }
+
+    @Test
+    public void testAbsoluteWhenShorter() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(79, 23);
+        assertEquals("\033[H", terminal.move(0, 0));
+        terminal.move(70, 20);
+        assertEquals("\033[3;4H", terminal.move(3, 2));
+    }
+
+    @Test
+    public void testUnknownAfterLastColumn() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(78, 3);
+        terminal.putCharacter('x');
+        assertEquals("", terminal.move(79, 3));
+        terminal.putCharacter('x');
+        //The cursor is in the last column or has wrapped, so it has to be positioned absolutely
+        assertEquals("\033[4;80H", terminal.move(79, 3));
+    }
+
+    @Test
+    public void testOutOfBoundsMoveIsAbsolute() throws IOException {
+        CapturingTerminal terminal = new CapturingTerminal();
+        terminal.move(10, 5);
+        assertEquals("\033[5001;5001H", terminal.move(5000, 5000));
+        assertEquals("\033[6;11H", terminal.move(10, 5));
+    }
+
+    @Test
+    public void testShortestSequenceEndsUpInTheRightPlace() throws IOException {
+        HeadlessTerminal terminal = new HeadlessTerminal(new TerminalSize(200, 60));
+        Random random = new Random(1234);
+        terminal.setCursorPosition(0, 0);
+        terminal.flush();
+        for(int i = 0; i < 5000; i++) {
+            int x = random.nextInt(200);
+            int y = random.nextInt(60);
+            if(random.nextInt(4) == 0) {
+                //Short moves are where the relative sequences come in
+                x = Math.max(0, Math.min(199, terminal.getCursorPosition().getColumn() + random.nextInt(9) - 4));
+                y = Math.max(0, Math.min(59, terminal.getCursorPosition().getRow() + random.nextInt(9) - 4));
+            }
+            long bytesBefore = terminal.getBytesWritten();
+            terminal.setCursorPosition(x, y);
+            terminal.flush();
+            long written = terminal.getBytesWritten() - bytesBefore;
+            assertEquals(new TerminalPosition(x, y), terminal.getCursorPosition());
+            assertTrue("Move to " + x + "x" + y + " took " + written + " bytes", written <= absoluteLength(x, y));
+            if(random.nextBoolean()) {
+                terminal.putCharacter('x');
+                terminal.flush();
+            }
+        }
+    }
+
+    private static int absoluteLength(int x, int y) {
+        if(x == 0 && y == 0) {
+            return 3;
+        }
+        if(x == 0) {
+            return 3 + Integer.toString(y + 1).length();
+        }
+        return 4 + Integer.toString(y + 1).length() + Integer.toString(x + 1).length();
+    }
+
+    /**
+     * 80x24 terminal that keeps what's written to it, so that the exact bytes can be checked
+     */
+    private static class CapturingTerminal extends ANSITerminal {
+        private final ByteArrayOutputStream output;
+
+        CapturingTerminal() {
+            this(new ByteArrayOutputStream());
+        }
+
+        private CapturingTerminal(ByteArrayOutputStream output) {
+            super(new ByteArrayInputStream(new byte[0]), output, Charset.forName("UTF-8"));
+            this.output = output;
+            onResized(80, 24);
+        }
+
+        String move(int x, int y) throws IOException {
+            takeOutput();
+            setCursorPosition(x, y);
+            flush();
+            return takeOutput();
+        }
+
+        void writeBytes(byte... bytes) throws IOException {
+            writeToTerminal(bytes);
+            flush();
+            takeOutput();
+        }
+
+        String takeOutput() throws IOException {
+            flush();
+            String written = output.toString("UTF-8");
+            output.reset();
+            return written;
+        }
+    }
+}
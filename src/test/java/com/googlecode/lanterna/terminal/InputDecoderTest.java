@@ -0,0 +1,336 @@
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.input.BasicCharacterPattern;
+import com.googlecode.lanterna.input.CharacterPattern;
+import com.googlecode.lanterna.input.DefaultKeyDecodingProfile;
+import com.googlecode.lanterna.input.InputDecoder;
+import com.googlecode.lanterna.input.KeyDecodingProfile;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.ScreenInfoCharacterPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class InputDecoderTest {
+
+    private static final char ESC = KeyDecodingProfile.ESC_CODE;
+
+    @Test
+    public void testFixedSequences() throws IOException {
+        InputDecoder decoder = createDecoder(ESC + "[A" + ESC + "[1;5C" + ESC + "OP" + ESC + "[24~x\t\u007f", 64);
+        assertEquals(new KeyStroke(KeyType.ArrowUp), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.ArrowRight, true, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F1), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F12), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('x', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Tab), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Backspace), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testLongestMatchWins() throws IOException {
+        InputDecoder decoder = createDecoder(ESC + "" + ESC + "[A" + ESC + "[15;5~" + ESC + "x" + ESC, 64);
+        assertEquals(new KeyStroke(KeyType.ArrowUp, false, true), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F5, true, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('x', false, true), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Escape), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testSharedPrefixes() throws IOException {
+        //Home, F1, F5 and CTRL+F5 all start with "ESC [ 1"
+        String input = ESC + "[1~" + ESC + "[11~" + ESC + "[15~" + ESC + "[15;5~" + ESC + "[1~";
+        InputDecoder decoder = createDecoder(input, 1);
+        assertEquals(new KeyStroke(KeyType.Home), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F1), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F5), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F5, true, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.Home), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testPartialSequenceWithoutMatch() throws IOException {
+        //"ab" is only the start of a sequence and nothing matches it completely, so there is nothing to return yet
+        InputDecoder decoder = new InputDecoder(new ChunkedReader("ab", 1));
+        decoder.addProfile(profile(new SequencePattern(new KeyStroke(KeyType.F1), "abc")));
+        assertNull(decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testUnmatchedCharacterIsDropped() throws IOException {
+        InputDecoder decoder = new InputDecoder(new ChunkedReader("zab", 1));
+        decoder.addProfile(profile(new SequencePattern(new KeyStroke(KeyType.F1), "ab")));
+        assertNull(decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(KeyType.F1), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testIncompleteSequenceFallsBackToShorterMatch() throws IOException {
+        //Escape is the longest complete match of a cut off "ESC [ 1 ; 5" and the rest comes out as characters
+        InputDecoder decoder = createDecoder(ESC + "[1;5", 64);
+        assertEquals(new KeyStroke(KeyType.Escape), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('[', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('1', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke(';', false, false), decoder.getNextCharacter(false));
+        assertEquals(new KeyStroke('5', false, false), decoder.getNextCharacter(false));
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testLaterPatternWins() throws IOException {
+        String arrowUp = ESC + "[A";
+        InputDecoder decoder = createDecoder(arrowUp + arrowUp + arrowUp + arrowUp, 64);
+        CharacterPattern arrowUpPattern = null;
+        for(CharacterPattern pattern: decoder.getPatterns()) {
+            if(pattern instanceof BasicCharacterPattern &&
+                    new String(((BasicCharacterPattern)pattern).getPattern()).equals(arrowUp)) {
+                arrowUpPattern = pattern;
+            }
+        }
+        assertNotNull(arrowUpPattern);
+
+        //A pattern added after the fixed sequence takes over...
+        SequencePattern override = new SequencePattern(new KeyStroke(KeyType.F5), arrowUp);
+        decoder.addProfile(profile(override));
+        assertEquals(new KeyStroke(KeyType.F5), decoder.getNextCharacter(false));
+        //...until the fixed sequence is added again, which moves it to the end of the list
+        decoder.addProfile(profile(arrowUpPattern));
+        assertEquals(new KeyStroke(KeyType.ArrowUp), decoder.getNextCharacter(false));
+        assertTrue(decoder.removePattern(arrowUpPattern));
+        assertEquals(new KeyStroke(KeyType.F5), decoder.getNextCharacter(false));
+        assertTrue(decoder.removePattern(override));
+        assertEquals(new KeyStroke(KeyType.Escape), decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testParametricPatterns() throws IOException {
+        InputDecoder decoder = createDecoder(ESC + "[24;80R" + ESC + "[1;5R" + ESC + "[<0;300;2M", 64);
+        assertEquals(KeyType.CursorLocation, decoder.getNextCharacter(false).getKeyType());
+        assertEquals(new TerminalPosition(80, 24), decoder.getLastReportedTerminalPosition());
+        //Column 5, row 1 is what CTRL+F3 looks like
+        assertEquals(new KeyStroke(KeyType.F3, true, false), decoder.getNextCharacter(false));
+        assertEquals(new TerminalPosition(80, 24), decoder.getLastReportedTerminalPosition());
+        assertEquals(KeyType.MouseClickPressed, decoder.getNextCharacter(false).getKeyType());
+        assertNull(decoder.getNextCharacter(false));
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException {
+        InputDecoder decoder = new InputDecoder(new ChunkedReader("x", 1, true));
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        assertEquals(new KeyStroke('x', false, false), decoder.getNextCharacter(true));
+        assertEquals(new KeyStroke(KeyType.EOF), decoder.getNextCharacter(true));
+    }
+
+    @Test
+    public void testChunkedInputMatchesPatternList() throws IOException {
+        String[] fragments = {
+                "a", "Z", "9", " ", "ä", "日", ESC + "", ESC + "[A", ESC + "" + ESC + "[B", ESC + "[1;5C",
+                ESC + "OP", ESC + "[[A", ESC + "[24;80R", ESC + "[1;5R", ESC + "[M !!", ESC + "[<2;15;300m",
+                ESC + "[<64;1;1M", ESC + "x", ESC + "\u0001", "\u0001", "\r\u0000", "\r", "\n", "\t", "\u007f",
+                ESC + "[", ESC + "[5", ESC + "[15~", ESC + "[3;2~", ESC + "[Z", ESC + "[1;", "hello world" };
+        List<CharacterPattern> patterns =
+                new ArrayList<CharacterPattern>(new DefaultKeyDecodingProfile().getPatterns());
+        Random random = new Random(4711);
+        for(int trial = 0; trial < 500; trial++) {
+            StringBuilder input = new StringBuilder();
+            int count = 1 + random.nextInt(trial % 10 == 0 ? 400 : 20);
+            for(int i = 0; i < count; i++) {
+                input.append(fragments[random.nextInt(fragments.length)]);
+            }
+            int chunkSize = 1 + random.nextInt(8);
+            InputDecoder decoder = createDecoder(input.toString(), chunkSize);
+            List<KeyStroke> decoded = new ArrayList<KeyStroke>();
+            //A character nothing matches is dropped with a null returned, so only stop when nothing happens any more
+            int nullsInARow = 0;
+            while(nullsInARow < 3) {
+                KeyStroke keyStroke = decoder.getNextCharacter(false);
+                nullsInARow = keyStroke == null ? nullsInARow + 1 : 0;
+                decoded.add(keyStroke);
+            }
+            removeTrailingNulls(decoded);
+            List<KeyStroke> expected = decodeWithPatternList(patterns, input.toString());
+            assertEquals("Input " + Arrays.toString(input.toString().toCharArray()) + " in chunks of " + chunkSize,
+                    expected.toString(), decoded.toString());
+        }
+    }
+
+    private static InputDecoder createDecoder(String input, int chunkSize) {
+        InputDecoder decoder = new InputDecoder(new ChunkedReader(input, chunkSize));
+        decoder.addProfile(new DefaultKeyDecodingProfile());
+        return decoder;
+    }
+
+    private static KeyDecodingProfile profile(final CharacterPattern... patterns) {
+        return new KeyDecodingProfile() {
+            @Override
+            public Collection<CharacterPattern> getPatterns() {
+                return Arrays.asList(patterns);
+            }
+        };
+    }
+
+    private static void removeTrailingNulls(List<KeyStroke> keyStrokes) {
+        while(!keyStrokes.isEmpty() && keyStrokes.get(keyStrokes.size() - 1) == null) {
+            keyStrokes.remove(keyStrokes.size() - 1);
+        }
+    }
+
+    /**
+     * Decodes the input the way InputDecoder did before the patterns were compiled, by asking every pattern about
+     * every prefix of the input. A {@code null} in the list is where a character nothing matched was dropped.
+     */
+    private static List<KeyStroke> decodeWithPatternList(List<CharacterPattern> patterns, String input) {
+        List<Character> remaining = new ArrayList<Character>();
+        for(char c: input.toCharArray()) {
+            remaining.add(c);
+        }
+        List<KeyStroke> decoded = new ArrayList<KeyStroke>();
+        while(!remaining.isEmpty()) {
+            int sizeBefore = remaining.size();
+            KeyStroke bestMatch = null;
+            int nrOfCharactersMatched = 0;
+            for(int i = 0; i < remaining.size(); i++) {
+                List<Character> subList = remaining.subList(0, i + 1);
+                boolean partialMatch = false;
+                KeyStroke fullMatch = null;
+                for(CharacterPattern pattern: patterns) {
+                    if(pattern.matches(subList)) {
+                        partialMatch = true;
+                        if(pattern.isCompleteMatch(subList)) {
+                            fullMatch = pattern.getResult(subList);
+                        }
+                    }
+                }
+                if(bestMatch != null && fullMatch == null && !partialMatch) {
+                    break;
+                }
+                else if(fullMatch != null) {
+                    bestMatch = fullMatch;
+                    nrOfCharactersMatched = i + 1;
+                }
+                else if(bestMatch == null && !partialMatch) {
+                    subList.clear();
+                    break;
+                }
+            }
+            if(bestMatch == null) {
+                if(remaining.size() == sizeBefore) {
+                    //The start of a sequence that never completes
+                    break;
+                }
+                decoded.add(null);
+                continue;
+            }
+            if(bestMatch.getKeyType() == KeyType.CursorLocation) {
+                TerminalPosition position =
+                        ScreenInfoCharacterPattern.getCursorPosition(remaining.subList(0, nrOfCharactersMatched));
+                if(position != null && position.getColumn() == 5 && position.getRow() == 1) {
+                    bestMatch = new KeyStroke(KeyType.F3, true, false);
+                }
+            }
+            remaining.subList(0, nrOfCharactersMatched).clear();
+            decoded.add(bestMatch);
+        }
+        removeTrailingNulls(decoded);
+        return decoded;
+    }
+
+    /**
+     * Pattern for a fixed sequence that, unlike {@code BasicCharacterPattern}, isn't compiled into the trie
+     */
+    private static class SequencePattern implements CharacterPattern {
+        private final KeyStroke result;
+        private final String sequence;
+
+        SequencePattern(KeyStroke result, String sequence) {
+            this.result = result;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public KeyStroke getResult(List<Character> matching) {
+            return result;
+        }
+
+        @Override
+        public boolean isCompleteMatch(List<Character> currentMatching) {
+            return currentMatching.size() == sequence.length() && matches(currentMatching);
+        }
+
+        @Override
+        public boolean matches(List<Character> currentMatching) {
+            if(currentMatching.size() > sequence.length()) {
+                return false;
+            }
+            for(int i = 0; i < currentMatching.size(); i++) {
+                if(currentMatching.get(i) != sequence.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reader that hands out its text a few characters at a time, like input arriving over a slow connection
+     */
+    private static class ChunkedReader extends Reader {
+        private final String text;
+        private final int chunkSize;
+        private final boolean endOfStream;
+        private int position;
+
+        ChunkedReader(String text, int chunkSize) {
+            this(text, chunkSize, false);
+        }
+
+        ChunkedReader(String text, int chunkSize, boolean endOfStream) {
+            this.text = text;
+            this.chunkSize = chunkSize;
+            this.endOfStream = endOfStream;
+            this.position = 0;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if(position == text.length()) {
+                if(endOfStream) {
+                    return -1;
+                }
+                throw new IOException("Read past the end of the input without it being ready");
+            }
+            int count = Math.min(Math.min(length, chunkSize), text.length() - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public boolean ready() {
+            return position < text.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.googlecode.lanterna.terminal;
+
+import com.googlecode.lanterna.TerminalPosition;
+import com.googlecode.lanterna.TerminalSize;
+import com.googlecode.lanterna.input.InputProvider;
+import com.googlecode.lanterna.input.KeyStroke;
+import com.googlecode.lanterna.input.KeyType;
+import com.googlecode.lanterna.input.MouseAction;
+import com.googlecode.lanterna.input.ObservableInputProvider;
+import com.googlecode.lanterna.input.SGRMouseCharacterPattern;
+import com.googlecode.lanterna.terminal.ansi.HeadlessTerminal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SGRMouseTest {
+
+    private final SGRMouseCharacterPattern pattern = new SGRMouseCharacterPattern();
+
+    @Test
+    public void testPressAndRelease() {
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 9, 19, false, false), decode("\033[<0;10;20M"));
+        assertEquals(mouse(KeyType.MouseClickRelease, 1, 9, 19, false, false), decode("\033[<0;10;20m"));
+        assertEquals(mouse(KeyType.MouseClickPressed, 2, 0, 0, false, false), decode("\033[<1;1;1M"));
+        assertEquals(mouse(KeyType.MouseClickRelease, 2, 0, 0, false, false), decode("\033[<1;1;1m"));
+        assertEquals(mouse(KeyType.MouseClickPressed, 3, 4, 2, false, false), decode("\033[<2;5;3M"));
+        assertEquals(mouse(KeyType.MouseClickRelease, 3, 4, 2, false, false), decode("\033[<2;5;3m"));
+    }
+
+    @Test
+    public void testModifiers() {
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 0, 0, false, true), decode("\033[<8;1;1M"));
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 0, 0, true, false), decode("\033[<16;1;1M"));
+        assertEquals(mouse(KeyType.MouseClickRelease, 3, 0, 0, true, true), decode("\033[<26;1;1m"));
+        //Shift is reported by the terminal but not kept
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 0, 0, false, false), decode("\033[<4;1;1M"));
+    }
+
+    @Test
+    public void testWheel() {
+        assertEquals(mouse(KeyType.MouseClickPressed, 4, 7, 3, false, false), decode("\033[<64;8;4M"));
+        assertEquals(mouse(KeyType.MouseClickPressed, 5, 7, 3, false, false), decode("\033[<65;8;4M"));
+        assertEquals(mouse(KeyType.MouseClickPressed, 5, 7, 3, true, false), decode("\033[<81;8;4M"));
+    }
+
+    @Test
+    public void testMoves() {
+        assertEquals(mouse(KeyType.MouseMove, 0, 11, 5, false, false), decode("\033[<35;12;6M"));
+        assertEquals(mouse(KeyType.MouseMove, 1, 11, 5, false, false), decode("\033[<32;12;6M"));
+        assertEquals(mouse(KeyType.MouseMove, 3, 11, 5, true, false), decode("\033[<50;12;6M"));
+    }
+
+    @Test
+    public void testMultiDigitCoordinates() {
+        //Far past column 223, where the legacy encoding runs out of bytes
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 1233, 566, false, false), decode("\033[<0;1234;567M"));
+        assertEquals(mouse(KeyType.MouseClickRelease, 1, 99999, 223, false, false), decode("\033[<0;100000;224m"));
+    }
+
+    @Test
+    public void testPartialMatches() {
+        String report = "\033[<64;123;45M";
+        for(int length = 1; length < report.length(); length++) {
+            String prefix = report.substring(0, length);
+            assertTrue(prefix, pattern.matches(characters(prefix)));
+            assertFalse(prefix, pattern.isCompleteMatch(characters(prefix)));
+        }
+        assertTrue(pattern.matches(characters(report)));
+        assertTrue(pattern.isCompleteMatch(characters(report)));
+        assertFalse(pattern.matches(characters(report + "x")));
+    }
+
+    @Test
+    public void testNonMatches() {
+        for(String input: Arrays.asList("x", "\033x", "\033[A", "\033[M", "\033[<;1;1M", "\033[<0;;1M", "\033[<0;1;M",
+                "\033[<0;1M", "\033[<0;1;2;3M", "\033[<0;1;2x", "\033[<-1;1;1M", "\033[<0;1;1~")) {
+            assertFalse(input, pattern.isCompleteMatch(characters(input)));
+        }
+        assertFalse(pattern.matches(characters("\033[<0;1;1M0")));
+        assertFalse(pattern.matches(characters("\033[<0;;")));
+    }
+
+    @Test
+    public void testDecodedFromTerminalInput() throws IOException {
+        HeadlessTerminal terminal = new HeadlessTerminal(new TerminalSize(80, 24));
+        terminal.addInput("\033[<0;300;2M\033[<0;300;2mq");
+        assertEquals(mouse(KeyType.MouseClickPressed, 1, 299, 1, false, false), terminal.readInput());
+        assertEquals(mouse(KeyType.MouseClickRelease, 1, 299, 1, false, false), terminal.readInput());
+        assertEquals(new KeyStroke('q', false, false), terminal.readInput());
+    }
+
+    @Test
+    public void testQueuedMovesAreCoalesced() throws Exception {
+        HeadlessTerminal terminal = new HeadlessTerminal(new TerminalSize(80, 24));
+        String input =
+                "\033[<35;1;1M\033[<35;2;1M\033[<35;3;1M" +     //Moves without a button
+                "\033[<0;3;1M" +                                //Press
+                "\033[<32;4;1M\033[<32;5;1M" +                  //Moves with the left button down
+                "\033[<48;6;1M" +                               //Move with the left button and ctrl down
+                "\033[<32;7;1M\033[<32;8;1M" +                  //Moves with the left button down
+                "q";
+        List<KeyStroke> keyStrokes = readAllQueued(terminal, input, 10);
+        assertEquals(Arrays.<KeyStroke>asList(
+                mouse(KeyType.MouseMove, 0, 2, 0, false, false),
+                mouse(KeyType.MouseClickPressed, 1, 2, 0, false, false),
+                mouse(KeyType.MouseMove, 1, 4, 0, false, false),
+                mouse(KeyType.MouseMove, 1, 5, 0, true, false),
+                mouse(KeyType.MouseMove, 1, 7, 0, false, false),
+                new KeyStroke('q', false, false)), keyStrokes);
+    }
+
+    @Test
+    public void testReadMoveIsNotReplaced() throws Exception {
+        HeadlessTerminal terminal = new HeadlessTerminal(new TerminalSize(80, 24));
+        List<KeyStroke> keyStrokes = readAllQueued(terminal, "\033[<35;1;1M", 1);
+        keyStrokes.addAll(readAllQueued(terminal, "\033[<35;2;1M", 1));
+        assertEquals(Arrays.<KeyStroke>asList(
+                mouse(KeyType.MouseMove, 0, 0, 0, false, false),
+                mouse(KeyType.MouseMove, 0, 1, 0, false, false)), keyStrokes);
+    }
+
+    /**
+     * Adds input to the terminal, waits for the input reader to have queued the expected number of key strokes (each
+     * one counts, even if it's coalesced with one before it) and then polls everything that's in the queue
+     */
+    private static List<KeyStroke> readAllQueued(HeadlessTerminal terminal, String input, int expectedKeyStrokes)
+            throws Exception {
+        final CountDownLatch queued = new CountDownLatch(expectedKeyStrokes);
+        ObservableInputProvider.Listener listener = new ObservableInputProvider.Listener() {
+            @Override
+            public void onInputAvailable(InputProvider inputProvider) {
+                queued.countDown();
+            }
+        };
+        terminal.addInputListener(listener);
+        terminal.addInput(input);
+        assertTrue("Timed out waiting for input to be decoded", queued.await(10, TimeUnit.SECONDS));
+        terminal.removeInputListener(listener);
+        List<KeyStroke> keyStrokes = new ArrayList<KeyStroke>();
+        for(KeyStroke keyStroke = terminal.pollInput(); keyStroke != null; keyStroke = terminal.pollInput()) {
+            keyStrokes.add(keyStroke);
+        }
+        assertNull(terminal.pollInput());
+        return keyStrokes;
+    }
+
+    private KeyStroke decode(String input) {
+        List<Character> characters = characters(input);
+        assertTrue(input, pattern.matches(characters));
+        assertTrue(input, pattern.isCompleteMatch(characters));
+        return pattern.getResult(characters);
+    }
+
+    private static MouseAction mouse(KeyType type, int button, int column, int row, boolean ctrl, boolean alt) {
+        return new MouseAction(type, button, new TerminalPosition(column, row), ctrl, alt);
+    }
+
+    private static List<Character> characters(String input) {
+        List<Character> characters = new ArrayList<Character>();
+        for(char c: input.toCharArray()) {
+            characters.add(c);
+        }
+        return characters;
+    }
+}